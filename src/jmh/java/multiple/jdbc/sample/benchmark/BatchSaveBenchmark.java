@@ -0,0 +1,74 @@
+package multiple.jdbc.sample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import multiple.jdbc.sample.repositories.allocated.AllocatedPersonRepository;
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.secondary.SecondaryPersonRepository;
+
+/**
+ * Writes {@link #rows} entities with {@code batchSave} at different batch
+ * sizes. {@link SaveAllBenchmark} is the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BatchSaveBenchmark extends SpringBenchmark {
+
+    @Param({ "1000" })
+    private int rows;
+
+    @Param({ "10", "100", "1000" })
+    private int batchSize;
+
+    private SecondaryPersonRepository generatedIdRepository;
+    private AllocatedPersonRepository providedIdRepository;
+    private List<Person> existing;
+
+    @Setup(Level.Iteration)
+    public void prepare() {
+        recreateTables();
+        generatedIdRepository = getBean(SecondaryPersonRepository.class);
+        providedIdRepository = getBean(AllocatedPersonRepository.class);
+        existing = generatedIdRepository.batchSave(newPersons(rows), rows);
+    }
+
+    /**
+     * Inserts with ids generated by the database.
+     */
+    @Benchmark
+    public List<Person> insertGeneratedIds() {
+        return generatedIdRepository.batchSave(newPersons(rows), batchSize);
+    }
+
+    /**
+     * Inserts with ids provided by the {@code IdAllocator} of the repository.
+     */
+    @Benchmark
+    public List<Person> insertProvidedIds() {
+        return providedIdRepository.batchSave(newPersons(rows), batchSize);
+    }
+
+    @Benchmark
+    public List<Person> update() {
+        for (Person person : existing) {
+            person.setName(person.getName() + '.');
+            if (person.getName().length() > 200) {
+                person.setName("ziva");
+            }
+        }
+        return generatedIdRepository.batchSave(existing, batchSize);
+    }
+}
@@ -0,0 +1,73 @@
+package multiple.jdbc.sample.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.secondary.SecondaryPersonRepository;
+
+/**
+ * Looks up {@link #lookups} random entities among {@link #rows} by their ids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FindBenchmark extends SpringBenchmark {
+
+    @Param({ "10000" })
+    private int rows;
+
+    @Param({ "10", "1000" })
+    private int lookups;
+
+    private SecondaryPersonRepository repository;
+    private List<Long> ids;
+
+    @Override
+    @Setup
+    public void startContext() {
+        super.startContext();
+        repository = getBean(SecondaryPersonRepository.class);
+        List<Long> allIds = repository.batchSave(newPersons(rows), 1000).stream().map(Person::getId)
+                .collect(Collectors.toList());
+        Collections.shuffle(allIds, new Random(42));
+        ids = new ArrayList<>(allIds.subList(0, lookups));
+    }
+
+    @Benchmark
+    public Iterable<Person> findAllById() {
+        return repository.findAllById(ids);
+    }
+
+    @Benchmark
+    public List<Person> batchFindAllById() {
+        return repository.batchFindAllById(ids, 512);
+    }
+
+    @Benchmark
+    public List<Person> batchFindAllByIdParallel() {
+        return repository.batchFindAllByIdParallel(ids, 128);
+    }
+
+    /**
+     * The per row cost of mapping, without any batching.
+     */
+    @Benchmark
+    public Person findById() {
+        return repository.findById(ids.get(0)).orElse(null);
+    }
+}
@@ -0,0 +1,63 @@
+package multiple.jdbc.sample.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Slice;
+
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.secondary.SecondaryPersonRepository;
+
+/**
+ * Reads all {@link #rows} entities of a table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReadAllBenchmark extends SpringBenchmark {
+
+    @Param({ "10000" })
+    private int rows;
+
+    private SecondaryPersonRepository repository;
+
+    @Override
+    @Setup
+    public void startContext() {
+        super.startContext();
+        repository = getBean(SecondaryPersonRepository.class);
+        repository.batchSave(newPersons(rows), 1000);
+    }
+
+    @Benchmark
+    public void findAll(Blackhole blackhole) {
+        repository.findAll().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        try (Stream<Person> persons = repository.streamAll()) {
+            persons.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void findNextSlice(Blackhole blackhole) {
+        Slice<Person> slice = repository.findNextSlice(null, 1000);
+        slice.forEach(blackhole::consume);
+        while (slice.hasNext()) {
+            slice = repository.findNextSlice(slice.getContent().get(slice.getNumberOfElements() - 1), 1000);
+            slice.forEach(blackhole::consume);
+        }
+    }
+}
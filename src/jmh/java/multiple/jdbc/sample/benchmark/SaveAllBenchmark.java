@@ -0,0 +1,76 @@
+package multiple.jdbc.sample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import multiple.jdbc.sample.repositories.allocated.AllocatedPersonRepository;
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.secondary.SecondaryPersonRepository;
+
+/**
+ * The {@code saveAll} counterparts of {@link BatchSaveBenchmark}, writing one
+ * statement per entity.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SaveAllBenchmark extends SpringBenchmark {
+
+    @Param({ "1000" })
+    private int rows;
+
+    private SecondaryPersonRepository generatedIdRepository;
+    private AllocatedPersonRepository providedIdRepository;
+    private List<Person> existing;
+    private long lastId;
+
+    @Setup(Level.Iteration)
+    public void prepare() {
+        recreateTables();
+        generatedIdRepository = getBean(SecondaryPersonRepository.class);
+        providedIdRepository = getBean(AllocatedPersonRepository.class);
+        existing = generatedIdRepository.batchSave(newPersons(rows), rows);
+        lastId = 0;
+    }
+
+    @Benchmark
+    public Iterable<Person> insertGeneratedIds() {
+        return generatedIdRepository.saveAll(newPersons(rows));
+    }
+
+    /**
+     * {@code saveAll} does not use the {@code IdAllocator}, so the ids are set
+     * by the benchmark. With a {@literal null} version the entities are still
+     * inserted.
+     */
+    @Benchmark
+    public Iterable<Person> insertProvidedIds() {
+        List<Person> persons = newPersons(rows);
+        for (Person person : persons) {
+            person.setId(++lastId);
+        }
+        return providedIdRepository.saveAll(persons);
+    }
+
+    @Benchmark
+    public Iterable<Person> update() {
+        for (Person person : existing) {
+            person.setName(person.getName() + '.');
+            if (person.getName().length() > 200) {
+                person.setName("ziva");
+            }
+        }
+        return generatedIdRepository.saveAll(existing);
+    }
+}
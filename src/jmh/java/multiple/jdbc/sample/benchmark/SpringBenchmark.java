@@ -0,0 +1,73 @@
+package multiple.jdbc.sample.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestContextManager;
+
+import multiple.jdbc.sample.Application;
+import multiple.jdbc.sample.repositories.entities.Person;
+
+/**
+ * Starts the sample application of the tests, with its embedded H2 units, once
+ * per trial. The context is loaded like the one of the {@link SpringBootTest}s.
+ */
+@State(Scope.Benchmark)
+public abstract class SpringBenchmark {
+
+    private TestContext testContext;
+    protected ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        testContext = new TestContextManager(Context.class).getTestContext();
+        context = (ConfigurableApplicationContext) testContext.getApplicationContext();
+        recreateTables();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+        // closes the context and evicts it from the context cache
+        testContext.markApplicationContextDirty(null);
+    }
+
+    protected void recreateTables() {
+        for (String unit : new String[] { "primary", "secondary" }) {
+            JdbcOperations jdbcOperations = context
+                    .getBean(unit + "NamedParameterJdbcTemplate", NamedParameterJdbcOperations.class)
+                    .getJdbcOperations();
+            jdbcOperations.execute("drop table if exists t_person");
+            jdbcOperations.execute(
+                    "create table t_person (ID bigint not null auto_increment primary key, NAME varchar(256), COMPANY_ID bigint, VERSION bigint)");
+            jdbcOperations.execute("create sequence if not exists person_hi start with 1");
+        }
+    }
+
+    protected <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    protected static List<Person> newPersons(int rows) {
+        List<Person> persons = new ArrayList<>(rows);
+        for (int i = 0; i < rows; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        return persons;
+    }
+
+    @SpringBootTest(classes = Application.class, webEnvironment = WebEnvironment.NONE, properties = {
+            "logging.level.root=warn", "spring.main.log-startup-info=false" })
+    static class Context {
+    }
+}
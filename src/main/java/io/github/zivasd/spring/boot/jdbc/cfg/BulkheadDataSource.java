@@ -0,0 +1,45 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.InfrastructureProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.lang.NonNull;
+
+/**
+ * A {@link DataSource} getting its connections through the
+ * {@link UnitBulkhead} of its unit. Like {@link MeteredDataSource} it is given
+ * to the transaction manager and the templates of the unit and shares the
+ * transactions of the datasource it wraps.
+ */
+final class BulkheadDataSource extends DelegatingDataSource implements InfrastructureProxy {
+
+    private final UnitBulkhead bulkhead;
+
+    BulkheadDataSource(DataSource dataSource, UnitBulkhead bulkhead) {
+        super(dataSource);
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection() throws SQLException {
+        return bulkhead.acquire(() -> obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection(@NonNull String username, @NonNull String password) throws SQLException {
+        return bulkhead.acquire(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    @Override
+    @NonNull
+    public Object getWrappedObject() {
+        DataSource target = obtainTargetDataSource();
+        return target instanceof InfrastructureProxy ? ((InfrastructureProxy) target).getWrappedObject() : target;
+    }
+}
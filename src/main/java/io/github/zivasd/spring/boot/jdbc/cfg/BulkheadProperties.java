@@ -0,0 +1,141 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.time.Duration;
+
+import org.springframework.util.Assert;
+
+/**
+ * Settings of the bulkhead and the circuit breaker guarding the connections of
+ * a datasource unit, bound from {@code spring.datasources.<unit>.bulkhead}.
+ */
+public class BulkheadProperties {
+
+    private boolean enabled;
+    private int maxConcurrentAcquisitions = 10;
+    private Duration maxWait = Duration.ZERO;
+    private Duration slowAcquisitionThreshold = Duration.ofSeconds(1);
+    private int failureRateThreshold = 50;
+    private int windowSize = 20;
+    private int minimumCalls = 10;
+    private Duration openDuration = Duration.ofSeconds(30);
+    private int halfOpenCalls = 3;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrentAcquisitions() {
+        return maxConcurrentAcquisitions;
+    }
+
+    /**
+     * @param maxConcurrentAcquisitions the number of threads that may wait for a
+     *                                  connection of the unit at the same time,
+     *                                  must be positive.
+     */
+    public void setMaxConcurrentAcquisitions(int maxConcurrentAcquisitions) {
+        Assert.isTrue(maxConcurrentAcquisitions > 0, "MaxConcurrentAcquisitions must be positive");
+        this.maxConcurrentAcquisitions = maxConcurrentAcquisitions;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * @param maxWait the time a thread waits for its turn once
+     *                {@link #getMaxConcurrentAcquisitions()} threads wait,
+     *                {@literal 0} to fail at once, must not be negative.
+     */
+    public void setMaxWait(Duration maxWait) {
+        Assert.isTrue(maxWait != null && !maxWait.isNegative(), "MaxWait must not be negative");
+        this.maxWait = maxWait;
+    }
+
+    public Duration getSlowAcquisitionThreshold() {
+        return slowAcquisitionThreshold;
+    }
+
+    /**
+     * @param slowAcquisitionThreshold the time to get a connection above which
+     *                                 the acquisition counts as a failure, must
+     *                                 not be negative.
+     */
+    public void setSlowAcquisitionThreshold(Duration slowAcquisitionThreshold) {
+        Assert.isTrue(slowAcquisitionThreshold != null && !slowAcquisitionThreshold.isNegative(),
+                "SlowAcquisitionThreshold must not be negative");
+        this.slowAcquisitionThreshold = slowAcquisitionThreshold;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * @param failureRateThreshold the percentage of failed acquisitions in the
+     *                             window opening the circuit, from {@literal 1}
+     *                             to {@literal 100}.
+     */
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        Assert.isTrue(failureRateThreshold > 0 && failureRateThreshold <= 100,
+                "FailureRateThreshold must be between 1 and 100");
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @param windowSize the number of last acquisitions the failure rate is
+     *                   computed on, must be positive.
+     */
+    public void setWindowSize(int windowSize) {
+        Assert.isTrue(windowSize > 0, "WindowSize must be positive");
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * @param minimumCalls the number of acquisitions in the window before the
+     *                     circuit may open, must be positive.
+     */
+    public void setMinimumCalls(int minimumCalls) {
+        Assert.isTrue(minimumCalls > 0, "MinimumCalls must be positive");
+        this.minimumCalls = minimumCalls;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * @param openDuration the time the circuit rejects the acquisitions once
+     *                     open, must be positive.
+     */
+    public void setOpenDuration(Duration openDuration) {
+        Assert.isTrue(openDuration != null && !openDuration.isNegative() && !openDuration.isZero(),
+                "OpenDuration must be positive");
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    /**
+     * @param halfOpenCalls the number of trial acquisitions that must succeed
+     *                      for the circuit to close again, must be positive.
+     */
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        Assert.isTrue(halfOpenCalls > 0, "HalfOpenCalls must be positive");
+        this.halfOpenCalls = halfOpenCalls;
+    }
+}
@@ -1,7 +1,13 @@
 package io.github.zivasd.spring.boot.jdbc.cfg;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.sql.DataSource;
 
@@ -22,6 +28,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcProperties;
 import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
 import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
 import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
@@ -37,16 +44,24 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.jdbc.datasource.SimpleDriverDataSource;
 import org.springframework.jdbc.support.JdbcTransactionManager;
 import org.springframework.lang.NonNull;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchWriter;
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchWriterProperties;
+import io.github.zivasd.spring.boot.jdbc.repository.support.ShardGroup;
+
 @AutoConfiguration(value = "io.github.zivasd.spring.boot.jdbc.cfg.DataSourceBeansBuilder", before = {
         DataSourceAutoConfiguration.class, TransactionAutoConfiguration.class })
 @ComponentScan({ "io.github.zivasd.spring.boot.jdbc.cfg" })
@@ -62,6 +77,7 @@ public class DataSourceBeansBuilder
     private Map<String, DataSourceProperties> dataSources;
     private Environment environment;
     private ApplicationContext applicationContext;
+    private final Map<String, DataSource> clientDataSources = new ConcurrentHashMap<>();
 
     @Override
     public void postProcessBeanFactory(@NonNull ConfigurableListableBeanFactory beanFactory) throws BeansException {
@@ -109,12 +125,134 @@ public class DataSourceBeansBuilder
             registerNamedParameterJdbcTemplate(registry, unitName, primary);
             registerJdbcTemplate(registry, unitName, primary);
             registerSqlDataSourceScriptDatabaseInitializer(registry, unitName, primary);
+            registerBatchWriter(registry, unitName, primary);
             if (doRegisterTM) {
                 registerTransactionManager(registry, unitName, primary);
                 registerTransactionTemplate(registry, unitName, primary);
             }
             primary = false;
         }
+        registerShardGroups(registry);
+        registerMultiUnitJdbcTemplate(registry);
+        registerWarmUp(registry);
+        registerStatementProfilers(registry);
+        registerBulkheads(registry);
+    }
+
+    /**
+     * Registers a {@link UnitBulkhead} per unit declaring
+     * {@code spring.datasources.<unit>.bulkhead.enabled}.
+     */
+    private void registerBulkheads(@NonNull BeanDefinitionRegistry registry) {
+        Binder binder = Binder.get(environment);
+        for (String unitName : dataSources.keySet()) {
+            BulkheadProperties properties = binder
+                    .bind("spring.datasources." + unitName + ".bulkhead", Bindable.of(BulkheadProperties.class))
+                    .orElseGet(BulkheadProperties::new);
+            if (!properties.isEnabled())
+                continue;
+            LOGGER.info("Guarding the connections of {}{} with a bulkhead.", unitName, DATASOURCE_PREFIX);
+            GenericBeanDefinition beanDefinition = new GenericBeanDefinition();
+            beanDefinition.setBeanClass(UnitBulkhead.class);
+            beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(unitName);
+            beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(properties);
+            registry.registerBeanDefinition(unitName + "Bulkhead", beanDefinition);
+        }
+    }
+
+    /**
+     * Registers a {@link StatementProfiler} per unit declaring
+     * {@code spring.datasources.<unit>.profiling.enabled}.
+     */
+    private void registerStatementProfilers(@NonNull BeanDefinitionRegistry registry) {
+        Binder binder = Binder.get(environment);
+        for (String unitName : dataSources.keySet()) {
+            ProfilingProperties properties = binder
+                    .bind("spring.datasources." + unitName + ".profiling", Bindable.of(ProfilingProperties.class))
+                    .orElseGet(ProfilingProperties::new);
+            if (!properties.isEnabled())
+                continue;
+            LOGGER.info("Profiling the statements of {}{}.", unitName, DATASOURCE_PREFIX);
+            GenericBeanDefinition beanDefinition = new GenericBeanDefinition();
+            beanDefinition.setBeanClass(StatementProfiler.class);
+            beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(unitName);
+            beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(properties);
+            registry.registerBeanDefinition(unitName + "StatementProfiler", beanDefinition);
+        }
+    }
+
+    private void registerMultiUnitJdbcTemplate(@NonNull BeanDefinitionRegistry registry) {
+        GenericBeanDefinition beanDefinition = new GenericBeanDefinition();
+        beanDefinition.setFactoryBeanName(this.getClass().getName());
+        beanDefinition.setFactoryMethodName("multiUnitJdbcTemplate");
+        registry.registerBeanDefinition("multiUnitJdbcTemplate", beanDefinition);
+    }
+
+    /**
+     * Registers a {@link ShardGroup} per group of
+     * {@code spring.datasources.<unit>.shard.group}, its units ordered by
+     * {@code spring.datasources.<unit>.shard.index}.
+     */
+    private void registerShardGroups(@NonNull BeanDefinitionRegistry registry) {
+        if (!ClassUtils.isPresent(SPRING_DATA_JDBC_CLASS, getClass().getClassLoader())) {
+            return;
+        }
+        Binder binder = Binder.get(environment);
+        Map<String, TreeMap<Integer, String>> groups = new LinkedHashMap<>();
+        for (String unitName : dataSources.keySet()) {
+            ShardProperties shard = binder
+                    .bind("spring.datasources." + unitName + ".shard", Bindable.of(ShardProperties.class))
+                    .orElse(null);
+            if (shard == null || !StringUtils.hasText(shard.getGroup()))
+                continue;
+            Integer index = shard.getIndex();
+            Assert.state(index != null, () -> "Shard " + unitName + " of " + shard.getGroup() + " has no index");
+            TreeMap<Integer, String> units = groups.computeIfAbsent(shard.getGroup(), group -> new TreeMap<>());
+            String other = units.put(index, unitName);
+            Assert.state(other == null, () -> "Shards " + other + " and " + unitName + " of " + shard.getGroup()
+                    + " have the same index " + index);
+        }
+        for (Map.Entry<String, TreeMap<Integer, String>> group : groups.entrySet()) {
+            TreeMap<Integer, String> units = group.getValue();
+            Assert.state(units.lastKey() == units.size() - 1,
+                    () -> "The shards of " + group.getKey() + " must be numbered from 0 to " + (units.size() - 1)
+                            + ", found " + units.keySet());
+            LOGGER.info("Initialized ShardGroup: {} on {}.", group.getKey(), units.values());
+
+            GenericBeanDefinition beanDefinition = new GenericBeanDefinition();
+            beanDefinition.setBeanClass(ShardGroup.class);
+            beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(group.getKey());
+            beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(new ArrayList<>(units.values()));
+            registry.registerBeanDefinition(group.getKey() + ShardGroup.BEAN_NAME_SUFFIX, beanDefinition);
+        }
+    }
+
+    /**
+     * Registers the {@link DataSourceWarmUp} of the units declaring
+     * {@code spring.datasources.<unit>.warm-up.enabled}, lazy units excepted.
+     */
+    private void registerWarmUp(@NonNull BeanDefinitionRegistry registry) {
+        Binder binder = Binder.get(environment);
+        Map<String, WarmUpProperties> units = new LinkedHashMap<>();
+        for (String unitName : dataSources.keySet()) {
+            String key = "spring.datasources." + unitName;
+            WarmUpProperties properties = binder.bind(key + ".warm-up", Bindable.of(WarmUpProperties.class))
+                    .orElseGet(WarmUpProperties::new);
+            if (!properties.isEnabled())
+                continue;
+            if (binder.bind(key + ".lazy", Boolean.class).orElse(false)) {
+                LOGGER.warn("Ignoring the warm-up of the lazy unit {}.", unitName);
+                continue;
+            }
+            units.put(unitName, properties);
+        }
+        if (units.isEmpty())
+            return;
+
+        GenericBeanDefinition beanDefinition = new GenericBeanDefinition();
+        beanDefinition.setBeanClass(DataSourceWarmUp.class);
+        beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(units);
+        registry.registerBeanDefinition("dataSourceWarmUp", beanDefinition);
     }
 
     private void registerDataSource(@NonNull BeanDefinitionRegistry registry,
@@ -167,12 +305,125 @@ public class DataSourceBeansBuilder
         registry.registerBeanDefinition(unitName + "SqlDataSourceScriptDatabaseInitializer", beanDefinition);
     }
 
+    private void registerBatchWriter(@NonNull BeanDefinitionRegistry registry, @NonNull String unitName,
+            boolean primary) {
+        if (!ClassUtils.isPresent(SPRING_DATA_JDBC_CLASS, getClass().getClassLoader())) {
+            return;
+        }
+        Binder binder = Binder.get(environment);
+        BatchWriterProperties properties = binder
+                .bind("spring.datasources." + unitName + ".batch-writer", Bindable.of(BatchWriterProperties.class))
+                .orElseGet(BatchWriterProperties::new);
+
+        GenericBeanDefinition beanDefinition = new GenericBeanDefinition();
+        beanDefinition.setBeanClass(BatchWriter.class);
+        beanDefinition.setPrimary(primary);
+        beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(unitName);
+        beanDefinition.getConstructorArgumentValues().addGenericArgumentValue(properties);
+        registry.registerBeanDefinition(unitName + "BatchWriter", beanDefinition);
+    }
+
     public DataSourceProperties dataSourceProperties(String name) {
         return dataSources.get(name);
     }
 
     public DataSource dataSource(String unit) {
+        boolean lazy = Binder.get(environment).bind("spring.datasources." + unit + ".lazy", Boolean.class)
+                .orElse(false);
+        return lazy ? new LazyInitDataSource(unit, () -> createUnitDataSource(unit)) : createUnitDataSource(unit);
+    }
+
+    private DataSource createUnitDataSource(String unit) {
+        String key = "spring.datasources." + unit;
+        DataSource dataSource = createDataSource(this.dataSources.get(unit), key);
+        List<DataSource> replicas = createReplicas(unit);
+        if (replicas.isEmpty())
+            return dataSource;
+
+        ReplicaRoutingProperties routing = Binder.get(environment)
+                .bind(key + ".replica-routing", Bindable.of(ReplicaRoutingProperties.class))
+                .orElseGet(ReplicaRoutingProperties::new);
+        LOGGER.info("Routing read only transactions of {}{} to {} replicas.", unit, DATASOURCE_PREFIX,
+                replicas.size());
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(dataSource, replicas, routing);
+        // instrumented behind the proxy, where the connections are really fetched
+        return new RoutingConnectionProxy(instrumented(unit, routingDataSource), routingDataSource);
+    }
+
+    private boolean hasReplicas(String unit) {
+        return Binder.get(environment)
+                .bind("spring.datasources." + unit + ".replicas", Bindable.listOf(DataSourceProperties.class))
+                .map(replicas -> !replicas.isEmpty()).orElse(false);
+    }
+
+    /**
+     * Returns the datasource the transaction manager and the templates of a unit
+     * use: the datasource of the unit, instrumented unless it has replicas,
+     * instrumented behind their routing already.
+     */
+    private DataSource clientDataSource(String unit) {
+        DataSource dataSource = this.applicationContext.getBean(unit + DATASOURCE_PREFIX, DataSource.class);
+        if (hasReplicas(unit)) {
+            return dataSource;
+        }
+        return clientDataSources.computeIfAbsent(unit, key -> instrumented(key, dataSource));
+    }
+
+    /**
+     * Wraps the datasource of a unit in its {@link UnitBulkhead}, its
+     * {@link StatementProfiler} and its pool metrics, those enabled.
+     */
+    private DataSource instrumented(String unit, DataSource dataSource) {
+        String bulkhead = unit + "Bulkhead";
+        if (this.applicationContext.containsBean(bulkhead)) {
+            dataSource = new BulkheadDataSource(dataSource,
+                    this.applicationContext.getBean(bulkhead, UnitBulkhead.class));
+        }
+        String profiler = unit + "StatementProfiler";
+        if (this.applicationContext.containsBean(profiler)) {
+            dataSource = new ProfilingDataSource(dataSource,
+                    this.applicationContext.getBean(profiler, StatementProfiler.class));
+        }
+        return metered(unit, dataSource);
+    }
+
+    private DataSource metered(String unit, DataSource dataSource) {
+        if (!ClassUtils.isPresent(MICROMETER_CLASS, getClass().getClassLoader())) {
+            return dataSource;
+        }
         DataSourceProperties properties = this.dataSources.get(unit);
+        Class<?> type = properties.getType() != null ? properties.getType()
+                : DataSourceBuilder.findType(getClass().getClassLoader());
+        String pool = type == null ? null : DATASOURCE_POOLS.get(type.getName());
+        return MeteredDataSource.create(applicationContext, dataSource, unit, pool == null ? "unknown" : pool);
+    }
+
+    /**
+     * Creates the datasources of {@code spring.datasources.<unit>.replicas},
+     * which take the properties of the unit, pool settings included, that they
+     * do not declare themselves.
+     */
+    private List<DataSource> createReplicas(String unit) {
+        String key = "spring.datasources." + unit;
+        Binder binder = Binder.get(environment);
+        int count = binder.bind(key + ".replicas", Bindable.listOf(DataSourceProperties.class))
+                .map(List::size).orElse(0);
+        List<DataSource> replicas = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            String replicaKey = key + ".replicas[" + i + "]";
+            DataSourceProperties properties = new DataSourceProperties();
+            binder.bind(key, Bindable.ofInstance(properties));
+            binder.bind(replicaKey, Bindable.ofInstance(properties));
+            replicas.add(createDataSource(properties, key, replicaKey));
+        }
+        return replicas;
+    }
+
+    /**
+     * Creates the datasource of {@code properties}, binding the pool settings of
+     * each key in turn.
+     */
+    private DataSource createDataSource(DataSourceProperties properties, String... keys) {
         DataSource dataSource = properties.initializeDataSourceBuilder().build();
         String type = properties.getType() != null ? properties.getType().getName() : null;
         if (type == null)
@@ -181,13 +432,34 @@ public class DataSourceBeansBuilder
         if (cfg == null)
             return dataSource;
         Binder binder = Binder.get(environment);
-        String key = "spring.datasources." + unit + "." + cfg;
-        BindResult<Map<String, String>> cpProperties = binder.bind(key,
-                Bindable.mapOf(String.class, String.class));
-        if (!cpProperties.isBound() || cpProperties.get().size() == 0)
-            return dataSource;
+        for (String key : keys) {
+            BindResult<Map<String, String>> cpProperties = binder.bind(key + "." + cfg,
+                    Bindable.mapOf(String.class, String.class));
+            if (cpProperties.isBound() && cpProperties.get().size() > 0)
+                dataSource = binder.bind(key + "." + cfg, Bindable.ofInstance(dataSource)).get();
+        }
+        return dataSource;
+    }
 
-        return binder.bind(key, Bindable.ofInstance(dataSource)).get();
+    /**
+     * Creates the {@link MultiUnitJdbcTemplate} of all units, configured by
+     * {@code spring.multi-unit-jdbc}.
+     */
+    public MultiUnitJdbcTemplate multiUnitJdbcTemplate() {
+        Map<String, NamedParameterJdbcOperations> operations = new LinkedHashMap<>();
+        Map<String, PlatformTransactionManager> transactionManagers = new LinkedHashMap<>();
+        for (String unit : dataSources.keySet()) {
+            operations.put(unit, this.applicationContext.getBean(unit + "NamedParameterJdbcTemplate",
+                    NamedParameterJdbcOperations.class));
+            if (this.applicationContext.containsBean(unit + "TransactionManager")) {
+                transactionManagers.put(unit, this.applicationContext.getBean(unit + "TransactionManager",
+                        PlatformTransactionManager.class));
+            }
+        }
+        MultiUnitJdbcProperties properties = Binder.get(environment)
+                .bind("spring.multi-unit-jdbc", Bindable.of(MultiUnitJdbcProperties.class))
+                .orElseGet(MultiUnitJdbcProperties::new);
+        return new MultiUnitJdbcTemplate(operations, transactionManagers, properties);
     }
 
     public TransactionTemplate transactionTemplate(String unit) {
@@ -202,7 +474,7 @@ public class DataSourceBeansBuilder
 
     public PlatformTransactionManager transactionManager(String unit,
             ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
-        DataSource dataSource = this.applicationContext.getBean(unit + DATASOURCE_PREFIX, DataSource.class);
+        DataSource dataSource = clientDataSource(unit);
         DataSourceTransactionManager transactionManager = createTransactionManager(environment, dataSource);
         transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
         return transactionManager;
@@ -222,8 +494,27 @@ public class DataSourceBeansBuilder
     }
 
     public NamedParameterJdbcTemplate namedParameterJdbcTemplate(String unit) {
-        DataSource dataSource = this.applicationContext.getBean(unit + DATASOURCE_PREFIX, DataSource.class);
-        return new NamedParameterJdbcTemplate(dataSource);
+        DataSource dataSource = clientDataSource(unit);
+        JdbcTemplate jdbcTemplate = ClassUtils.isPresent(MICROMETER_CLASS, getClass().getClassLoader())
+                ? MeteredJdbcTemplate.create(applicationContext, dataSource, unit)
+                : new JdbcTemplate(dataSource);
+        configureJdbcTemplate(jdbcTemplate, unit);
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Applies {@code spring.datasources.<unit>.template}, the per unit
+     * counterpart of {@code spring.jdbc.template}.
+     */
+    private void configureJdbcTemplate(JdbcTemplate jdbcTemplate, String unit) {
+        JdbcProperties.Template template = Binder.get(environment)
+                .bind("spring.datasources." + unit + ".template", Bindable.of(JdbcProperties.Template.class))
+                .orElseGet(JdbcProperties.Template::new);
+        jdbcTemplate.setFetchSize(template.getFetchSize());
+        jdbcTemplate.setMaxRows(template.getMaxRows());
+        if (template.getQueryTimeout() != null) {
+            jdbcTemplate.setQueryTimeout((int) template.getQueryTimeout().getSeconds());
+        }
     }
 
     public SqlDataSourceScriptDatabaseInitializer sqlDataSourceScriptDatabaseInitializer(String unit,
@@ -235,7 +526,7 @@ public class DataSourceBeansBuilder
 
     private static DataSource determineDataSource(DataSource dataSource, String username, String password) {
         if (StringUtils.hasText(username) && StringUtils.hasText(password)) {
-            return DataSourceBuilder.derivedFrom(dataSource)
+            return DataSourceBuilder.derivedFrom(primaryOf(dataSource))
                     .username(username)
                     .password(password)
                     .type(SimpleDriverDataSource.class)
@@ -244,6 +535,25 @@ public class DataSourceBeansBuilder
         return dataSource;
     }
 
+    /**
+     * Returns the primary behind the replica routing of a unit, the datasource
+     * itself for units without replicas. The datasource of a lazy unit is
+     * created.
+     */
+    private static DataSource primaryOf(DataSource dataSource) {
+        if (dataSource instanceof LazyInitDataSource) {
+            return primaryOf(((LazyInitDataSource) dataSource).getRequiredTargetDataSource());
+        }
+        try {
+            if (dataSource.isWrapperFor(ReplicaRoutingDataSource.class)) {
+                return dataSource.unwrap(ReplicaRoutingDataSource.class).getTargetDataSource();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Can not unwrap the replica routing of " + dataSource, e);
+        }
+        return dataSource;
+    }
+
     @Override
     public void setEnvironment(@NonNull Environment environment) {
         this.environment = environment;
@@ -320,6 +630,28 @@ public class DataSourceBeansBuilder
         return null;
     }
 
+    /**
+     * Fetches the connection of a transaction once its read only flag is known,
+     * closing the datasources of the routing with the bean.
+     */
+    private static final class RoutingConnectionProxy extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+        private final ReplicaRoutingDataSource routingDataSource;
+
+        private RoutingConnectionProxy(DataSource routing, ReplicaRoutingDataSource routingDataSource) {
+            super(routing);
+            this.routingDataSource = routingDataSource;
+        }
+
+        @Override
+        public void close() {
+            routingDataSource.close();
+        }
+    }
+
+    private static final String MICROMETER_CLASS = "io.micrometer.core.instrument.MeterRegistry";
+    private static final String SPRING_DATA_JDBC_CLASS = "org.springframework.data.jdbc.core.JdbcAggregateOperations";
+
     static final String REMOVED_DATABASE_INITIALIZER = "willRemovedTempDataSourceScriptDatabaseInitializer";
     static final String REMOVED_JDBC_TEMPLATE = "willRemovedTempJdbcTemplate";
     static final String REMOVED_NAMEDJDBC_TEMPLATE = "willRemovedTempNamedParameterJdbcTemplate";
@@ -0,0 +1,179 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * Warms up the pools of the units declared with
+ * {@code spring.datasources.<unit>.warm-up.enabled} in parallel, once the
+ * singletons are created, so that startup waits for the slowest database
+ * rather than for all of them in turn.
+ * <p>
+ * The warm-up of a unit borrows as many connections as the pool keeps idle,
+ * validates one of them and returns them. Units failing or exceeding their
+ * timeout fail the startup with a report of all of them. The replicas of a unit
+ * are warmed up too, but only logged if they fail, as reads fall back to the
+ * primary.
+ */
+final class DataSourceWarmUp implements SmartInitializingSingleton, BeanFactoryAware {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataSourceWarmUp.class);
+
+    /**
+     * The minimum idle properties of Hikari, DBCP2, Tomcat and Druid, C3P0 and
+     * Oracle UCP.
+     */
+    private static final String[] MIN_IDLE_PROPERTIES = { "minimumIdle", "minIdle", "minPoolSize" };
+
+    private final Map<String, WarmUpProperties> units;
+    private BeanFactory beanFactory;
+
+    DataSourceWarmUp(Map<String, WarmUpProperties> units) {
+        this.units = units;
+    }
+
+    @Override
+    public void setBeanFactory(@NonNull BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(units.size(),
+                daemonThreadFactory("datasource-warm-up-"));
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, WarmUpProperties> unit : units.entrySet()) {
+                DataSource dataSource = beanFactory.getBean(unit.getKey() + "DataSource", DataSource.class);
+                futures.put(unit.getKey(), executor.submit(() -> {
+                    warmUp(unit.getKey(), dataSource, unit.getValue());
+                    return null;
+                }));
+            }
+
+            List<String> failures = new ArrayList<>();
+            for (Map.Entry<String, Future<?>> future : futures.entrySet()) {
+                String unit = future.getKey();
+                long timeout = units.get(unit).getTimeout().toNanos();
+                try {
+                    future.getValue().get(Math.max(0, start + timeout - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    future.getValue().cancel(true);
+                    failures.add(unit + ": not warmed up within " + units.get(unit).getTimeout().toMillis() + " ms");
+                } catch (ExecutionException e) {
+                    failures.add(unit + ": " + e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BeanInitializationException("Interrupted while warming up the datasources", e);
+                }
+            }
+            if (!failures.isEmpty()) {
+                throw new BeanInitializationException(
+                        "Warm-up of datasources failed:\n  " + String.join("\n  ", failures));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        LOGGER.info("Warmed up the datasources of {} in {} ms.", units.keySet(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static void warmUp(String unit, DataSource dataSource, WarmUpProperties properties) throws SQLException {
+        DataSource target = dataSource;
+        if (dataSource.isWrapperFor(ReplicaRoutingDataSource.class)) {
+            ReplicaRoutingDataSource routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+            List<DataSource> replicas = routing.getReplicas();
+            for (int i = 0; i < replicas.size(); ++i) {
+                try {
+                    warmUpPool(replicas.get(i), properties);
+                } catch (SQLException | RuntimeException e) {
+                    LOGGER.warn("Warm-up of replica {} of {} failed: {}", i, unit, e.toString());
+                }
+            }
+            target = routing.getTargetDataSource();
+        }
+        warmUpPool(target, properties);
+    }
+
+    private static void warmUpPool(DataSource pool, WarmUpProperties properties) throws SQLException {
+        int timeout = (int) Math.max(1, properties.getTimeout().getSeconds());
+        List<Connection> connections = new ArrayList<>();
+        try {
+            connections.add(pool.getConnection());
+            validate(connections.get(0), properties.getValidationQuery(), timeout);
+            for (int i = 1; i < getMinIdle(pool); ++i) {
+                connections.add(pool.getConnection());
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    private static void validate(Connection connection, @Nullable String validationQuery, int timeout)
+            throws SQLException {
+        if (!StringUtils.hasText(validationQuery)) {
+            if (!connection.isValid(timeout)) {
+                throw new SQLException("Connection is not valid");
+            }
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(timeout);
+            statement.execute(validationQuery);
+        }
+    }
+
+    /**
+     * Returns the number of connections the pool keeps idle, {@literal 1} if it
+     * is unknown.
+     */
+    private static int getMinIdle(DataSource pool) {
+        BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(pool);
+        for (String property : MIN_IDLE_PROPERTIES) {
+            if (beanWrapper.isReadableProperty(property)) {
+                Object value = beanWrapper.getPropertyValue(property);
+                if (value instanceof Number && ((Number) value).intValue() > 0) {
+                    return ((Number) value).intValue();
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static CustomizableThreadFactory daemonThreadFactory(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        // a connection attempt past its timeout must not keep the JVM alive
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
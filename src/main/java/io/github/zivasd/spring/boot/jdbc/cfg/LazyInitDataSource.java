@@ -0,0 +1,139 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link DataSource} creating its target, the connection pool of a unit
+ * declared with {@code spring.datasources.<unit>.lazy}, on the first request
+ * for a connection.
+ * <p>
+ * Until then {@link #unwrap(Class)} and {@link #isWrapperFor(Class)} only know
+ * this datasource, so that reading the pool metadata does not create the pool
+ * either.
+ */
+public class LazyInitDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyInitDataSource.class);
+
+    private final String unit;
+    private final Supplier<DataSource> factory;
+    @Nullable
+    private volatile DataSource target;
+    private boolean closed;
+
+    public LazyInitDataSource(String unit, Supplier<DataSource> factory) {
+        Assert.notNull(unit, "Unit must not be null");
+        Assert.notNull(factory, "Factory must not be null");
+        this.unit = unit;
+        this.factory = factory;
+    }
+
+    public boolean isInitialized() {
+        return target != null;
+    }
+
+    /**
+     * Returns the created datasource, or {@literal null} if no connection was
+     * requested yet.
+     */
+    @Nullable
+    public DataSource getTargetDataSource() {
+        return target;
+    }
+
+    /**
+     * Returns the datasource, created if no connection was requested yet.
+     */
+    DataSource getRequiredTargetDataSource() {
+        try {
+            return obtainTargetDataSource();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection() throws SQLException {
+        return obtainTargetDataSource().getConnection();
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection(@NonNull String username, @NonNull String password) throws SQLException {
+        return obtainTargetDataSource().getConnection(username, password);
+    }
+
+    private DataSource obtainTargetDataSource() throws SQLException {
+        DataSource current = target;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("DataSource of unit " + unit + " is closed");
+            }
+            if (target == null) {
+                LOGGER.info("Creating DataSource of unit {} on first use.", unit);
+                target = factory.get();
+            }
+            return target;
+        }
+    }
+
+    @Override
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(@NonNull Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        DataSource current = target;
+        if (current == null) {
+            throw new SQLException("DataSource of unit " + unit + " is not created yet, can not unwrap to ["
+                    + iface.getName() + "]");
+        }
+        return current.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(@NonNull Class<?> iface) throws SQLException {
+        DataSource current = target;
+        return iface.isInstance(this) || (current != null && current.isWrapperFor(iface));
+    }
+
+    /**
+     * Closes the created datasource, if it is closeable. A failure to close it
+     * is logged.
+     */
+    @Override
+    public void close() {
+        DataSource current;
+        synchronized (this) {
+            closed = true;
+            current = target;
+        }
+        if (!(current instanceof AutoCloseable)) {
+            return;
+        }
+        try {
+            ((AutoCloseable) current).close();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            LOGGER.warn("Could not close the DataSource of unit {}.", unit, e);
+        }
+    }
+}
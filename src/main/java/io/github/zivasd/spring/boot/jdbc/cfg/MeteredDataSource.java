@@ -0,0 +1,266 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.core.InfrastructureProxy;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.lang.NonNull;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * A {@link DataSource} reporting the connection pool of a unit the same way
+ * whatever its type, tagged with {@code unit} and {@code pool} ({@code hikari},
+ * {@code c3p0}, {@code oracle}, {@code druid}, {@code tomcat}, {@code dbcp2} or
+ * {@code unknown}):
+ * <ul>
+ * <li>{@code multi.jdbc.pool.active}, the connections borrowed and not closed
+ * yet,</li>
+ * <li>{@code multi.jdbc.pool.pending}, the threads waiting for a
+ * connection,</li>
+ * <li>{@code multi.jdbc.pool.idle} and {@code multi.jdbc.pool.max}, read from
+ * the pools, replicas included, {@literal NaN} until a lazy unit is
+ * created,</li>
+ * <li>the timers {@code multi.jdbc.pool.acquire} and
+ * {@code multi.jdbc.pool.usage}, the time to get a connection and the time it
+ * is held, with percentile histograms.</li>
+ * </ul>
+ * The beans of the units keep their own type: the datasource is given to the
+ * transaction manager and the templates of the unit, and being an
+ * {@link InfrastructureProxy} it shares the transactions of the pool.
+ */
+final class MeteredDataSource extends DelegatingDataSource implements InfrastructureProxy {
+
+    static final String PREFIX = "multi.jdbc.pool";
+
+    /**
+     * The idle connections of Hikari, DBCP2 and Tomcat, Druid, C3P0 and Oracle
+     * UCP.
+     */
+    private static final String[] IDLE_PROPERTIES = { "hikariPoolMXBean.idleConnections", "numIdle", "poolingCount",
+            "numIdleConnectionsDefaultUser", "availableConnectionsCount" };
+
+    /**
+     * The maximum pool size of Hikari, DBCP2, Tomcat and Druid, C3P0 and Oracle
+     * UCP.
+     */
+    private static final String[] MAX_PROPERTIES = { "maximumPoolSize", "maxTotal", "maxActive", "maxPoolSize" };
+
+    private final MeterRegistry registry;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Timer acquireTimer;
+    private final Timer usageTimer;
+
+    private MeteredDataSource(DataSource dataSource, MeterRegistry registry, String unit, String pool) {
+        super(dataSource);
+        this.registry = registry;
+        Tags tags = Tags.of("unit", unit, "pool", pool);
+        Gauge.builder(PREFIX + ".active", active, AtomicInteger::get).tags(tags)
+                .description("Connections borrowed from the pool").register(registry);
+        Gauge.builder(PREFIX + ".pending", pending, AtomicInteger::get).tags(tags)
+                .description("Threads waiting for a connection").register(registry);
+        Gauge.builder(PREFIX + ".idle", this, source -> source.sum(IDLE_PROPERTIES)).tags(tags)
+                .description("Idle connections of the pool").register(registry);
+        Gauge.builder(PREFIX + ".max", this, source -> source.sum(MAX_PROPERTIES)).tags(tags)
+                .description("Maximum size of the pool").register(registry);
+        this.acquireTimer = Timer.builder(PREFIX + ".acquire").tags(tags).publishPercentileHistogram()
+                .description("Time to get a connection from the pool").register(registry);
+        this.usageTimer = Timer.builder(PREFIX + ".usage").tags(tags).publishPercentileHistogram()
+                .description("Time a connection is held before being closed").register(registry);
+    }
+
+    /**
+     * Creates a metered datasource if the bean factory has a
+     * {@link MeterRegistry}, returns {@code dataSource} otherwise.
+     */
+    static DataSource create(BeanFactory beanFactory, DataSource dataSource, String unit, String pool) {
+        MeterRegistry registry = beanFactory.getBeanProvider(MeterRegistry.class).getIfAvailable();
+        return registry == null ? dataSource : new MeteredDataSource(dataSource, registry, unit, pool);
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection() throws SQLException {
+        return meter(() -> obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection(@NonNull String username, @NonNull String password) throws SQLException {
+        return meter(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    @Override
+    @NonNull
+    public Object getWrappedObject() {
+        DataSource target = obtainTargetDataSource();
+        return target instanceof InfrastructureProxy ? ((InfrastructureProxy) target).getWrappedObject() : target;
+    }
+
+    private Connection meter(ConnectionSupplier supplier) throws SQLException {
+        long start = registry.config().clock().monotonicTime();
+        pending.incrementAndGet();
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } finally {
+            pending.decrementAndGet();
+        }
+        long acquired = registry.config().clock().monotonicTime();
+        acquireTimer.record(acquired - start, TimeUnit.NANOSECONDS);
+        active.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ConnectionProxy.class },
+                new MeteredConnection(connection, acquired));
+    }
+
+    /**
+     * Returns the sum of the first readable of {@code properties} over the pools
+     * of the unit, {@literal NaN} if none is readable.
+     */
+    private double sum(String[] properties) {
+        double sum = Double.NaN;
+        for (DataSource pool : pools(getTargetDataSource(), new ArrayList<>())) {
+            BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(pool);
+            for (String property : properties) {
+                Object value = readProperty(beanWrapper, property);
+                if (value instanceof Number) {
+                    sum = (Double.isNaN(sum) ? 0 : sum) + ((Number) value).doubleValue();
+                    break;
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static Object readProperty(BeanWrapper beanWrapper, String property) {
+        try {
+            return beanWrapper.isReadableProperty(property) ? beanWrapper.getPropertyValue(property) : null;
+        } catch (BeansException e) {
+            // pools not started yet, C3P0 failing to read its statistics
+            return null;
+        }
+    }
+
+    /**
+     * Collects the pools behind the lazy initialization and the replica routing
+     * of a unit, without creating a lazy unit.
+     */
+    private static List<DataSource> pools(DataSource dataSource, List<DataSource> pools) {
+        if (dataSource instanceof LazyInitDataSource) {
+            DataSource target = ((LazyInitDataSource) dataSource).getTargetDataSource();
+            return target == null ? pools : pools(target, pools);
+        }
+        if (dataSource instanceof ReplicaRoutingDataSource) {
+            for (DataSource replica : ((ReplicaRoutingDataSource) dataSource).getReplicas()) {
+                pools(replica, pools);
+            }
+        }
+        if (dataSource instanceof DelegatingDataSource) {
+            DataSource target = ((DelegatingDataSource) dataSource).getTargetDataSource();
+            return target == null ? pools : pools(target, pools);
+        }
+        pools.add(dataSource);
+        return pools;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+
+    /**
+     * Records the usage of the connection when it is closed the first time. A
+     * {@link ConnectionProxy}, so that the transactions of the unit recognize the
+     * pooled connection behind it.
+     */
+    private final class MeteredConnection implements InvocationHandler {
+
+        private final Connection target;
+        private final long acquired;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private MeteredConnection(Connection target, long acquired) {
+            this.target = target;
+            this.acquired = acquired;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Metered " + target;
+            case "getTargetConnection":
+                return target;
+            case "close":
+                if (closed.compareAndSet(false, true)) {
+                    active.decrementAndGet();
+                    usageTimer.record(registry.config().clock().monotonicTime() - acquired, TimeUnit.NANOSECONDS);
+                }
+                break;
+            default:
+                break;
+            }
+            Object result = call(target, method, args);
+            if (result instanceof Statement) {
+                return Proxy.newProxyInstance(MeteredDataSource.class.getClassLoader(),
+                        new Class<?>[] { method.getReturnType() },
+                        (statement, statementMethod, statementArgs) -> invokeStatement(proxy, statement, result,
+                                statementMethod, statementArgs));
+            }
+            return result;
+        }
+
+        /**
+         * Returns the metered connection from the statements, as
+         * {@link org.springframework.jdbc.core.JdbcTemplate#queryForStream} releases
+         * the connection of its statement.
+         */
+        private Object invokeStatement(Object connection, Object proxy, Object target, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "getConnection":
+                return connection;
+            default:
+                return call(target, method, args);
+            }
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * A {@link JdbcTemplate} timing its operations in the timer
+ * {@code multi.jdbc.template}, tagged with {@code unit}, {@code operation}
+ * ({@code query}, {@code update}, {@code batch}, {@code execute} or
+ * {@code call}) and {@code outcome}.
+ * <p>
+ * Every method through which the template reaches the database is overridden.
+ * Only the outermost of nested calls of a template on a thread is timed, so an
+ * operation delegating to another one is recorded once. Streams returned by
+ * {@code queryForStream} are not timed as they outlive the call.
+ */
+class MeteredJdbcTemplate extends JdbcTemplate {
+
+    static final String TIMER = "multi.jdbc.template";
+
+    private final MeterRegistry registry;
+    private final String unit;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    /** per template, so that a call of one unit nested in a call of another is timed too */
+    private final ThreadLocal<int[]> nesting = ThreadLocal.withInitial(() -> new int[1]);
+
+    MeteredJdbcTemplate(DataSource dataSource, MeterRegistry registry, String unit) {
+        super(dataSource);
+        this.registry = registry;
+        this.unit = unit;
+    }
+
+    /**
+     * Creates a metered template if the bean factory has a
+     * {@link MeterRegistry}, a plain one otherwise.
+     */
+    static JdbcTemplate create(BeanFactory beanFactory, DataSource dataSource, String unit) {
+        MeterRegistry registry = beanFactory.getBeanProvider(MeterRegistry.class).getIfAvailable();
+        return registry == null ? new JdbcTemplate(dataSource) : new MeteredJdbcTemplate(dataSource, registry, unit);
+    }
+
+    @Override
+    public <T> T execute(@NonNull ConnectionCallback<T> action) {
+        return record("execute", () -> super.execute(action));
+    }
+
+    @Override
+    public <T> T execute(@NonNull StatementCallback<T> action) {
+        return record("execute", () -> super.execute(action));
+    }
+
+    @Override
+    public void execute(@NonNull String sql) {
+        record("execute", () -> {
+            super.execute(sql);
+            return null;
+        });
+    }
+
+    @Override
+    public <T> T query(@NonNull String sql, @NonNull ResultSetExtractor<T> rse) {
+        return record("query", () -> super.query(sql, rse));
+    }
+
+    @Override
+    public int update(@NonNull String sql) {
+        return record("update", () -> super.update(sql));
+    }
+
+    @Override
+    public int[] batchUpdate(@NonNull String... sql) {
+        return record("batch", () -> super.batchUpdate(sql));
+    }
+
+    @Override
+    public <T> T execute(@NonNull PreparedStatementCreator psc, @NonNull PreparedStatementCallback<T> action) {
+        return record("execute", () -> super.execute(psc, action));
+    }
+
+    @Override
+    public <T> T execute(@NonNull String sql, @NonNull PreparedStatementCallback<T> action) {
+        return record("execute", () -> super.execute(sql, action));
+    }
+
+    @Override
+    public <T> T query(@NonNull PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss,
+            @NonNull ResultSetExtractor<T> rse) {
+        return record("query", () -> super.query(psc, pss, rse));
+    }
+
+    @Override
+    protected int update(@NonNull PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss) {
+        return record("update", () -> super.update(psc, pss));
+    }
+
+    @Override
+    public int update(@NonNull PreparedStatementCreator psc, @NonNull KeyHolder generatedKeyHolder) {
+        return record("update", () -> super.update(psc, generatedKeyHolder));
+    }
+
+    @Override
+    public int[] batchUpdate(@NonNull String sql, @NonNull BatchPreparedStatementSetter pss) {
+        return record("batch", () -> super.batchUpdate(sql, pss));
+    }
+
+    @Override
+    public <T> int[][] batchUpdate(@NonNull String sql, @NonNull Collection<T> batchArgs, int batchSize,
+            @NonNull ParameterizedPreparedStatementSetter<T> pss) {
+        return record("batch", () -> super.batchUpdate(sql, batchArgs, batchSize, pss));
+    }
+
+    @Override
+    public <T> T execute(@NonNull CallableStatementCreator csc, @NonNull CallableStatementCallback<T> action) {
+        return record("call", () -> super.execute(csc, action));
+    }
+
+    @Override
+    public <T> T execute(@NonNull String callString, @NonNull CallableStatementCallback<T> action) {
+        return record("call", () -> super.execute(callString, action));
+    }
+
+    private <T> T record(String operation, Supplier<T> call) {
+        int[] depth = nesting.get();
+        if (depth[0] > 0) {
+            return call.get();
+        }
+        ++depth[0];
+        long start = registry.config().clock().monotonicTime();
+        String outcome = "failure";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            --depth[0];
+            timer(operation, outcome).record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + '/' + outcome,
+                key -> Timer.builder(TIMER).description("Latency of the JdbcTemplate operations")
+                        .tag("unit", unit).tag("operation", operation).tag("outcome", outcome)
+                        .register(registry));
+    }
+}
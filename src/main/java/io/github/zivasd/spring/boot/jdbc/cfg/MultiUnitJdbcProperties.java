@@ -0,0 +1,55 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.time.Duration;
+
+import org.springframework.util.Assert;
+
+/**
+ * Settings of the {@link MultiUnitJdbcTemplate}, bound from
+ * {@code spring.multi-unit-jdbc}.
+ */
+public class MultiUnitJdbcProperties {
+
+    private int maxThreads;
+    private Duration timeout = Duration.ofSeconds(30);
+    private PartialResultPolicy partialResults = PartialResultPolicy.FAIL;
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * @param maxThreads the number of units queried at the same time, must not
+     *                   be negative. {@literal 0} queries all units at once.
+     */
+    public void setMaxThreads(int maxThreads) {
+        Assert.isTrue(maxThreads >= 0, "Max threads must not be negative");
+        this.maxThreads = maxThreads;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout the time a unit may take to answer a query that does not
+     *                set its own timeout, must be positive.
+     */
+    public void setTimeout(Duration timeout) {
+        Assert.isTrue(timeout != null && !timeout.isNegative() && !timeout.isZero(), "Timeout must be positive");
+        this.timeout = timeout;
+    }
+
+    public PartialResultPolicy getPartialResults() {
+        return partialResults;
+    }
+
+    /**
+     * @param partialResults the policy of the queries that do not set their
+     *                       own, must not be {@literal null}.
+     */
+    public void setPartialResults(PartialResultPolicy partialResults) {
+        Assert.notNull(partialResults, "PartialResultPolicy must not be null");
+        this.partialResults = partialResults;
+    }
+}
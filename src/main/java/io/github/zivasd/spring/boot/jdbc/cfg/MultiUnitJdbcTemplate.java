@@ -0,0 +1,235 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Runs one statement on several datasource units at the same time and merges
+ * their rows, for units sharing a schema. Registered as
+ * {@code multiUnitJdbcTemplate} over all units of {@code spring.datasources}.
+ * <p>
+ * The units are queried on a pool of at most
+ * {@link MultiUnitJdbcProperties#getMaxThreads()} threads, each in a read
+ * only transaction of its unit whose timeout bounds the statements, so that
+ * replicas answer for the units that have some. A unit not answering within
+ * its timeout is given up, the query then fails or returns the rows of the
+ * other units according to its {@link PartialResultPolicy}. The timeout of a
+ * unit runs from the moment a thread starts to query it, the time it waits for
+ * a thread when there are more units than threads is not counted.
+ */
+public class MultiUnitJdbcTemplate implements DisposableBean {
+
+    private final Map<String, NamedParameterJdbcOperations> units;
+    private final Map<String, PlatformTransactionManager> transactionManagers;
+    private final MultiUnitJdbcProperties properties;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param units               the operations of each unit, must not be
+     *                            empty.
+     * @param transactionManagers the transaction managers of the units, the
+     *                            units without one are queried outside of a
+     *                            transaction.
+     * @param properties          must not be {@literal null}.
+     */
+    public MultiUnitJdbcTemplate(Map<String, NamedParameterJdbcOperations> units,
+            Map<String, PlatformTransactionManager> transactionManagers, MultiUnitJdbcProperties properties) {
+        Assert.notEmpty(units, "Units must not be empty");
+        Assert.notNull(transactionManagers, "TransactionManagers must not be null");
+        Assert.notNull(properties, "MultiUnitJdbcProperties must not be null");
+        this.units = Collections.unmodifiableMap(new LinkedHashMap<>(units));
+        this.transactionManagers = new LinkedHashMap<>(transactionManagers);
+        this.properties = properties;
+
+        int threads = properties.getMaxThreads() > 0 ? properties.getMaxThreads() : units.size();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("multi-unit-jdbc-");
+        // a statement past its timeout must not keep the JVM alive
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public Set<String> getUnits() {
+        return units.keySet();
+    }
+
+    /**
+     * Runs {@code sql} on all units with the default settings and returns the
+     * rows of the units in the order of the units.
+     */
+    public <T> List<T> query(String sql, Map<String, ?> parameters, RowMapper<T> rowMapper) {
+        return query(MultiUnitQuery.of(sql, rowMapper).parameters(parameters)).getRows();
+    }
+
+    public <T> MultiUnitResult<T> query(MultiUnitQuery<T> query) {
+        Assert.notNull(query, "MultiUnitQuery must not be null");
+        List<String> targets = query.getUnits().isEmpty() ? new ArrayList<>(units.keySet()) : query.getUnits();
+        for (String unit : targets) {
+            Assert.isTrue(units.containsKey(unit), () -> "Unknown datasource unit " + unit);
+        }
+
+        Map<String, UnitCall<T>> calls = new LinkedHashMap<>();
+        Map<String, Future<List<T>>> futures = new LinkedHashMap<>();
+        for (String unit : targets) {
+            Duration timeout = query.getTimeout(unit, properties.getTimeout());
+            UnitCall<T> call = new UnitCall<>(() -> queryUnit(unit, query, timeout));
+            calls.put(unit, call);
+            futures.put(unit, executor.submit(call));
+        }
+
+        Map<String, List<T>> rows = new LinkedHashMap<>();
+        Map<String, RuntimeException> failures = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Future<List<T>>> future : futures.entrySet()) {
+                String unit = future.getKey();
+                Duration timeout = query.getTimeout(unit, properties.getTimeout());
+                try {
+                    rows.put(unit, await(calls.get(unit), future.getValue(), timeout));
+                } catch (TimeoutException e) {
+                    future.getValue().cancel(true);
+                    failures.put(unit, new QueryTimeoutException(
+                            "Unit " + unit + " did not answer within " + timeout.toMillis() + " ms: " + query.getSql()));
+                } catch (ExecutionException e) {
+                    failures.put(unit, toRuntimeException(e.getCause()));
+                } catch (CancellationException e) {
+                    failures.put(unit, new DataAccessResourceFailureException(
+                            "Unit " + unit + " was not queried, the template is destroyed: " + query.getSql(), e));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.values().forEach(future -> future.cancel(true));
+            throw new DataAccessResourceFailureException("Interrupted while querying the units " + targets, e);
+        }
+
+        if (!failures.isEmpty()
+                && query.getPartialResults(properties.getPartialResults()) == PartialResultPolicy.FAIL) {
+            RuntimeException failure = null;
+            for (RuntimeException unitFailure : failures.values()) {
+                if (failure == null) {
+                    failure = unitFailure;
+                } else {
+                    failure.addSuppressed(unitFailure);
+                }
+            }
+            throw failure;
+        }
+        return merge(query, rows, failures);
+    }
+
+    /**
+     * Waits for the rows of a unit at most {@code timeout} after a thread
+     * started to query it.
+     */
+    private static <T> List<T> await(UnitCall<T> call, Future<List<T>> future, Duration timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        while (!call.started) {
+            try {
+                return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // still waiting for a thread, or started meanwhile
+            }
+        }
+        return future.get(Math.max(0, call.startedAt + timeout.toNanos() - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private <T> List<T> queryUnit(String unit, MultiUnitQuery<T> query, Duration timeout) {
+        NamedParameterJdbcOperations operations = units.get(unit);
+        ResultSetExtractor<List<T>> extractor = resultSet -> {
+            List<T> rows = new ArrayList<>();
+            RowMapper<T> rowMapper = query.getRowMapper();
+            while (rows.size() < query.getLimit() && resultSet.next()) {
+                rows.add(rowMapper.mapRow(resultSet, rows.size()));
+            }
+            return rows;
+        };
+        PlatformTransactionManager transactionManager = transactionManagers.get(unit);
+        if (transactionManager == null) {
+            return operations.query(query.getSql(), query.getParameters(), extractor);
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        // rounded up, the statements time out after the query gave up on the unit
+        transactionTemplate.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+        return transactionTemplate.execute(status -> operations.query(query.getSql(), query.getParameters(), extractor));
+    }
+
+    private static <T> MultiUnitResult<T> merge(MultiUnitQuery<T> query, Map<String, List<T>> rows,
+            Map<String, RuntimeException> failures) {
+        List<T> merged = new ArrayList<>();
+        Map<String, Integer> rowCounts = new LinkedHashMap<>();
+        for (Map.Entry<String, List<T>> unitRows : rows.entrySet()) {
+            merged.addAll(unitRows.getValue());
+            rowCounts.put(unitRows.getKey(), unitRows.getValue().size());
+        }
+        if (query.getOrder() != null) {
+            merged.sort(query.getOrder());
+        }
+        if (merged.size() > query.getLimit()) {
+            merged = new ArrayList<>(merged.subList(0, query.getLimit()));
+        }
+        return new MultiUnitResult<>(merged, rowCounts, failures);
+    }
+
+    private static RuntimeException toRuntimeException(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new UndeclaredThrowableException(cause);
+    }
+
+    @Override
+    public void destroy() {
+        for (Runnable queued : executor.shutdownNow()) {
+            // the queries waiting for these units fail rather than wait forever
+            ((Future<?>) queued).cancel(false);
+        }
+    }
+
+    /**
+     * The query of a unit, recording when a thread started it.
+     */
+    private static final class UnitCall<T> implements Callable<List<T>> {
+
+        private final Callable<List<T>> query;
+        private volatile long startedAt;
+        private volatile boolean started;
+
+        private UnitCall(Callable<List<T>> query) {
+            this.query = query;
+        }
+
+        @Override
+        public List<T> call() throws Exception {
+            startedAt = System.nanoTime();
+            started = true;
+            return query.call();
+        }
+    }
+}
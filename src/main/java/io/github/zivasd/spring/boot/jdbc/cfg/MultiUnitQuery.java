@@ -0,0 +1,165 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * A query run by a {@link MultiUnitJdbcTemplate} on several datasource units,
+ * with the settings of its run.
+ * <p>
+ * With a {@link #limit(int) limit} every unit reads at most that many rows. If
+ * the rows are {@link #orderBy(Comparator) ordered} too, the statement must
+ * return them in the same order for the merged rows to be the first ones of
+ * all units.
+ */
+public class MultiUnitQuery<T> {
+
+    private final String sql;
+    private final RowMapper<T> rowMapper;
+    private SqlParameterSource parameters = EmptySqlParameterSource.INSTANCE;
+    private List<String> units = Collections.emptyList();
+    @Nullable
+    private Duration timeout;
+    private final Map<String, Duration> unitTimeouts = new HashMap<>();
+    @Nullable
+    private PartialResultPolicy partialResults;
+    @Nullable
+    private Comparator<? super T> order;
+    private int limit = Integer.MAX_VALUE;
+
+    private MultiUnitQuery(String sql, RowMapper<T> rowMapper) {
+        Assert.hasText(sql, "SQL must not be empty");
+        Assert.notNull(rowMapper, "RowMapper must not be null");
+        this.sql = sql;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * Creates a query of all units of the template.
+     */
+    public static <T> MultiUnitQuery<T> of(String sql, RowMapper<T> rowMapper) {
+        return new MultiUnitQuery<>(sql, rowMapper);
+    }
+
+    /**
+     * @param units the units to query instead of all units of the template,
+     *              must not be empty.
+     */
+    public MultiUnitQuery<T> units(String... units) {
+        Assert.notEmpty(units, "Units must not be empty");
+        this.units = new ArrayList<>(Arrays.asList(units));
+        return this;
+    }
+
+    public MultiUnitQuery<T> parameters(SqlParameterSource parameters) {
+        Assert.notNull(parameters, "SqlParameterSource must not be null");
+        this.parameters = parameters;
+        return this;
+    }
+
+    public MultiUnitQuery<T> parameters(Map<String, ?> parameters) {
+        return parameters(new MapSqlParameterSource(parameters));
+    }
+
+    /**
+     * @param timeout the time every unit may take to answer, must be positive.
+     */
+    public MultiUnitQuery<T> timeout(Duration timeout) {
+        this.timeout = checkTimeout(timeout);
+        return this;
+    }
+
+    /**
+     * @param timeout the time {@code unit} may take to answer, must be positive.
+     */
+    public MultiUnitQuery<T> timeout(String unit, Duration timeout) {
+        Assert.notNull(unit, "Unit must not be null");
+        this.unitTimeouts.put(unit, checkTimeout(timeout));
+        return this;
+    }
+
+    private static Duration checkTimeout(Duration timeout) {
+        Assert.isTrue(timeout != null && !timeout.isNegative() && !timeout.isZero(), "Timeout must be positive");
+        return timeout;
+    }
+
+    public MultiUnitQuery<T> partialResults(PartialResultPolicy partialResults) {
+        Assert.notNull(partialResults, "PartialResultPolicy must not be null");
+        this.partialResults = partialResults;
+        return this;
+    }
+
+    /**
+     * @param order the order of the merged rows, which are otherwise the rows of
+     *              the units in the order of the units.
+     */
+    public MultiUnitQuery<T> orderBy(Comparator<? super T> order) {
+        Assert.notNull(order, "Comparator must not be null");
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * @param limit the maximum number of merged rows, must be positive.
+     */
+    public MultiUnitQuery<T> limit(int limit) {
+        Assert.isTrue(limit > 0, "Limit must be positive");
+        this.limit = limit;
+        return this;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    RowMapper<T> getRowMapper() {
+        return rowMapper;
+    }
+
+    SqlParameterSource getParameters() {
+        return parameters;
+    }
+
+    List<String> getUnits() {
+        return units;
+    }
+
+    Duration getTimeout(String unit, Duration defaultTimeout) {
+        Duration unitTimeout = unitTimeouts.get(unit);
+        if (unitTimeout != null) {
+            return unitTimeout;
+        }
+        return timeout != null ? timeout : defaultTimeout;
+    }
+
+    PartialResultPolicy getPartialResults(PartialResultPolicy defaultPolicy) {
+        return partialResults != null ? partialResults : defaultPolicy;
+    }
+
+    @Nullable
+    Comparator<? super T> getOrder() {
+        return order;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiUnitQuery [sql=" + sql + ", units=" + units + "]";
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The merged rows of a {@link MultiUnitQuery}, with the failures of the units
+ * that did not answer if partial results are allowed.
+ */
+public class MultiUnitResult<T> {
+
+    private final List<T> rows;
+    private final Map<String, Integer> rowCounts;
+    private final Map<String, RuntimeException> failures;
+
+    public MultiUnitResult(List<T> rows, Map<String, Integer> rowCounts, Map<String, RuntimeException> failures) {
+        this.rows = Collections.unmodifiableList(rows);
+        this.rowCounts = Collections.unmodifiableMap(rowCounts);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of rows read from each unit that answered, before the
+     * limit of the merged rows.
+     */
+    public Map<String, Integer> getRowCounts() {
+        return rowCounts;
+    }
+
+    /**
+     * Returns the failure of each unit that failed or exceeded its timeout.
+     */
+    public Map<String, RuntimeException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns whether every unit answered.
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "MultiUnitResult [rows=" + rows.size() + ", units=" + rowCounts.keySet() + ", failed="
+                + failures.keySet() + "]";
+    }
+}
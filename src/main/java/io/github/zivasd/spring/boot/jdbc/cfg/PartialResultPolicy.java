@@ -0,0 +1,18 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+/**
+ * What a {@link MultiUnitJdbcTemplate} query returns when some of its units
+ * fail or exceed their timeout.
+ */
+public enum PartialResultPolicy {
+    /**
+     * The query fails with the failure of the first unit failing.
+     */
+    FAIL,
+
+    /**
+     * The query returns the rows of the units that succeeded, the failures of
+     * the others are reported in the {@link MultiUnitResult}.
+     */
+    RETURN_PARTIAL
+}
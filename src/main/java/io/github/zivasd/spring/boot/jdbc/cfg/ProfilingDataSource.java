@@ -0,0 +1,151 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.InfrastructureProxy;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.lang.NonNull;
+
+/**
+ * A {@link DataSource} timing the statement and batch executions of its
+ * connections in a {@link StatementProfiler}. Like {@link MeteredDataSource}
+ * it is given to the transaction manager and the templates of the unit and
+ * shares the transactions of the datasource it wraps.
+ */
+final class ProfilingDataSource extends DelegatingDataSource implements InfrastructureProxy {
+
+    private final StatementProfiler profiler;
+
+    ProfilingDataSource(DataSource dataSource, StatementProfiler profiler) {
+        super(dataSource);
+        this.profiler = profiler;
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection() throws SQLException {
+        return profile(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection(@NonNull String username, @NonNull String password) throws SQLException {
+        return profile(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    @Override
+    @NonNull
+    public Object getWrappedObject() {
+        DataSource target = obtainTargetDataSource();
+        return target instanceof InfrastructureProxy ? ((InfrastructureProxy) target).getWrappedObject() : target;
+    }
+
+    private Connection profile(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ConnectionProxy.class }, new ProfilingConnection(connection));
+    }
+
+    private final class ProfilingConnection implements InvocationHandler {
+
+        private final Connection target;
+
+        private ProfilingConnection(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Profiling " + target;
+            case "getTargetConnection":
+                return target;
+            default:
+                break;
+            }
+            Object result = call(target, method, args);
+            if (result instanceof Statement) {
+                // the SQL of prepared statements and calls, those of plain statements come with their execution
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(),
+                        new Class<?>[] { method.getReturnType() }, new ProfilingStatement(proxy, result, sql));
+            }
+            return result;
+        }
+    }
+
+    private final class ProfilingStatement implements InvocationHandler {
+
+        private final Object connection;
+        private final Object target;
+        private final String sql;
+        private String batchSql;
+
+        private ProfilingStatement(Object connection, Object target, String sql) {
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "getConnection":
+                return connection;
+            case "addBatch":
+                if (batchSql == null && args != null && args.length == 1) {
+                    // a batch of plain statements is profiled as its first one
+                    batchSql = (String) args[0];
+                }
+                return call(target, method, args);
+            case "clearBatch":
+                batchSql = null;
+                return call(target, method, args);
+            default:
+                break;
+            }
+            if (!name.startsWith("execute")) {
+                return call(target, method, args);
+            }
+            String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                    : sql != null ? sql : batchSql;
+            if (name.endsWith("Batch")) {
+                batchSql = null;
+            }
+            long start = System.nanoTime();
+            try {
+                return call(target, method, args);
+            } finally {
+                if (executed != null) {
+                    profiler.record(executed, System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
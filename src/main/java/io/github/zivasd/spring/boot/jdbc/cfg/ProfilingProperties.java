@@ -0,0 +1,68 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.time.Duration;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Settings of the statement profiling of a datasource unit, bound from
+ * {@code spring.datasources.<unit>.profiling}.
+ */
+public class ProfilingProperties {
+
+    private boolean enabled;
+    @Nullable
+    private Duration slowThreshold = Duration.ofSeconds(1);
+    private int topSize = 10;
+    private int maxStatements = 500;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Nullable
+    public Duration getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    /**
+     * @param slowThreshold the execution time above which statements are
+     *                      logged, {@literal null} to log none.
+     */
+    public void setSlowThreshold(@Nullable Duration slowThreshold) {
+        Assert.isTrue(slowThreshold == null || !slowThreshold.isNegative(), "SlowThreshold must not be negative");
+        this.slowThreshold = slowThreshold;
+    }
+
+    public int getTopSize() {
+        return topSize;
+    }
+
+    /**
+     * @param topSize the number of statements of the top tables, must be
+     *                positive.
+     */
+    public void setTopSize(int topSize) {
+        Assert.isTrue(topSize > 0, "TopSize must be positive");
+        this.topSize = topSize;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    /**
+     * @param maxStatements the number of distinct statements tracked, the
+     *                      statements seen once it is reached are counted
+     *                      together, must be positive.
+     */
+    public void setMaxStatements(int maxStatements) {
+        Assert.isTrue(maxStatements > 0, "MaxStatements must be positive");
+        this.maxStatements = maxStatements;
+    }
+}
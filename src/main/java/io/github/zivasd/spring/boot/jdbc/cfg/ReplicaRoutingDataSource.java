@@ -0,0 +1,246 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link DataSource} handing out connections of a replica to read only
+ * transactions, and connections of the primary, its target, otherwise.
+ * <p>
+ * The transaction manager must use it through a
+ * {@link LazyConnectionDataSourceProxy}, so that the connection is fetched once
+ * the read only flag of the transaction is known.
+ * <p>
+ * Reads see the writes of their thread: while a transaction that may write
+ * holds a connection of the primary, the read only transactions started within
+ * it use the primary too, and keep doing so for
+ * {@link ReplicaRoutingProperties#getPinAfterWrite()} once it completed.
+ * <p>
+ * Replicas are used in turn. A replica failing to provide a connection is
+ * skipped for {@link ReplicaRoutingProperties#getRetryInterval()}, and the
+ * primary serves the reads while no replica is available.
+ * <p>
+ * Closing it closes the primary and the replicas that are closeable.
+ */
+public class ReplicaRoutingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long pinAfterWrite;
+    private final long retryInterval;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ThreadLocal<Pin> pins = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+            ReplicaRoutingProperties properties) {
+        super(primary);
+        Assert.notEmpty(replicas, "Replicas must not be empty");
+        for (int i = 0; i < replicas.size(); ++i) {
+            this.replicas.add(new Replica(i, replicas.get(i)));
+        }
+        this.pinAfterWrite = properties.getPinAfterWrite().toNanos();
+        this.retryInterval = properties.getRetryInterval().toNanos();
+    }
+
+    public List<DataSource> getReplicas() {
+        List<DataSource> dataSources = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            dataSources.add(replica.dataSource);
+        }
+        return Collections.unmodifiableList(dataSources);
+    }
+
+    /**
+     * Returns the number of replicas not skipped after a failure.
+     */
+    public int getAvailableReplicaCount() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.isAvailable(now)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Closes the primary and the replicas. A datasource failing to close is
+     * logged rather than keeping the others open.
+     */
+    @Override
+    public void close() {
+        close(obtainTargetDataSource());
+        for (Replica replica : replicas) {
+            close(replica.dataSource);
+        }
+    }
+
+    private static void close(DataSource dataSource) {
+        if (!(dataSource instanceof AutoCloseable)) {
+            return;
+        }
+        try {
+            ((AutoCloseable) dataSource).close();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            LOGGER.warn("Could not close datasource {}", dataSource, e);
+        }
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    @NonNull
+    public Connection getConnection(@NonNull String username, @NonNull String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionFactory factory) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pin();
+            return factory.getConnection(obtainTargetDataSource());
+        }
+        if (!isPinned()) {
+            Connection connection = getReplicaConnection(factory);
+            if (connection != null) {
+                return connection;
+            }
+        }
+        return factory.getConnection(obtainTargetDataSource());
+    }
+
+    @Nullable
+    private Connection getReplicaConnection(ConnectionFactory factory) {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); ++i) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            long now = System.nanoTime();
+            if (!replica.isAvailable(now)) {
+                continue;
+            }
+            try {
+                Connection connection = factory.getConnection(replica.dataSource);
+                replica.failed = false;
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                // pools report a database they can not reach with unchecked exceptions too
+                replica.retryAt = now + retryInterval;
+                replica.failed = true;
+                LOGGER.warn("Replica {} is unavailable, skipped for {} ms: {}", replica.index,
+                        retryInterval / 1_000_000, e.toString());
+            }
+        }
+        LOGGER.debug("No replica available, reading from the primary");
+        return null;
+    }
+
+    /**
+     * Pins the reads of the current thread to the primary until the
+     * transaction completes, or for the pin after write period without a
+     * transaction.
+     */
+    private void pin() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            Pin pin = getPin();
+            ++pin.transactions;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    --pin.transactions;
+                    pin.written(pinAfterWrite);
+                }
+            });
+        } else if (pinAfterWrite > 0) {
+            getPin().written(pinAfterWrite);
+        }
+    }
+
+    private boolean isPinned() {
+        Pin pin = pins.get();
+        if (pin == null) {
+            return false;
+        }
+        if (pin.transactions > 0 || pin.isWithinWindow(pinAfterWrite)) {
+            return true;
+        }
+        pins.remove();
+        return false;
+    }
+
+    private Pin getPin() {
+        Pin pin = pins.get();
+        if (pin == null) {
+            pin = new Pin();
+            pins.set(pin);
+        }
+        return pin;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionFactory {
+        Connection getConnection(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final int index;
+        private final DataSource dataSource;
+        private volatile boolean failed;
+        private volatile long retryAt;
+
+        private Replica(int index, DataSource dataSource) {
+            this.index = index;
+            this.dataSource = dataSource;
+        }
+
+        private boolean isAvailable(long now) {
+            return !failed || now - retryAt >= 0;
+        }
+    }
+
+    /**
+     * The writes of a thread, only accessed by that thread.
+     */
+    private static final class Pin {
+
+        private int transactions;
+        private boolean written;
+        private long writtenAt;
+
+        private void written(long window) {
+            if (window > 0) {
+                written = true;
+                writtenAt = System.nanoTime();
+            }
+        }
+
+        private boolean isWithinWindow(long window) {
+            return written && System.nanoTime() - writtenAt < window;
+        }
+    }
+}
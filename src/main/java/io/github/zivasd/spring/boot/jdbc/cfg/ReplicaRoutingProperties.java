@@ -0,0 +1,44 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.time.Duration;
+
+import org.springframework.util.Assert;
+
+/**
+ * Settings of the {@link ReplicaRoutingDataSource} of a datasource unit, bound
+ * from {@code spring.datasources.<unit>.replica-routing}.
+ */
+public class ReplicaRoutingProperties {
+
+    private Duration pinAfterWrite = Duration.ZERO;
+    private Duration retryInterval = Duration.ofSeconds(30);
+
+    public Duration getPinAfterWrite() {
+        return pinAfterWrite;
+    }
+
+    /**
+     * @param pinAfterWrite how long the read only transactions of a thread keep
+     *                      using the primary after it wrote, must not be
+     *                      negative.
+     */
+    public void setPinAfterWrite(Duration pinAfterWrite) {
+        Assert.isTrue(pinAfterWrite != null && !pinAfterWrite.isNegative(),
+                "Pin after write must not be negative");
+        this.pinAfterWrite = pinAfterWrite;
+    }
+
+    public Duration getRetryInterval() {
+        return retryInterval;
+    }
+
+    /**
+     * @param retryInterval how long a replica failing to provide a connection is
+     *                      skipped, must be positive.
+     */
+    public void setRetryInterval(Duration retryInterval) {
+        Assert.isTrue(retryInterval != null && !retryInterval.isNegative() && !retryInterval.isZero(),
+                "Retry interval must be positive");
+        this.retryInterval = retryInterval;
+    }
+}
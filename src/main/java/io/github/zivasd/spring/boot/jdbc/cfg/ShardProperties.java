@@ -0,0 +1,44 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * The shard a datasource unit holds, bound from
+ * {@code spring.datasources.<unit>.shard}.
+ */
+public class ShardProperties {
+
+    @Nullable
+    private String group;
+    @Nullable
+    private Integer index;
+
+    @Nullable
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * @param group the name of the shard group of the unit, {@literal null} if
+     *              the unit is not a shard.
+     */
+    public void setGroup(@Nullable String group) {
+        this.group = group;
+    }
+
+    @Nullable
+    public Integer getIndex() {
+        return index;
+    }
+
+    /**
+     * @param index the index of the shard in its group, must not be negative.
+     *              The shards of a group are numbered from {@literal 0}
+     *              without gaps.
+     */
+    public void setIndex(@Nullable Integer index) {
+        Assert.isTrue(index == null || index >= 0, "Index must not be negative");
+        this.index = index;
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * The statements executed on a datasource unit declaring
+ * {@code spring.datasources.<unit>.profiling.enabled}, registered as
+ * {@code <unit>StatementProfiler}.
+ * <p>
+ * Statements are grouped once normalized, their literals and {@code IN} lists
+ * replaced by {@literal ?}, and counted with striped counters so that
+ * concurrent executions do not contend. At most
+ * {@link ProfilingProperties#getMaxStatements()} statements are tracked, the
+ * others are counted together as {@value #OTHER_STATEMENTS}. Statements slower
+ * than {@link ProfilingProperties#getSlowThreshold()} are logged.
+ */
+public class StatementProfiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementProfiler.class);
+
+    /**
+     * The statement under which the statements past the maximum number tracked
+     * are counted.
+     */
+    public static final String OTHER_STATEMENTS = "<other statements>";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.$])\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\b(in)\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String unit;
+    private final ProfilingProperties properties;
+    private final long slowThresholdNanos;
+    /** the statements as executed, normalized */
+    private final Map<String, String> normalized = new ConcurrentHashMap<>();
+    private final Map<String, Counters> statements = new ConcurrentHashMap<>();
+
+    public StatementProfiler(String unit, ProfilingProperties properties) {
+        Assert.notNull(unit, "Unit must not be null");
+        Assert.notNull(properties, "ProfilingProperties must not be null");
+        this.unit = unit;
+        this.properties = properties;
+        Duration slowThreshold = properties.getSlowThreshold();
+        this.slowThresholdNanos = slowThreshold == null ? Long.MAX_VALUE : slowThreshold.toNanos();
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Records an execution of {@code sql} that took {@code nanos}.
+     */
+    public void record(String sql, long nanos) {
+        counters(sql).record(nanos);
+        if (nanos > slowThresholdNanos) {
+            LOGGER.warn("Slow statement on {} took {} ms: {}", unit, TimeUnit.NANOSECONDS.toMillis(nanos), sql);
+        }
+    }
+
+    private Counters counters(String sql) {
+        String key = normalized.get(sql);
+        if (key == null) {
+            key = normalize(sql);
+            // bounded like the statements, queries built with literals would fill it
+            if (normalized.size() < properties.getMaxStatements()) {
+                normalized.put(sql, key);
+            }
+        }
+        Counters counters = statements.get(key);
+        if (counters != null) {
+            return counters;
+        }
+        if (statements.size() >= properties.getMaxStatements()) {
+            key = OTHER_STATEMENTS;
+        }
+        return statements.computeIfAbsent(key, k -> new Counters());
+    }
+
+    /**
+     * Returns the statements with the highest total execution time, at most
+     * {@link ProfilingProperties#getTopSize()}, the slowest first.
+     */
+    public List<StatementStatistics> getTopByTotalTime() {
+        return top(Comparator.comparing(StatementStatistics::getTotalTime));
+    }
+
+    /**
+     * Returns the statements executed the most, at most
+     * {@link ProfilingProperties#getTopSize()}, the most executed first.
+     */
+    public List<StatementStatistics> getTopByCount() {
+        return top(Comparator.comparingLong(StatementStatistics::getCount));
+    }
+
+    /**
+     * Returns the statements executed since the creation or the last
+     * {@link #reset()}.
+     */
+    public List<StatementStatistics> getStatistics() {
+        List<StatementStatistics> statistics = new ArrayList<>(statements.size());
+        statements.forEach((sql, counters) -> statistics.add(counters.snapshot(sql)));
+        return statistics;
+    }
+
+    /**
+     * Forgets the statements profiled so far, along with their normalized
+     * forms, so that a cache filled by former statements does not keep the new
+     * ones from being cached.
+     */
+    public void reset() {
+        statements.clear();
+        normalized.clear();
+    }
+
+    private List<StatementStatistics> top(Comparator<StatementStatistics> order) {
+        PriorityQueue<StatementStatistics> top = new PriorityQueue<>(order);
+        for (StatementStatistics statistics : getStatistics()) {
+            top.add(statistics);
+            if (top.size() > properties.getTopSize()) {
+                top.poll();
+            }
+        }
+        List<StatementStatistics> result = new ArrayList<>(top);
+        result.sort(order.reversed());
+        return result;
+    }
+
+    /**
+     * Replaces the literals and the {@code IN} lists of {@code sql} by
+     * {@literal ?} and collapses its whitespace.
+     */
+    public static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("$1 (?)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    private static final class Counters {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        private StatementStatistics snapshot(String sql) {
+            return new StatementStatistics(sql, count.sum(), Duration.ofNanos(totalNanos.sum()),
+                    Duration.ofNanos(maxNanos.get()));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.time.Duration;
+
+/**
+ * The executions of a normalized statement recorded by a
+ * {@link StatementProfiler}, as of the time it was read.
+ */
+public final class StatementStatistics {
+
+    private final String sql;
+    private final long count;
+    private final Duration totalTime;
+    private final Duration maxTime;
+
+    StatementStatistics(String sql, long count, Duration totalTime, Duration maxTime) {
+        this.sql = sql;
+        this.count = count;
+        this.totalTime = totalTime;
+        this.maxTime = maxTime;
+    }
+
+    /**
+     * Returns the statement, its literals and {@code IN} lists replaced by
+     * {@literal ?}.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Duration getTotalTime() {
+        return totalTime;
+    }
+
+    public Duration getMaxTime() {
+        return maxTime;
+    }
+
+    public Duration getMeanTime() {
+        return count == 0 ? Duration.ZERO : totalTime.dividedBy(count);
+    }
+
+    @Override
+    public String toString() {
+        return "StatementStatistics [sql=" + sql + ", count=" + count + ", totalTime=" + totalTime + ", maxTime="
+                + maxTime + "]";
+    }
+}
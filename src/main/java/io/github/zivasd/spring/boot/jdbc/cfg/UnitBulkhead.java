@@ -0,0 +1,191 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Guards the connection acquisitions of a datasource unit declaring
+ * {@code spring.datasources.<unit>.bulkhead.enabled}, registered as
+ * {@code <unit>Bulkhead}, so that a slow database does not hold the threads
+ * shared with the other units.
+ * <p>
+ * At most {@link BulkheadProperties#getMaxConcurrentAcquisitions()} threads
+ * wait for a connection of the unit, the others fail after
+ * {@link BulkheadProperties#getMaxWait()}. Acquisitions failing or slower than
+ * {@link BulkheadProperties#getSlowAcquisitionThreshold()} count as failures:
+ * once their rate in the last acquisitions crosses the threshold the circuit
+ * opens and all acquisitions fail at once for
+ * {@link BulkheadProperties#getOpenDuration()}. Trial acquisitions then close
+ * it again, or open it for another period at the first failure.
+ * <p>
+ * Rejected acquisitions throw a {@link SQLTransientConnectionException},
+ * reported by the templates as a
+ * {@link org.springframework.jdbc.CannotGetJdbcConnectionException}.
+ */
+public class UnitBulkhead {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnitBulkhead.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String unit;
+    private final BulkheadProperties properties;
+    private final Semaphore permits;
+
+    /** the outcomes of the last acquisitions, {@literal true} for failures */
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenStarted;
+    private int halfOpenSucceeded;
+
+    public UnitBulkhead(String unit, BulkheadProperties properties) {
+        Assert.notNull(unit, "Unit must not be null");
+        Assert.notNull(properties, "BulkheadProperties must not be null");
+        Assert.isTrue(properties.getMinimumCalls() <= properties.getWindowSize(),
+                "MinimumCalls must not exceed WindowSize");
+        this.unit = unit;
+        this.properties = properties;
+        this.permits = new Semaphore(properties.getMaxConcurrentAcquisitions());
+        this.window = new boolean[properties.getWindowSize()];
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of threads that may still start to wait for a
+     * connection.
+     */
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Closes the circuit and forgets the past acquisitions.
+     */
+    public synchronized void reset() {
+        close();
+    }
+
+    Connection acquire(ConnectionSupplier supplier) throws SQLException {
+        boolean trial = state != State.CLOSED && permitTrial();
+        try {
+            if (!permits.tryAcquire(properties.getMaxWait().toNanos(), TimeUnit.NANOSECONDS)) {
+                releaseTrial(trial);
+                throw new SQLTransientConnectionException("Bulkhead of " + unit + " is full, "
+                        + properties.getMaxConcurrentAcquisitions() + " threads wait for a connection");
+            }
+        } catch (InterruptedException e) {
+            releaseTrial(trial);
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for the bulkhead of " + unit, e);
+        }
+        long start = System.nanoTime();
+        try {
+            Connection connection = supplier.get();
+            record(System.nanoTime() - start > properties.getSlowAcquisitionThreshold().toNanos());
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            record(true);
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return whether the acquisition is one of the trials of the half open
+     *         circuit.
+     */
+    private synchronized boolean permitTrial() throws SQLException {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < properties.getOpenDuration().toNanos()) {
+                throw new SQLTransientConnectionException("Circuit of " + unit + " is open");
+            }
+            state = State.HALF_OPEN;
+            halfOpenStarted = 0;
+            halfOpenSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN && halfOpenStarted++ >= properties.getHalfOpenCalls()) {
+            throw new SQLTransientConnectionException("Circuit of " + unit + " is half open, trials are running");
+        }
+        return state == State.HALF_OPEN;
+    }
+
+    /**
+     * Gives back the slot of a trial that did not get to acquire a connection,
+     * so that it neither closes nor opens the circuit.
+     */
+    private synchronized void releaseTrial(boolean trial) {
+        if (trial && state == State.HALF_OPEN && halfOpenStarted > 0) {
+            --halfOpenStarted;
+        }
+    }
+
+    private synchronized void record(boolean failure) {
+        switch (state) {
+        case HALF_OPEN:
+            if (failure) {
+                open();
+            } else if (++halfOpenSucceeded >= properties.getHalfOpenCalls()) {
+                LOGGER.info("Closing the circuit of {}.", unit);
+                close();
+            }
+            break;
+        case CLOSED:
+            if (windowCount == window.length) {
+                windowFailures -= window[windowIndex] ? 1 : 0;
+            } else {
+                ++windowCount;
+            }
+            window[windowIndex] = failure;
+            windowFailures += failure ? 1 : 0;
+            windowIndex = (windowIndex + 1) % window.length;
+            if (windowCount >= properties.getMinimumCalls()
+                    && windowFailures * 100 >= properties.getFailureRateThreshold() * windowCount) {
+                open();
+            }
+            break;
+        default:
+            // acquisitions started before the circuit opened
+            break;
+        }
+    }
+
+    private void open() {
+        LOGGER.warn("Opening the circuit of {} for {} ms.", unit, properties.getOpenDuration().toMillis());
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    @FunctionalInterface
+    interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
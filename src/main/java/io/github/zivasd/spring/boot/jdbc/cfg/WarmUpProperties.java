@@ -0,0 +1,53 @@
+package io.github.zivasd.spring.boot.jdbc.cfg;
+
+import java.time.Duration;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Settings of the startup warm-up of the pool of a datasource unit, bound from
+ * {@code spring.datasources.<unit>.warm-up}.
+ */
+public class WarmUpProperties {
+
+    private boolean enabled;
+    private Duration timeout = Duration.ofSeconds(30);
+    @Nullable
+    private String validationQuery;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout the maximum time the warm-up of the unit may take, must be
+     *                positive.
+     */
+    public void setTimeout(Duration timeout) {
+        Assert.isTrue(timeout != null && !timeout.isNegative() && !timeout.isZero(), "Timeout must be positive");
+        this.timeout = timeout;
+    }
+
+    @Nullable
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    /**
+     * @param validationQuery the query run on a connection of the pool,
+     *                        {@literal null} to validate the connection with
+     *                        {@code Connection.isValid}.
+     */
+    public void setValidationQuery(@Nullable String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+}
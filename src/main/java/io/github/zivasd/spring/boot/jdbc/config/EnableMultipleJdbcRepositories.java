@@ -16,6 +16,14 @@ import org.springframework.data.repository.config.DefaultRepositoryBaseClass;
 import org.springframework.data.repository.query.QueryLookupStrategy;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 
+import io.github.zivasd.spring.boot.jdbc.repository.BatchRepository;
+import io.github.zivasd.spring.boot.jdbc.repository.IdAllocator;
+import io.github.zivasd.spring.boot.jdbc.repository.InsertMode;
+import io.github.zivasd.spring.boot.jdbc.repository.ShardKey;
+import io.github.zivasd.spring.boot.jdbc.repository.ShardingStrategy;
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchJdbcRepositoryFactoryBean;
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchSettings;
+
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
@@ -136,4 +144,58 @@ public @interface EnableMultipleJdbcRepositories {
      * @since 2.1
      */
     QueryLookupStrategy.Key queryLookupStrategy() default QueryLookupStrategy.Key.CREATE_IF_NOT_FOUND;
+
+    /**
+     * Configures how the {@link BatchRepository} batch operations insert new
+     * entities. Defaults to {@link InsertMode#BATCH}. Only applies to
+     * repositories created by {@link BatchJdbcRepositoryFactoryBean}.
+     */
+    InsertMode insertMode() default InsertMode.BATCH;
+
+    /**
+     * Configures the maximum number of rows of a single
+     * {@link InsertMode#MULTI_VALUES} insert statement. The bind parameter limit
+     * of the database may lower it further.
+     */
+    int maxRowsPerInsert() default BatchSettings.DEFAULT_MAX_ROWS_PER_INSERT;
+
+    /**
+     * Configures the number of chunks {@link BatchRepository#batchSaveParallel}
+     * writes at the same time. Defaults to {@literal 0}, which uses half of the
+     * connection pool behind the transaction manager, leaving at least one
+     * connection free. The repositories of a transaction manager with the same
+     * parallelism share their threads, so it bounds all of their chunks.
+     */
+    int parallelism() default 0;
+
+    /**
+     * Configures how often {@link BatchRepository#batchSaveChunked} retries a
+     * chunk that failed with a transient error before reporting it as failed.
+     */
+    int chunkRetries() default BatchSettings.DEFAULT_CHUNK_RETRIES;
+
+    /**
+     * Configures the name of the {@link IdAllocator} bean that assigns the ids of
+     * new entities before {@link BatchRepository} batch operations insert them,
+     * instead of reading back database generated keys. Defaults to none.
+     */
+    String idAllocatorRef() default "";
+
+    /**
+     * Configures the name of the shard group, declared with
+     * {@code spring.datasources.<unit>.shard.group}, whose units store the
+     * entities of the repositories discovered through this annotation. Each
+     * entity goes to the shard its {@link ShardKey} is mapped to by the
+     * {@link #shardingStrategyRef()}. {@link #jdbcOperationsRef()} and
+     * {@link #transactionManagerRef()} are ignored, every shard uses the
+     * operations and the transaction manager of its unit. Defaults to none.
+     */
+    String shardGroup() default "";
+
+    /**
+     * Configures the name of the {@link ShardingStrategy} bean mapping the shard
+     * keys to the shards of the {@link #shardGroup()}. Defaults to a
+     * {@link io.github.zivasd.spring.boot.jdbc.repository.support.HashShardingStrategy}.
+     */
+    String shardingStrategyRef() default "";
 }
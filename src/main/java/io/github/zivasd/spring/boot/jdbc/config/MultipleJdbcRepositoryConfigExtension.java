@@ -7,13 +7,20 @@ import java.util.Locale;
 import java.util.Optional;
 
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.data.jdbc.repository.config.JdbcRepositoryConfigExtension;
 import org.springframework.data.jdbc.repository.support.JdbcRepositoryFactoryBean;
 import org.springframework.data.relational.core.mapping.Table;
 import org.springframework.data.repository.config.RepositoryConfigurationSource;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
 
+import io.github.zivasd.spring.boot.jdbc.repository.InsertMode;
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchJdbcRepositoryFactoryBean;
+import io.github.zivasd.spring.boot.jdbc.repository.support.ShardGroup;
+import io.github.zivasd.spring.boot.jdbc.repository.support.UnitRepositorySupport;
+
 public class MultipleJdbcRepositoryConfigExtension extends JdbcRepositoryConfigExtension {
 
     private static final String DEFAULT_TRANSACTION_MANAGER_BEAN_NAME = "transactionManager";
@@ -74,6 +81,70 @@ public class MultipleJdbcRepositoryConfigExtension extends JdbcRepositoryConfigE
         Optional<String> transactionManagerRef = source.getAttribute("transactionManagerRef");
         builder.addPropertyValue("transactionManager",
                 transactionManagerRef.orElse(DEFAULT_TRANSACTION_MANAGER_BEAN_NAME));
+
+        if (isBatchRepositoryFactoryBean(source)) {
+            source.getAttribute("insertMode", InsertMode.class) //
+                    .ifPresent(s -> builder.addPropertyValue("insertMode", s));
+            source.getAttribute("maxRowsPerInsert", Integer.class) //
+                    .ifPresent(s -> builder.addPropertyValue("maxRowsPerInsert", s));
+            source.getAttribute("parallelism", Integer.class) //
+                    .ifPresent(s -> builder.addPropertyValue("parallelism", s));
+            source.getAttribute("chunkRetries", Integer.class) //
+                    .ifPresent(s -> builder.addPropertyValue("chunkRetries", s));
+            source.getAttribute("idAllocatorRef") //
+                    .filter(StringUtils::hasText) //
+                    .ifPresent(s -> builder.addPropertyReference("idAllocator", s));
+            source.getAttribute("shardGroup") //
+                    .filter(StringUtils::hasText) //
+                    .ifPresent(s -> builder.addPropertyReference("shardGroup", s + ShardGroup.BEAN_NAME_SUFFIX));
+            source.getAttribute("shardingStrategyRef") //
+                    .filter(StringUtils::hasText) //
+                    .ifPresent(s -> builder.addPropertyReference("shardingStrategy", s));
+            getSharedJdbcOperationsRef(source).ifPresent(
+                    s -> builder.addPropertyReference("repositorySupport", s + UnitRepositorySupport.BEAN_NAME_SUFFIX));
+        }
+    }
+
+    /**
+     * Registers the {@link UnitRepositorySupport} shared by the repositories of
+     * each {@code jdbcOperationsRef}, once for all annotations naming it.
+     */
+    @Override
+    public void registerBeansForRoot(BeanDefinitionRegistry registry, RepositoryConfigurationSource source) {
+        super.registerBeansForRoot(registry, source);
+        if (!isBatchRepositoryFactoryBean(source)) {
+            return;
+        }
+        getSharedJdbcOperationsRef(source).ifPresent(s -> registerIfNotAlreadyRegistered(
+                () -> BeanDefinitionBuilder.rootBeanDefinition(UnitRepositorySupport.class) //
+                        .addConstructorArgReference(s) //
+                        .getBeanDefinition(),
+                registry, s + UnitRepositorySupport.BEAN_NAME_SUFFIX, source.getSource()));
+    }
+
+    /**
+     * The {@code jdbcOperationsRef} whose data access objects the repositories
+     * share, unless they are given their own {@code dataAccessStrategyRef}.
+     */
+    private static Optional<String> getSharedJdbcOperationsRef(RepositoryConfigurationSource source) {
+        if (source.getAttribute("dataAccessStrategyRef").filter(StringUtils::hasText).isPresent()) {
+            return Optional.empty();
+        }
+        return source.getAttribute("jdbcOperationsRef").filter(StringUtils::hasText);
+    }
+
+    /**
+     * The batch attributes are only understood by
+     * {@link BatchJdbcRepositoryFactoryBean}, other factory beans would fail on
+     * the unknown properties.
+     */
+    private static boolean isBatchRepositoryFactoryBean(RepositoryConfigurationSource source) {
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        return source.getRepositoryFactoryBeanClassName() //
+                .filter(name -> ClassUtils.isPresent(name, classLoader)) //
+                .map(name -> ClassUtils.resolveClassName(name, classLoader)) //
+                .filter(BatchJdbcRepositoryFactoryBean.class::isAssignableFrom) //
+                .isPresent();
     }
 
     /**
@@ -0,0 +1,32 @@
+package io.github.zivasd.spring.boot.jdbc.repository;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Thrown by the batch operations of {@link BatchRepository} when the version
+ * check of one or more rows failed. Unlike the single row operations the batch
+ * is not aborted at the first stale row, all of them are reported together.
+ */
+public class BatchOptimisticLockingFailureException extends OptimisticLockingFailureException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<?> staleEntities;
+
+    public BatchOptimisticLockingFailureException(Class<?> domainType, List<?> staleEntities) {
+        super(String.format("Optimistic lock exception on saving %d entities of type %s.", staleEntities.size(),
+                domainType.getName()));
+        this.staleEntities = Collections.unmodifiableList(staleEntities);
+    }
+
+    /**
+     * Returns the entities whose version did not match the database, in the
+     * order they were passed to the batch operation.
+     */
+    public List<?> getStaleEntities() {
+        return staleEntities;
+    }
+}
@@ -1,13 +1,214 @@
 package io.github.zivasd.spring.boot.jdbc.repository;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.data.repository.Repository;
+import org.springframework.lang.Nullable;
 
 @NoRepositoryBean
 public interface BatchRepository<T, ID> extends Repository<T, ID> {
     <S extends T> List<S> batchSave(List<S> entities);
 
     <S extends T> List<S> batchSave(List<S> entities, int batchSize);
+
+    /**
+     * Saves the entities of {@code entities} while iterating over it, flushing
+     * every {@code batchSize} entities. Only the current chunk is kept in memory.
+     * <p>
+     * On a repository bound to a shard group, the entities of an iterable that
+     * is no collection are written chunk by chunk, each chunk committed by its
+     * shards before the next one is read: a failure does not undo the chunks
+     * written before.
+     *
+     * @param entities  must not be {@literal null}.
+     * @param batchSize must be positive.
+     * @return the number of saved entities.
+     */
+    <S extends T> long batchSave(Iterable<S> entities, int batchSize);
+
+    /**
+     * Streaming variant of {@link #batchSave(Iterable, int)} pulling the
+     * entities from an {@link Iterator}, committed chunk by chunk on a
+     * repository bound to a shard group.
+     */
+    <S extends T> long batchSave(Iterator<S> entities, int batchSize);
+
+    /**
+     * Streaming variant of {@link #batchSave(Iterable, int)} consuming a
+     * {@link Stream}, committed chunk by chunk on a repository bound to a shard
+     * group. The stream is not closed by this method.
+     */
+    <S extends T> long batchSave(Stream<S> entities, int batchSize);
+
+    /**
+     * Saves the entities in chunks of {@code batchSize}, writing several chunks
+     * at the same time on separate connections, each chunk in its own
+     * transaction. This trades the atomicity of
+     * {@link #batchSave(List, int)} for throughput: a failing chunk is rolled
+     * back and reported in the result while the other chunks are committed. A
+     * surrounding transaction is suspended.
+     * <p>
+     * The number of concurrent chunks, shared by all the repositories of the
+     * unit, is configured by
+     * {@code EnableMultipleJdbcRepositories#parallelism()} and defaults to half
+     * of the connection pool, leaving at least one connection to the other users
+     * of the unit.
+     *
+     * @param entities  must not be empty.
+     * @param batchSize the number of entities per chunk, must be positive.
+     * @return the result of every chunk.
+     */
+    <S extends T> BatchResult<S> batchSaveParallel(List<S> entities, int batchSize);
+
+    /**
+     * Saves the entities of {@code entities} while iterating over it, committing
+     * every chunk of {@code batchSize} entities in its own transaction, so a
+     * failure does not undo the chunks written before. A surrounding transaction
+     * is suspended.
+     * <p>
+     * A chunk failing with a transient error is retried as configured by
+     * {@code EnableMultipleJdbcRepositories#chunkRetries()}. A chunk failing
+     * otherwise is split in halves that are written separately until the
+     * failing entities are isolated; only those are reported as failed. The ids
+     * and versions of failed entities are reset to their values before the
+     * call.
+     *
+     * @param entities  must not be {@literal null}.
+     * @param batchSize the number of entities per chunk, must be positive.
+     * @return the result of every chunk.
+     */
+    <S extends T> BatchResult<S> batchSaveChunked(Iterable<S> entities, int batchSize);
+
+    /**
+     * Inserts the given entities or, where a row with the same id already
+     * exists, updates it, sending {@code batchSize} statements per JDBC batch.
+     * The statement is a {@code MERGE}, {@code ON CONFLICT} or
+     * {@code ON DUPLICATE KEY} depending on the database. Versions are not
+     * checked; the version of an updated row is incremented by the database and
+     * read back into the entity by one more statement per chunk.
+     *
+     * @param entities  must not be empty, every entity must have an id.
+     * @param batchSize the number of entities per JDBC batch, {@literal 0} sends
+     *                  all entities in one batch.
+     * @return the given entities.
+     */
+    <S extends T> List<S> batchUpsert(List<S> entities, int batchSize);
+
+    /**
+     * Deletes the given entities with {@code DELETE ... WHERE id IN} statements.
+     * Versioned entities are deleted in JDBC batches checking each version;
+     * entities whose version no longer matches are reported by a
+     * {@link BatchOptimisticLockingFailureException}. Like the updates of
+     * {@code batchSave}, the batch fails if the driver does not report the
+     * update count of each row, as stale rows could not be detected.
+     *
+     * @param entities must not be {@literal null}, every entity must have an id.
+     */
+    <S extends T> void batchDelete(List<S> entities);
+
+    /**
+     * Deletes the rows with the given ids, {@code chunkSize} ids per
+     * {@code DELETE ... WHERE id IN} statement. Ids without a row are ignored.
+     *
+     * @param ids       must not be {@literal null} nor contain {@literal null}.
+     * @param chunkSize the number of ids per statement, must be positive.
+     */
+    void batchDeleteAllById(Iterable<? extends ID> ids, int chunkSize);
+
+    /**
+     * Streams all entities from a forward only cursor, so only the rows of the
+     * current fetch are held in memory. The stream must be closed, which
+     * releases the cursor and its connection.
+     * <p>
+     * Called within a transaction the stream uses its connection and must be
+     * consumed before the transaction ends. Otherwise it holds a connection of
+     * its own until closed. Unlike {@code findAll} no load events are
+     * published.
+     *
+     * @return the entities in the order of the database.
+     */
+    Stream<T> streamAll();
+
+    /**
+     * Variant of {@link #streamAll()} fetching {@code fetchSize} rows per round
+     * trip instead of the {@code spring.datasources.<unit>.template.fetch-size}
+     * of the datasource unit.
+     *
+     * @param fetchSize must be positive.
+     */
+    Stream<T> streamAll(int fetchSize);
+
+    /**
+     * Streams the entities with the given ids like {@link #streamAll()}. Ids
+     * without a row are ignored, the order of the ids is not kept.
+     *
+     * @param ids must not be {@literal null} nor contain {@literal null}.
+     */
+    Stream<T> streamAllById(Iterable<? extends ID> ids);
+
+    /**
+     * Variant of {@link #streamAllById(Iterable)} fetching {@code fetchSize} rows
+     * per round trip.
+     *
+     * @param fetchSize must be positive.
+     */
+    Stream<T> streamAllById(Iterable<? extends ID> ids, int fetchSize);
+
+    /**
+     * Finds the entities with the given ids, reading {@code chunkSize} ids per
+     * statement. The {@code IN} lists are padded to 8, 32, 128 or 512 elements,
+     * so only a few distinct statements reach the statement caches, and are
+     * split where they would exceed the parameter limit of the database.
+     *
+     * @param ids       must not be {@literal null} nor contain {@literal null}.
+     * @param chunkSize must be positive.
+     * @return the entities found, in the order of the first occurrence of their
+     *         id in {@code ids}. Ids without a row are skipped.
+     */
+    List<T> batchFindAllById(Collection<? extends ID> ids, int chunkSize);
+
+    /**
+     * Variant of {@link #batchFindAllById(Collection, int)} reading the chunks
+     * on several threads, each in a read only transaction of its own. The
+     * number of threads is limited like in {@link #batchSaveParallel(List, int)}.
+     * Entities written by an ongoing transaction of the caller are not seen.
+     */
+    List<T> batchFindAllByIdParallel(Collection<? extends ID> ids, int chunkSize);
+
+    /**
+     * Returns the slice of at most {@code limit} entities following
+     * {@code last} in the order of their ids. Unlike paging with an offset the
+     * position is sought through the id, so every slice costs the same and no
+     * count is run.
+     *
+     * @param last  the last entity of the previous slice, {@literal null} for
+     *              the first slice.
+     * @param limit must be positive.
+     * @return the slice, {@link Slice#hasNext()} tells whether more entities
+     *         follow.
+     */
+    Slice<T> findNextSlice(@Nullable T last, int limit);
+
+    /**
+     * Returns the slice of at most {@code limit} entities following
+     * {@code last} in the order of {@code sort}. The id is added as the last
+     * sort key unless {@code sort} contains it, so the order is total even if
+     * the sort properties are not unique.
+     * <p>
+     * The sort properties must be simple properties of the aggregate root whose
+     * values are not {@literal null}. An index on them, followed by the id,
+     * keeps the cost of a slice independent of its position.
+     *
+     * @param last  the last entity of the previous slice, {@literal null} for
+     *              the first slice.
+     * @param limit must be positive.
+     * @param sort  must not be {@literal null}.
+     */
+    Slice<T> findNextSlice(@Nullable T last, int limit, Sort sort);
 }
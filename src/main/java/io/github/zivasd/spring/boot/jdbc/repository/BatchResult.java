@@ -0,0 +1,149 @@
+package io.github.zivasd.spring.boot.jdbc.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * The outcome of a batch operation that writes its chunks in separate
+ * transactions. Unlike {@link BatchRepository#batchSave(List, int)} such an
+ * operation is not atomic: the chunks reported as successful are committed even
+ * if others failed.
+ */
+public class BatchResult<T> {
+
+    private final List<Chunk<T>> chunks;
+
+    public BatchResult(List<Chunk<T>> chunks) {
+        this.chunks = Collections.unmodifiableList(chunks);
+    }
+
+    /**
+     * Returns the result of every chunk, in the order of the input.
+     */
+    public List<Chunk<T>> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the number of committed entities.
+     */
+    public long getSucceeded() {
+        long succeeded = 0;
+        for (Chunk<T> chunk : chunks) {
+            succeeded += chunk.getSucceeded();
+        }
+        return succeeded;
+    }
+
+    /**
+     * Returns the number of entities that were not written.
+     */
+    public long getFailed() {
+        long failed = 0;
+        for (Chunk<T> chunk : chunks) {
+            failed += chunk.getFailedEntities().size();
+        }
+        return failed;
+    }
+
+    /**
+     * Returns the entities that were not written, in the order of the input.
+     */
+    public List<T> getFailedEntities() {
+        List<T> failedEntities = new ArrayList<>();
+        for (Chunk<T> chunk : chunks) {
+            failedEntities.addAll(chunk.getFailedEntities());
+        }
+        return failedEntities;
+    }
+
+    public boolean isSuccessful() {
+        for (Chunk<T> chunk : chunks) {
+            if (!chunk.isSuccessful()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult [chunks=" + chunks.size() + ", succeeded=" + getSucceeded() + ", failed=" + getFailed()
+                + "]";
+    }
+
+    /**
+     * The outcome of one chunk of a {@link BatchResult}.
+     */
+    public static class Chunk<T> {
+
+        private final int index;
+        private final long offset;
+        private final int size;
+        private final List<T> failedEntities;
+        private final RuntimeException failure;
+        private final Duration elapsed;
+
+        public Chunk(int index, long offset, int size, List<T> failedEntities, @Nullable RuntimeException failure,
+                Duration elapsed) {
+            this.index = index;
+            this.offset = offset;
+            this.size = size;
+            this.failedEntities = Collections.unmodifiableList(failedEntities);
+            this.failure = failure;
+            this.elapsed = elapsed;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the position of the first entity of this chunk in the input.
+         * The chunks of a sharded repository hold the entities of one shard, so
+         * their other entities are not the ones following this position.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getSucceeded() {
+            return size - failedEntities.size();
+        }
+
+        public List<T> getFailedEntities() {
+            return failedEntities;
+        }
+
+        /**
+         * Returns the exception that caused the chunk to fail, or {@literal null}
+         * if it was committed.
+         */
+        @Nullable
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        public boolean isSuccessful() {
+            return failedEntities.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk [index=" + index + ", offset=" + offset + ", size=" + size + ", failed="
+                    + failedEntities.size() + ", elapsed=" + elapsed + "]";
+        }
+    }
+}
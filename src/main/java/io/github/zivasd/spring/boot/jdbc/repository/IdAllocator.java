@@ -0,0 +1,30 @@
+package io.github.zivasd.spring.boot.jdbc.repository;
+
+/**
+ * Allocates the ids of new entities on the client before they are inserted.
+ * Batch inserts then carry provided ids and do not need the driver to return
+ * generated keys, which some drivers only support by executing the batch row by
+ * row.
+ * <p>
+ * An allocator is configured per repository set through
+ * {@link io.github.zivasd.spring.boot.jdbc.config.EnableMultipleJdbcRepositories#idAllocatorRef()}.
+ * Implementations must be thread safe.
+ */
+public interface IdAllocator {
+
+    /**
+     * Returns whether the ids of {@code domainType} are allocated by this
+     * allocator. Entities of other types keep their database generated ids.
+     */
+    default boolean supports(Class<?> domainType) {
+        return true;
+    }
+
+    /**
+     * Returns {@code count} ids that have not been returned before.
+     *
+     * @param domainType the type of the entities the ids are allocated for.
+     * @param count      the number of ids, must be positive.
+     */
+    long[] allocate(Class<?> domainType, int count);
+}
@@ -0,0 +1,18 @@
+package io.github.zivasd.spring.boot.jdbc.repository;
+
+/**
+ * How {@link BatchRepository} sends new entities to the database.
+ */
+public enum InsertMode {
+    /**
+     * One single row {@code INSERT} per entity, sent as a JDBC batch.
+     */
+    BATCH,
+
+    /**
+     * {@code INSERT ... VALUES (...), (...)} statements carrying many rows
+     * each. Falls back to {@link #BATCH} where the database or driver cannot
+     * return the generated keys of every row.
+     */
+    MULTI_VALUES
+}
@@ -0,0 +1,22 @@
+package io.github.zivasd.spring.boot.jdbc.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the property of an entity whose value selects the shard the entity is
+ * stored in, for repositories bound to a shard group through
+ * {@link io.github.zivasd.spring.boot.jdbc.config.EnableMultipleJdbcRepositories#shardGroup()}.
+ * Entities without such a property are sharded by their id.
+ * <p>
+ * The value must be set before the entity is saved and must not change
+ * afterwards, the entity would otherwise be looked up in the wrong shard.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD, ElementType.ANNOTATION_TYPE })
+public @interface ShardKey {
+}
@@ -0,0 +1,23 @@
+package io.github.zivasd.spring.boot.jdbc.repository;
+
+/**
+ * Maps the {@link ShardKey} of an entity to one of the shards of a shard
+ * group.
+ * <p>
+ * A strategy is configured per repository set through
+ * {@link io.github.zivasd.spring.boot.jdbc.config.EnableMultipleJdbcRepositories#shardingStrategyRef()}.
+ * It must return the same shard for the same key and shard count on every
+ * call and every JVM, and must be thread safe.
+ */
+public interface ShardingStrategy {
+
+    /**
+     * Returns the index of the shard holding the entities with the shard key
+     * {@code key}.
+     *
+     * @param key        the shard key, never {@literal null}.
+     * @param shardCount the number of shards of the group, positive.
+     * @return an index between {@literal 0} and {@code shardCount - 1}.
+     */
+    int getShard(Object key, int shardCount);
+}
@@ -0,0 +1,200 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.jdbc.core.convert.DataAccessStrategy;
+import org.springframework.data.jdbc.core.convert.Identifier;
+import org.springframework.data.jdbc.core.convert.InsertSubject;
+import org.springframework.data.jdbc.core.convert.JdbcConverter;
+import org.springframework.data.jdbc.core.convert.JdbcIdentifierBuilder;
+import org.springframework.data.mapping.PersistentPropertyPath;
+import org.springframework.data.relational.core.conversion.DbAction;
+import org.springframework.data.relational.core.conversion.IdValueSource;
+import org.springframework.data.relational.core.conversion.MutableAggregateChange;
+import org.springframework.data.relational.core.conversion.RelationalEntityInsertWriter;
+import org.springframework.data.relational.core.mapping.PersistentPropertyPathExtension;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+
+import io.github.zivasd.spring.boot.jdbc.repository.InsertMode;
+
+/**
+ * Writes the rows of a chunk of aggregates table by table. The referenced
+ * entities of all aggregates of a chunk are collected per property path and
+ * each path is written with one JDBC batch, after the ids of the parent rows
+ * are known.
+ */
+class BatchAggregateWriter<T> {
+
+    private final RelationalMappingContext context;
+    private final JdbcConverter converter;
+    private final DataAccessStrategy accessStrategy;
+    private final BatchDataAccessStrategy batchAccessStrategy;
+    private final BatchSettings settings;
+    private final RelationalPersistentEntity<T> persistentEntity;
+    private final List<PersistentPropertyPath<RelationalPersistentProperty>> referencedPaths;
+
+    BatchAggregateWriter(RelationalMappingContext context, JdbcConverter converter,
+            DataAccessStrategy accessStrategy, BatchDataAccessStrategy batchAccessStrategy, BatchSettings settings,
+            RelationalPersistentEntity<T> persistentEntity) {
+        this.context = context;
+        this.converter = converter;
+        this.accessStrategy = accessStrategy;
+        this.batchAccessStrategy = batchAccessStrategy;
+        this.settings = settings;
+        this.persistentEntity = persistentEntity;
+        this.referencedPaths = new ArrayList<>(context
+                .findPersistentPropertyPaths(persistentEntity.getType(), p -> p.isEntity() && !p.isEmbedded())
+                .toList());
+        this.referencedPaths.sort(Comparator.comparingInt(PersistentPropertyPath::getLength));
+    }
+
+    boolean hasReferencedEntities() {
+        return !referencedPaths.isEmpty();
+    }
+
+    /**
+     * Inserts rows of one table, using multi row inserts if configured.
+     *
+     * @return the generated ids in the order of {@code insertSubjects}.
+     */
+    <E> Object[] insert(List<InsertSubject<E>> insertSubjects, Class<E> domainType, IdValueSource idValueSource) {
+        if (settings.getInsertMode() == InsertMode.MULTI_VALUES
+                && batchAccessStrategy.supportsMultiValuesInsert(domainType, idValueSource)) {
+            return batchAccessStrategy.insert(insertSubjects, domainType, idValueSource,
+                    settings.getMaxRowsPerInsert());
+        }
+        return accessStrategy.insert(insertSubjects, domainType, idValueSource);
+    }
+
+    /**
+     * Inserts the referenced entities of the given aggregates, whose root rows
+     * must already exist. Paths are written from the root to the leaves so that
+     * generated ids of parents are available to their children.
+     */
+    void insertReferencedEntities(List<? extends T> roots) {
+        InsertGroups inserts = new InsertGroups();
+        RelationalEntityInsertWriter writer = new RelationalEntityInsertWriter(context);
+        for (T root : roots) {
+            MutableAggregateChange<T> aggregateChange = MutableAggregateChange.forSave(root);
+            writer.write(root, aggregateChange);
+            aggregateChange.forEachAction(action -> {
+                if (action instanceof DbAction.Insert) {
+                    inserts.add((DbAction.Insert<?>) action);
+                } else if (action instanceof DbAction.InsertBatch) {
+                    for (DbAction.Insert<?> insert : ((DbAction.InsertBatch<?>) action).getInserts()) {
+                        inserts.add(insert);
+                    }
+                }
+            });
+        }
+
+        Map<Object, Object> generatedIds = new IdentityHashMap<>();
+        for (PersistentPropertyPath<RelationalPersistentProperty> path : inserts.getPaths()) {
+            PersistentPropertyPathExtension pathExtension = new PersistentPropertyPathExtension(context, path);
+            for (Map.Entry<IdValueSource, List<DbAction.Insert<?>>> entry : inserts.get(path).entrySet()) {
+                insertReferencedEntities(pathExtension, entry.getKey(), entry.getValue(), generatedIds);
+            }
+        }
+    }
+
+    /**
+     * Deletes the referenced entities of the aggregates with the given ids,
+     * leaves first.
+     */
+    void deleteReferencedEntities(List<?> rootIds) {
+        for (int i = referencedPaths.size() - 1; i >= 0; --i) {
+            batchAccessStrategy.deleteByRootIds(rootIds, persistentEntity.getType(), referencedPaths.get(i));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> void insertReferencedEntities(PersistentPropertyPathExtension path, IdValueSource idValueSource,
+            List<DbAction.Insert<?>> actions, Map<Object, Object> generatedIds) {
+        Class<E> domainType = (Class<E>) actions.get(0).getEntityType();
+        List<InsertSubject<E>> insertSubjects = new ArrayList<>(actions.size());
+        for (DbAction.Insert<?> action : actions) {
+            insertSubjects.add(InsertSubject.describedBy((E) action.getEntity(),
+                    getParentKeys(action, path, generatedIds)));
+        }
+
+        Object[] ids = insert(insertSubjects, domainType, idValueSource);
+        if (idValueSource != IdValueSource.GENERATED) {
+            return;
+        }
+        CompiledEntity<E> entity = CompiledEntity.of(
+                (RelationalPersistentEntity<E>) context.getRequiredPersistentEntity(domainType), converter);
+        for (int i = 0; i < ids.length; ++i) {
+            E instance = insertSubjects.get(i).getInstance();
+            entity.setId(instance, ids[i]);
+            generatedIds.put(instance, ids[i]);
+        }
+    }
+
+    private Identifier getParentKeys(DbAction.Insert<?> action, PersistentPropertyPathExtension path,
+            Map<Object, Object> generatedIds) {
+        Object parentId = getParentId(action, path.getIdDefiningParentPath(), generatedIds);
+        JdbcIdentifierBuilder identifier = JdbcIdentifierBuilder.forBackReferences(converter, path, parentId);
+        for (Map.Entry<PersistentPropertyPath<RelationalPersistentProperty>, Object> qualifier : action
+                .getQualifiers().entrySet()) {
+            identifier = identifier.withQualifier(new PersistentPropertyPathExtension(context, qualifier.getKey()),
+                    qualifier.getValue());
+        }
+        return identifier.build();
+    }
+
+    /**
+     * Returns the id of the closest ancestor of {@code action} that has an id.
+     * Ids generated during this write are looked up in {@code generatedIds}, as
+     * immutable entities do not carry them.
+     */
+    private Object getParentId(DbAction.Insert<?> action, PersistentPropertyPathExtension idPath,
+            Map<Object, Object> generatedIds) {
+        DbAction.WithEntity<?> owner = action.getDependingOn();
+        while (owner instanceof DbAction.WithDependingOn
+                && !idPath.matches(((DbAction.WithDependingOn<?>) owner).getPropertyPath())) {
+            owner = ((DbAction.WithDependingOn<?>) owner).getDependingOn();
+        }
+        Object entity = owner.getEntity();
+        Object generatedId = generatedIds.get(entity);
+        if (generatedId != null) {
+            return generatedId;
+        }
+        return context.getRequiredPersistentEntity(entity.getClass()).getIdentifierAccessor(entity).getIdentifier();
+    }
+
+    /**
+     * The inserts of referenced entities grouped by property path and
+     * {@link IdValueSource}, each group being written as one batch.
+     */
+    private static class InsertGroups {
+
+        private final Map<PersistentPropertyPath<RelationalPersistentProperty>, //
+                Map<IdValueSource, List<DbAction.Insert<?>>>> groups = new LinkedHashMap<>();
+
+        void add(DbAction.Insert<?> insert) {
+            groups.computeIfAbsent(insert.getPropertyPath(), p -> new EnumMap<>(IdValueSource.class))
+                    .computeIfAbsent(insert.getIdValueSource(), s -> new ArrayList<>()).add(insert);
+        }
+
+        /**
+         * Returns the paths from the root to the leaves.
+         */
+        List<PersistentPropertyPath<RelationalPersistentProperty>> getPaths() {
+            List<PersistentPropertyPath<RelationalPersistentProperty>> paths = new ArrayList<>(groups.keySet());
+            paths.sort(Comparator.comparingInt(PersistentPropertyPath::getLength));
+            return paths;
+        }
+
+        Map<IdValueSource, List<DbAction.Insert<?>>> get(PersistentPropertyPath<RelationalPersistentProperty> path) {
+            return groups.get(path);
+        }
+    }
+}
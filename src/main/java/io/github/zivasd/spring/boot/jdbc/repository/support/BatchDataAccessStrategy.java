@@ -0,0 +1,170 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jdbc.core.convert.InsertSubject;
+import org.springframework.data.mapping.PersistentPropertyPath;
+import org.springframework.data.relational.core.conversion.IdValueSource;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.lang.Nullable;
+
+/**
+ * Abstraction for the set based write operations of {@link BatchJdbcRepository}.
+ * Where {@link org.springframework.data.jdbc.core.convert.DataAccessStrategy}
+ * issues one statement per aggregate root, implementations of this interface
+ * send all given rows to the database as a single JDBC batch.
+ */
+public interface BatchDataAccessStrategy {
+
+    /**
+     * Returns whether {@link #insert(List, Class, IdValueSource, int)} can be
+     * used for the given domain type on this database.
+     */
+    boolean supportsMultiValuesInsert(Class<?> domainType, IdValueSource idValueSource);
+
+    /**
+     * Inserts the given subjects with {@code INSERT ... VALUES (...), (...)}
+     * statements of at most {@code maxRowsPerStatement} rows, further limited
+     * by the number of bind parameters the database accepts.
+     *
+     * @param insertSubjects      the instances to insert together with their
+     *                            identifiers, must not be empty.
+     * @param domainType          the type of the instances, must not be
+     *                            {@literal null}.
+     * @param idValueSource       the {@link IdValueSource} of the instances.
+     * @param maxRowsPerStatement the maximum number of rows per statement, must
+     *                            be positive.
+     * @return the generated ids in the order of {@code insertSubjects}, or
+     *         {@literal null} elements if no ids were generated.
+     */
+    <T> Object[] insert(List<InsertSubject<T>> insertSubjects, Class<T> domainType, IdValueSource idValueSource,
+            int maxRowsPerStatement);
+
+    /**
+     * Updates the rows of the given instances in one JDBC batch.
+     *
+     * @param instances  the instances to update, must not be {@literal null}.
+     * @param domainType the type of the instances, must not be {@literal null}.
+     * @return the update count of every row, in the order of {@code instances}.
+     */
+    <T> int[] update(List<T> instances, Class<T> domainType);
+
+    /**
+     * Updates the rows of the given instances in one JDBC batch, only touching a
+     * row if its version still matches the previous version.
+     *
+     * @param instances        the instances to update, already carrying their
+     *                         new version, must not be {@literal null}.
+     * @param domainType       the type of the instances, must not be
+     *                         {@literal null}.
+     * @param previousVersions the version of each instance as read from the
+     *                         database, in the order of {@code instances}.
+     * @return the update count of every row, in the order of {@code instances}.
+     */
+    <T> int[] updateWithVersion(List<T> instances, Class<T> domainType, List<? extends Number> previousVersions);
+
+    /**
+     * Inserts the rows of the given instances or, where a row with the same id
+     * already exists, updates it, in one JDBC batch. The version of an updated
+     * row is incremented by the database.
+     *
+     * @param instances  the instances to write, all carrying an id, must not be
+     *                   {@literal null}.
+     * @param domainType the type of the instances, must not be {@literal null}.
+     * @return the update count of every row as reported by the driver, in the
+     *         order of {@code instances}.
+     * @throws UnsupportedOperationException if the database has no upsert
+     *                                       statement.
+     */
+    <T> int[] upsert(List<T> instances, Class<T> domainType);
+
+    /**
+     * Deletes the rows with the given ids using {@code DELETE ... WHERE id IN}
+     * statements of at most {@code maxIdsPerStatement} ids, further limited by
+     * the database. The {@code IN} lists are padded to a few fixed sizes.
+     *
+     * @param ids                the ids to delete, must not be {@literal null}.
+     * @param domainType         the type of the rows, must not be
+     *                           {@literal null}.
+     * @param maxIdsPerStatement the maximum number of ids per statement, must be
+     *                           positive.
+     * @return the number of deleted rows.
+     */
+    int deleteByIds(List<?> ids, Class<?> domainType, int maxIdsPerStatement);
+
+    /**
+     * Deletes the rows of the entities referenced through {@code path} by the
+     * aggregates with the given ids, using {@code IN} lists like
+     * {@link #deleteByIds(List, Class, int)}. Rows referenced by the deleted
+     * rows must have been deleted before.
+     *
+     * @param rootIds  the ids of the aggregate roots, must not be
+     *                 {@literal null}.
+     * @param rootType the type of the aggregate roots, must not be
+     *                 {@literal null}.
+     * @param path     the path from the root to the referenced entities.
+     * @return the number of deleted rows.
+     */
+    int deleteByRootIds(List<?> rootIds, Class<?> rootType,
+            PersistentPropertyPath<RelationalPersistentProperty> path);
+
+    /**
+     * Deletes the rows with the given ids in JDBC batches of at most as many
+     * rows as the largest {@code IN} list of the other deletes, only touching a
+     * row if its version still matches.
+     *
+     * @param ids              the ids to delete, must not be {@literal null}.
+     * @param domainType       the type of the rows, must not be {@literal null}.
+     * @param previousVersions the expected version of each row, in the order of
+     *                         {@code ids}.
+     * @return the update count of every row, in the order of {@code ids}.
+     */
+    int[] deleteWithVersion(List<?> ids, Class<?> domainType, List<? extends Number> previousVersions);
+
+    /**
+     * Streams all aggregates of {@code domainType} from a forward only cursor
+     * that is released when the stream is closed.
+     *
+     * @param fetchSize the number of rows fetched per round trip, {@literal 0}
+     *                  to use the fetch size of the datasource unit.
+     */
+    <T> Stream<T> streamAll(Class<T> domainType, int fetchSize);
+
+    /**
+     * Streams the aggregates with the given ids like {@link #streamAll}, reading
+     * them with one {@code IN} list statement per chunk of ids.
+     */
+    <T> Stream<T> streamAllById(List<?> ids, Class<T> domainType, int fetchSize);
+
+    /**
+     * Selects the aggregates with the given ids. The ids are bound as {@code IN}
+     * lists padded to a few fixed sizes, split where they exceed the largest of
+     * them or the limit of the database.
+     *
+     * @return the aggregates found, in no particular order.
+     */
+    <T> List<T> findAllByIdIn(List<?> ids, Class<T> domainType);
+
+    /**
+     * Selects the versions of the rows with the given ids, bound like those of
+     * {@link #findAllByIdIn(List, Class)}.
+     *
+     * @param domainType the type of the rows, must have a version property.
+     * @return the version of every row found, by id.
+     */
+    Map<Object, Number> findVersionsByIdIn(List<?> ids, Class<?> domainType);
+
+    /**
+     * Selects at most {@code limit} aggregates following {@code last} in the
+     * order of {@code sort}, which is completed by the id to be total. The
+     * position is taken from the values of the sort properties of {@code last},
+     * so no rows are skipped by an offset.
+     *
+     * @param last the last aggregate of the previous page, {@literal null} for
+     *             the first page.
+     */
+    <T> List<T> findAllAfter(@Nullable T last, Class<T> domainType, Sort sort, int limit);
+}
@@ -0,0 +1,239 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.springframework.data.relational.core.dialect.Db2Dialect;
+import org.springframework.data.relational.core.dialect.Dialect;
+import org.springframework.data.relational.core.dialect.H2Dialect;
+import org.springframework.data.relational.core.dialect.HsqlDbDialect;
+import org.springframework.data.relational.core.dialect.MySqlDialect;
+import org.springframework.data.relational.core.dialect.OracleDialect;
+import org.springframework.data.relational.core.dialect.PostgresDialect;
+import org.springframework.data.relational.core.dialect.SqlServerDialect;
+import org.springframework.lang.Nullable;
+
+/**
+ * Database specific capabilities of the batch operations that are not covered
+ * by the Spring Data {@link Dialect}.
+ */
+enum BatchDialect {
+
+    H2(H2Dialect.class, 65535, true, true) {
+        @Override
+        String upsert(UpsertColumns columns) {
+            return merge(columns, valuesSource(columns));
+        }
+    },
+    POSTGRES(PostgresDialect.class, 32767, true, true) {
+        @Override
+        String upsert(UpsertColumns columns) {
+            StringJoiner assignments = new StringJoiner(", ");
+            for (String column : columns.getUpdateColumns()) {
+                assignments.add(column + " = EXCLUDED." + column);
+            }
+            if (columns.getVersionColumn() != null) {
+                assignments.add(columns.getVersionColumn() + " = " + columns.getTable() + "."
+                        + columns.getVersionColumn() + " + 1");
+            }
+            return columns.insert() + " ON CONFLICT (" + columns.getIdColumn() + ") DO "
+                    + (assignments.length() == 0 ? "NOTHING" : "UPDATE SET " + assignments);
+        }
+    },
+    MYSQL(MySqlDialect.class, 65535, true, true) {
+        @Override
+        String upsert(UpsertColumns columns) {
+            StringJoiner assignments = new StringJoiner(", ");
+            for (String column : columns.getUpdateColumns()) {
+                assignments.add(column + " = VALUES(" + column + ")");
+            }
+            if (columns.getVersionColumn() != null) {
+                assignments.add(columns.getVersionColumn() + " = " + columns.getVersionColumn() + " + 1");
+            }
+            if (assignments.length() == 0) {
+                assignments.add(columns.getIdColumn() + " = " + columns.getIdColumn());
+            }
+            return columns.insert() + " ON DUPLICATE KEY UPDATE " + assignments;
+        }
+    },
+    SQLSERVER(SqlServerDialect.class, 2100, true, false) {
+        @Override
+        String upsert(UpsertColumns columns) {
+            return merge(columns, valuesSource(columns)) + ";";
+        }
+    },
+    // DB2 rejects untyped parameter markers in the MERGE source, so no upsert
+    DB2(Db2Dialect.class, 32767, true, false),
+    HSQLDB(HsqlDbDialect.class, 32767, true, false) {
+        @Override
+        String upsert(UpsertColumns columns) {
+            return merge(columns, valuesSource(columns));
+        }
+    },
+    ORACLE(OracleDialect.class, 65535, false, false) {
+        @Override
+        String upsert(UpsertColumns columns) {
+            return merge(columns, "(SELECT " + columns.selectList() + " FROM DUAL) source");
+        }
+    },
+    GENERIC(Dialect.class, 2100, false, false);
+
+    private final Class<? extends Dialect> dialectType;
+    private final int maxBindParameters;
+    private final boolean multiValuesInsert;
+    private final boolean multiValuesGeneratedKeys;
+
+    BatchDialect(Class<? extends Dialect> dialectType, int maxBindParameters, boolean multiValuesInsert,
+            boolean multiValuesGeneratedKeys) {
+        this.dialectType = dialectType;
+        this.maxBindParameters = maxBindParameters;
+        this.multiValuesInsert = multiValuesInsert;
+        this.multiValuesGeneratedKeys = multiValuesGeneratedKeys;
+    }
+
+    static BatchDialect of(Dialect dialect) {
+        for (BatchDialect batchDialect : values()) {
+            if (batchDialect.dialectType.isInstance(dialect)) {
+                return batchDialect;
+            }
+        }
+        return GENERIC;
+    }
+
+    /**
+     * The maximum number of bind parameters a single statement may carry.
+     */
+    int getMaxBindParameters() {
+        return maxBindParameters;
+    }
+
+    /**
+     * The maximum number of elements of an {@code IN} list.
+     */
+    int getMaxInListSize() {
+        return this == ORACLE ? 1000 : maxBindParameters;
+    }
+
+    /**
+     * Whether {@code INSERT ... VALUES (...), (...)} is supported.
+     */
+    boolean supportsMultiValuesInsert() {
+        return multiValuesInsert;
+    }
+
+    /**
+     * Whether the driver returns the generated keys of every row of a multi row
+     * insert.
+     */
+    boolean supportsMultiValuesGeneratedKeys() {
+        return multiValuesGeneratedKeys;
+    }
+
+    /**
+     * Creates a single row statement inserting a row or, if a row with the same
+     * id exists, updating it and incrementing its version.
+     *
+     * @throws UnsupportedOperationException if the database has no suitable
+     *                                       statement.
+     */
+    String upsert(UpsertColumns columns) {
+        throw new UnsupportedOperationException("Upsert is not supported for " + name());
+    }
+
+    /**
+     * Renders a standard {@code MERGE} statement. {@code usingClause} must expose
+     * the bound row under the alias {@code source}.
+     */
+    private static String merge(UpsertColumns columns, String usingClause) {
+        StringJoiner assignments = new StringJoiner(", ");
+        for (String column : columns.getUpdateColumns()) {
+            assignments.add(column + " = source." + column);
+        }
+        if (columns.getVersionColumn() != null) {
+            assignments.add(columns.getVersionColumn() + " = target." + columns.getVersionColumn() + " + 1");
+        }
+        StringJoiner sourceValues = new StringJoiner(", ");
+        for (String column : columns.getColumns()) {
+            sourceValues.add("source." + column);
+        }
+        StringBuilder sql = new StringBuilder("MERGE INTO ").append(columns.getTable()).append(" target USING ")
+                .append(usingClause).append(" ON (target.").append(columns.getIdColumn()).append(" = source.")
+                .append(columns.getIdColumn()).append(")");
+        if (assignments.length() > 0) {
+            sql.append(" WHEN MATCHED THEN UPDATE SET ").append(assignments);
+        }
+        sql.append(" WHEN NOT MATCHED THEN INSERT (").append(columns.columnList()).append(") VALUES (")
+                .append(sourceValues).append(")");
+        return sql.toString();
+    }
+
+    private static String valuesSource(UpsertColumns columns) {
+        return "(VALUES (" + columns.valueList() + ")) AS source (" + columns.columnList() + ")";
+    }
+
+    /**
+     * The rendered table, column and bind marker names of an upsert statement.
+     */
+    static class UpsertColumns {
+
+        private final String table;
+        private final List<String> columns;
+        private final List<String> values;
+        private final String idColumn;
+        private final String versionColumn;
+
+        UpsertColumns(String table, List<String> columns, List<String> values, String idColumn,
+                @Nullable String versionColumn) {
+            this.table = table;
+            this.columns = columns;
+            this.values = values;
+            this.idColumn = idColumn;
+            this.versionColumn = versionColumn;
+        }
+
+        String getTable() {
+            return table;
+        }
+
+        List<String> getColumns() {
+            return columns;
+        }
+
+        String getIdColumn() {
+            return idColumn;
+        }
+
+        @Nullable
+        String getVersionColumn() {
+            return versionColumn;
+        }
+
+        List<String> getUpdateColumns() {
+            List<String> updateColumns = new ArrayList<>(columns);
+            updateColumns.remove(idColumn);
+            updateColumns.remove(versionColumn);
+            return updateColumns;
+        }
+
+        String columnList() {
+            return String.join(", ", columns);
+        }
+
+        String valueList() {
+            return String.join(", ", values);
+        }
+
+        String selectList() {
+            StringJoiner selectList = new StringJoiner(", ");
+            for (int i = 0; i < columns.size(); ++i) {
+                selectList.add(values.get(i) + " AS " + columns.get(i));
+            }
+            return selectList.toString();
+        }
+
+        String insert() {
+            return "INSERT INTO " + table + " (" + columnList() + ") VALUES (" + valueList() + ")";
+        }
+    }
+}
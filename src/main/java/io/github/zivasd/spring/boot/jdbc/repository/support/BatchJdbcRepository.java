@@ -1,38 +1,77 @@
 package io.github.zivasd.spring.boot.jdbc.repository.support;
 
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jdbc.core.JdbcAggregateOperations;
 import org.springframework.data.jdbc.core.convert.DataAccessStrategy;
 import org.springframework.data.jdbc.core.convert.Identifier;
 import org.springframework.data.jdbc.core.convert.InsertSubject;
 import org.springframework.data.jdbc.core.convert.JdbcConverter;
 import org.springframework.data.jdbc.repository.support.SimpleJdbcRepository;
-import org.springframework.data.mapping.PersistentPropertyAccessor;
 import org.springframework.data.relational.core.conversion.IdValueSource;
 import org.springframework.data.relational.core.conversion.RelationalEntityVersionUtils;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
 import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
 import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
+import io.github.zivasd.spring.boot.jdbc.repository.BatchOptimisticLockingFailureException;
 import io.github.zivasd.spring.boot.jdbc.repository.BatchRepository;
+import io.github.zivasd.spring.boot.jdbc.repository.BatchResult;
+import io.github.zivasd.spring.boot.jdbc.repository.IdAllocator;
 
 @Transactional(readOnly = true)
 public class BatchJdbcRepository<T, ID> extends SimpleJdbcRepository<T, ID> implements BatchRepository<T, ID> {
     private final DataAccessStrategy accessStrategy;
+    private final BatchDataAccessStrategy batchAccessStrategy;
     private final RelationalPersistentEntity<T> persistentEntity;
     private final JdbcConverter converter;
+    private final BatchSettings settings;
+    private final boolean hasReferencedEntities;
+    private final BatchAggregateWriter<T> aggregateWriter;
+    private final ChunkedBatchExecutor chunkedExecutor;
+    private final CompiledEntity<T> compiledEntity;
 
-    public BatchJdbcRepository(DataAccessStrategy accessStrategy, JdbcAggregateOperations entityOperations,
+    public BatchJdbcRepository(DataAccessStrategy accessStrategy, BatchDataAccessStrategy batchAccessStrategy,
+            JdbcAggregateOperations entityOperations,
             RelationalPersistentEntity<T> persistentEntity,
-            JdbcConverter converter) {
+            JdbcConverter converter, BatchSettings settings,
+            @Nullable PlatformTransactionManager transactionManager) {
         super(entityOperations, persistentEntity, converter);
         Assert.notNull(accessStrategy, "DataAccessStrategy must not be null.");
+        Assert.notNull(batchAccessStrategy, "BatchDataAccessStrategy must not be null.");
+        Assert.notNull(settings, "BatchSettings must not be null.");
         this.accessStrategy = accessStrategy;
+        this.batchAccessStrategy = batchAccessStrategy;
         this.persistentEntity = persistentEntity;
         this.converter = converter;
+        this.compiledEntity = CompiledEntity.of(persistentEntity, converter);
+        this.settings = settings;
+        this.aggregateWriter = new BatchAggregateWriter<>((RelationalMappingContext) converter.getMappingContext(),
+                converter, accessStrategy, batchAccessStrategy, settings, persistentEntity);
+        this.hasReferencedEntities = aggregateWriter.hasReferencedEntities();
+        this.chunkedExecutor = transactionManager == null ? null
+                : ChunkedBatchExecutor.of(transactionManager, settings.getParallelism());
     }
 
     @Transactional
@@ -47,23 +86,366 @@ public class BatchJdbcRepository<T, ID> extends SimpleJdbcRepository<T, ID> impl
         Assert.notEmpty(entities, "Batch save must contain at least one entity");
         Assert.isTrue(batchSize >= 0, "batch size must not be negative.");
 
-        batchSize = batchSize == 0 ? entities.size() : batchSize;
-        List<InsertSubject<T>> insertSubjects = new ArrayList<>(entities.size());
-        List<T> updateSubjects = new ArrayList<>(batchSize);
+        doBatchSave(entities.iterator(), batchSize == 0 ? entities.size() : batchSize);
+        return entities;
+    }
+
+    @Transactional
+    @Override
+    public <S extends T> long batchSave(Iterable<S> entities, int batchSize) {
+        Assert.notNull(entities, "Entities must not be null.");
+        return batchSave(entities.iterator(), batchSize);
+    }
+
+    @Transactional
+    @Override
+    public <S extends T> long batchSave(Iterator<S> entities, int batchSize) {
+        Assert.notNull(entities, "Entities must not be null.");
+        Assert.isTrue(batchSize > 0, "batch size must be positive.");
+        return doBatchSave(entities, batchSize);
+    }
+
+    @Transactional
+    @Override
+    public <S extends T> long batchSave(Stream<S> entities, int batchSize) {
+        Assert.notNull(entities, "Entities must not be null.");
+        return batchSave(entities.iterator(), batchSize);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public <S extends T> BatchResult<S> batchSaveParallel(List<S> entities, int batchSize) {
+        Assert.notEmpty(entities, "Batch save must contain at least one entity");
+        Assert.isTrue(batchSize > 0, "batch size must be positive.");
+        Assert.state(chunkedExecutor != null, "Parallel batch save requires a transaction manager.");
+
+        return chunkedExecutor.executeParallel(entities, batchSize, this::saveChunk);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public <S extends T> BatchResult<S> batchSaveChunked(Iterable<S> entities, int batchSize) {
+        Assert.notNull(entities, "Entities must not be null.");
+        Assert.isTrue(batchSize > 0, "batch size must be positive.");
+        Assert.state(chunkedExecutor != null, "Chunked batch save requires a transaction manager.");
+
+        return chunkedExecutor.executeChunked(entities.iterator(), batchSize, settings.getChunkRetries(),
+                this::saveChunk);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    @Override
+    public Stream<T> streamAll() {
+        return batchAccessStrategy.streamAll(persistentEntity.getType(), 0);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    @Override
+    public Stream<T> streamAll(int fetchSize) {
+        Assert.isTrue(fetchSize > 0, "fetch size must be positive.");
+        return batchAccessStrategy.streamAll(persistentEntity.getType(), fetchSize);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    @Override
+    public Stream<T> streamAllById(Iterable<? extends ID> ids) {
+        return doStreamAllById(ids, 0);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    @Override
+    public Stream<T> streamAllById(Iterable<? extends ID> ids, int fetchSize) {
+        Assert.isTrue(fetchSize > 0, "fetch size must be positive.");
+        return doStreamAllById(ids, fetchSize);
+    }
+
+    @Override
+    public List<T> batchFindAllById(Collection<? extends ID> ids, int chunkSize) {
+        List<Object> distinctIds = distinctIds(ids, chunkSize);
+        List<T> found = new ArrayList<>(distinctIds.size());
+        for (int from = 0; from < distinctIds.size(); from += chunkSize) {
+            found.addAll(batchAccessStrategy.findAllByIdIn(
+                    distinctIds.subList(from, Math.min(from + chunkSize, distinctIds.size())),
+                    persistentEntity.getType()));
+        }
+        return inIdOrder(distinctIds, found);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public List<T> batchFindAllByIdParallel(Collection<? extends ID> ids, int chunkSize) {
+        Assert.state(chunkedExecutor != null, "Parallel batch find requires a transaction manager.");
+        List<Object> distinctIds = distinctIds(ids, chunkSize);
+        List<List<Object>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += chunkSize) {
+            chunks.add(distinctIds.subList(from, Math.min(from + chunkSize, distinctIds.size())));
+        }
+        List<T> found = chunkedExecutor.readParallel(chunks,
+                chunk -> batchAccessStrategy.findAllByIdIn(chunk, persistentEntity.getType()));
+        return inIdOrder(distinctIds, found);
+    }
+
+    /**
+     * Returns the ids converted to the type of the id property without their
+     * duplicates, so that they match the ids of the rows found.
+     */
+    private List<Object> distinctIds(Collection<? extends ID> ids, int chunkSize) {
+        Assert.notNull(ids, "Ids must not be null.");
+        Assert.isTrue(chunkSize > 0, "chunk size must be positive.");
+        Class<?> idType = persistentEntity.getRequiredIdProperty().getType();
+        Set<Object> distinctIds = new LinkedHashSet<>(ids.size());
+        for (ID id : ids) {
+            Assert.notNull(id, "Ids must not contain null.");
+            distinctIds.add(idType.isInstance(id) ? id : converter.getConversionService().convert(id, idType));
+        }
+        return new ArrayList<>(distinctIds);
+    }
+
+    private List<T> inIdOrder(List<Object> ids, List<T> found) {
+        Map<Object, T> byId = new HashMap<>(found.size() * 2);
+        for (T entity : found) {
+            byId.put(compiledEntity.getId(entity), entity);
+        }
+        List<T> result = new ArrayList<>(found.size());
+        for (Object id : ids) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Slice<T> findNextSlice(@Nullable T last, int limit) {
+        return findNextSlice(last, limit, Sort.unsorted());
+    }
+
+    @Override
+    public Slice<T> findNextSlice(@Nullable T last, int limit, Sort sort) {
+        Assert.isTrue(limit > 0, "limit must be positive.");
+        Assert.notNull(sort, "Sort must not be null.");
+        // one more row tells whether a next slice exists without counting
+        List<T> content = batchAccessStrategy.findAllAfter(last, persistentEntity.getType(), sort, limit + 1);
+        boolean hasNext = content.size() > limit;
+        if (hasNext) {
+            content = content.subList(0, limit);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, limit, sort), hasNext);
+    }
+
+    private Stream<T> doStreamAllById(Iterable<? extends ID> ids, int fetchSize) {
+        Assert.notNull(ids, "Ids must not be null.");
+        List<Object> idList = new ArrayList<>();
+        for (ID id : ids) {
+            Assert.notNull(id, "Ids must not contain null.");
+            idList.add(id);
+        }
+        return batchAccessStrategy.streamAllById(idList, persistentEntity.getType(), fetchSize);
+    }
+
+    @Transactional
+    @Override
+    public <S extends T> List<S> batchUpsert(List<S> entities, int batchSize) {
+        Assert.notEmpty(entities, "Batch upsert must contain at least one entity");
+        Assert.isTrue(batchSize >= 0, "batch size must not be negative.");
+        Assert.state(!hasReferencedEntities, () -> String.format(
+                "Upsert of %s is not supported because it references other entities.",
+                persistentEntity.getType().getName()));
+
+        int chunkSize = batchSize == 0 ? entities.size() : batchSize;
+        List<T> chunk = new ArrayList<>(Math.min(chunkSize, entities.size()));
+        for (int i = 0; i < entities.size(); ++i) {
+            S entity = entities.get(i);
+            Assert.notNull(compiledEntity.getId(entity), "Entities to upsert must have an id.");
+            chunk.add(prepareVersionForUpsert(entity));
+            if (chunk.size() == chunkSize) {
+                upsertChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            upsertChunk(chunk);
+        }
+        return entities;
+    }
+
+    @Transactional
+    @Override
+    public <S extends T> void batchDelete(List<S> entities) {
+        Assert.notNull(entities, "Entities must not be null.");
+        if (entities.isEmpty()) {
+            return;
+        }
+        if (hasReferencedEntities) {
+            this.deleteAll(entities);
+            return;
+        }
+
+        List<Object> ids = new ArrayList<>(entities.size());
+        for (S entity : entities) {
+            Object id = compiledEntity.getId(entity);
+            Assert.notNull(id, "Entities to delete must have an id.");
+            ids.add(id);
+        }
+        if (!persistentEntity.hasVersionProperty()) {
+            deleteChunk(ids, ids.size());
+            return;
+        }
+
+        List<Number> previousVersions = new ArrayList<>(entities.size());
+        for (S entity : entities) {
+            Number previousVersion = RelationalEntityVersionUtils.getVersionNumberFromEntity(entity,
+                    persistentEntity, converter);
+            Assert.notNull(previousVersion,
+                    "The root aggregate cannot be deleted because the version property is null.");
+            previousVersions.add(previousVersion);
+        }
+        int[] updateCounts = settings.getMetrics().record(persistentEntity.getType(), BatchMetrics.DELETE, false,
+                ids.size(), () -> batchAccessStrategy.deleteWithVersion(ids, persistentEntity.getType(),
+                        previousVersions));
+        assertUpdateCountsKnown(updateCounts, "delete");
+        List<T> staleEntities = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; ++i) {
+            if (updateCounts[i] == 0) {
+                staleEntities.add(entities.get(i));
+            }
+        }
+        if (!staleEntities.isEmpty()) {
+            throw new BatchOptimisticLockingFailureException(persistentEntity.getType(), staleEntities);
+        }
+    }
+
+    @Transactional
+    @Override
+    public void batchDeleteAllById(Iterable<? extends ID> ids, int chunkSize) {
+        Assert.notNull(ids, "Ids must not be null.");
+        Assert.isTrue(chunkSize > 0, "chunk size must be positive.");
+        if (hasReferencedEntities) {
+            this.deleteAllById(ids);
+            return;
+        }
+
+        List<Object> chunk = new ArrayList<>();
+        for (ID id : ids) {
+            Assert.notNull(id, "Ids must not contain null.");
+            chunk.add(id);
+            if (chunk.size() == chunkSize) {
+                deleteChunk(chunk, chunkSize);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            deleteChunk(chunk, chunkSize);
+        }
+    }
+
+    private void upsertChunk(List<T> chunk) {
+        settings.getMetrics().record(persistentEntity.getType(), BatchMetrics.UPSERT, false, chunk.size(),
+                () -> batchAccessStrategy.upsert(chunk, persistentEntity.getType()));
+        if (persistentEntity.hasVersionProperty()) {
+            readVersions(chunk);
+        }
+    }
+
+    /**
+     * Sets the versions of the rows on the entities, which the database
+     * incremented for the rows that already existed.
+     */
+    private void readVersions(List<T> entities) {
+        List<Object> ids = new ArrayList<>(entities.size());
         for (T entity : entities) {
+            ids.add(compiledEntity.getId(entity));
+        }
+        Map<Object, Number> versions = batchAccessStrategy.findVersionsByIdIn(ids, persistentEntity.getType());
+        for (int i = 0; i < entities.size(); ++i) {
+            Number version = versions.get(ids.get(i));
+            if (version != null) {
+                RelationalEntityVersionUtils.setVersionNumberOnEntity(entities.get(i), version, persistentEntity,
+                        converter);
+            }
+        }
+    }
+
+    private void deleteChunk(List<Object> ids, int maxIdsPerStatement) {
+        settings.getMetrics().record(persistentEntity.getType(), BatchMetrics.DELETE, false, ids.size(),
+                () -> batchAccessStrategy.deleteByIds(ids, persistentEntity.getType(), maxIdsPerStatement));
+    }
+
+    /**
+     * Pulls the entities from {@code entities} and flushes inserts and updates
+     * every {@code batchSize} rows, so only the current chunk is held in memory.
+     *
+     * @return the number of saved entities.
+     */
+    private long doBatchSave(Iterator<? extends T> entities, int batchSize) {
+        List<InsertSubject<T>> insertSubjects = new ArrayList<>(batchSize);
+        List<T> updateSubjects = new ArrayList<>(batchSize);
+        List<T> staleEntities = new ArrayList<>();
+        long count = 0;
+        while (entities.hasNext()) {
+            T entity = entities.next();
             if (persistentEntity.isNew(entity)) {
                 submitInsertSubject(insertSubjects, entity, batchSize);
             } else {
-                updateSubjects.add(entity);
+                submitUpdateSubject(updateSubjects, entity, batchSize, staleEntities);
             }
+            ++count;
         }
         if (!insertSubjects.isEmpty()) {
             batchInsert(insertSubjects);
         }
         if (!updateSubjects.isEmpty()) {
-            this.saveAll(updateSubjects);
+            batchUpdate(updateSubjects, staleEntities);
+        }
+        if (!staleEntities.isEmpty()) {
+            throw new BatchOptimisticLockingFailureException(persistentEntity.getType(), staleEntities);
+        }
+        return count;
+    }
+
+    /**
+     * Saves {@code chunk} in the current transaction. If the transaction does
+     * not commit, whether the save or the commit fails, the ids and versions
+     * the entities had before are restored, so the rolled back chunk can be
+     * written again.
+     */
+    private <S extends T> void saveChunk(List<S> chunk) {
+        RelationalPersistentProperty idProperty = persistentEntity.getRequiredIdProperty();
+        RelationalPersistentProperty versionProperty = persistentEntity.getVersionProperty();
+        Object[] ids = new Object[chunk.size()];
+        Object[] versions = new Object[chunk.size()];
+        for (int i = 0; i < chunk.size(); ++i) {
+            ids[i] = compiledEntity.getProperty(chunk.get(i), idProperty);
+            versions[i] = versionProperty == null ? null : compiledEntity.getProperty(chunk.get(i), versionProperty);
+        }
+        Runnable restore = () -> {
+            for (int i = 0; i < chunk.size(); ++i) {
+                compiledEntity.setProperty(chunk.get(i), idProperty, ids[i]);
+                if (versionProperty != null) {
+                    compiledEntity.setProperty(chunk.get(i), versionProperty, versions[i]);
+                }
+            }
+        };
+        boolean synchronizedTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        if (synchronizedTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore.run();
+                    }
+                }
+            });
+        }
+        try {
+            doBatchSave(chunk.iterator(), chunk.size());
+        } catch (RuntimeException e) {
+            if (!synchronizedTransaction) {
+                restore.run();
+            }
+            throw e;
         }
-        return entities;
     }
 
     private <S extends T> void submitInsertSubject(List<InsertSubject<T>> entities, T entity, int batchSize) {
@@ -78,20 +460,136 @@ public class BatchJdbcRepository<T, ID> extends SimpleJdbcRepository<T, ID> impl
     private void batchInsert(List<InsertSubject<T>> entities) {
         IdValueSource idValueSource = IdValueSource.forInstance(entities.get(0).getInstance(),
                 persistentEntity);
-
-        Object[] ids = accessStrategy.insert(entities, persistentEntity.getType(), idValueSource);
-        if (idValueSource == IdValueSource.GENERATED) {
+        IdAllocator idAllocator = settings.getIdAllocator();
+        if (idValueSource == IdValueSource.GENERATED && idAllocator != null
+                && idAllocator.supports(persistentEntity.getType())) {
+            long[] ids = idAllocator.allocate(persistentEntity.getType(), entities.size());
             for (int i = 0; i < ids.length; ++i) {
                 setId(entities.get(i).getInstance(), ids[i]);
             }
+            idValueSource = IdValueSource.PROVIDED;
+        }
+
+        IdValueSource rootIdValueSource = idValueSource;
+        settings.getMetrics().record(persistentEntity.getType(), BatchMetrics.INSERT,
+                idValueSource == IdValueSource.GENERATED, entities.size(), () -> {
+                    insertChunk(entities, rootIdValueSource);
+                    return null;
+                });
+    }
+
+    private void insertChunk(List<InsertSubject<T>> entities, IdValueSource idValueSource) {
+        Object[] ids = aggregateWriter.insert(entities, persistentEntity.getType(), idValueSource);
+        List<T> instances = new ArrayList<>(entities.size());
+        for (int i = 0; i < entities.size(); ++i) {
+            T instance = entities.get(i).getInstance();
+            instances.add(idValueSource == IdValueSource.GENERATED ? setId(instance, ids[i]) : instance);
+        }
+        if (hasReferencedEntities) {
+            aggregateWriter.insertReferencedEntities(instances);
+        }
+    }
+
+    private void submitUpdateSubject(List<T> entities, T entity, int batchSize, List<T> staleEntities) {
+        entities.add(entity);
+        if (entities.size() == batchSize) {
+            batchUpdate(entities, staleEntities);
+            entities.clear();
         }
     }
 
+    /**
+     * Updates the given entities in one JDBC batch. Versioned entities whose
+     * version no longer matches the database are collected in
+     * {@code staleEntities} with their version left unchanged.
+     * <p>
+     * Referenced entities of the updated aggregates are replaced: the existing
+     * rows are deleted and the current ones inserted, one statement or batch
+     * per table for all aggregates together.
+     */
+    private void batchUpdate(List<T> entities, List<T> staleEntities) {
+        settings.getMetrics().record(persistentEntity.getType(), BatchMetrics.UPDATE, false, entities.size(),
+                () -> {
+                    updateChunk(entities, staleEntities);
+                    return null;
+                });
+    }
+
+    private void updateChunk(List<T> entities, List<T> staleEntities) {
+        if (!persistentEntity.hasVersionProperty()) {
+            int[] updateCounts = batchAccessStrategy.update(entities, persistentEntity.getType());
+            assertUpdateCountsKnown(updateCounts, "update");
+            int missing = 0;
+            for (int updateCount : updateCounts) {
+                if (updateCount == 0) {
+                    ++missing;
+                }
+            }
+            if (missing > 0) {
+                throw new IncorrectUpdateSemanticsDataAccessException(
+                        String.format("Failed to update %d entities of type %s. Ids not found in database.",
+                                missing, persistentEntity.getType().getName()));
+            }
+            replaceReferencedEntities(entities);
+            return;
+        }
+
+        List<T> instances = new ArrayList<>(entities.size());
+        List<Number> previousVersions = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            Number previousVersion = RelationalEntityVersionUtils.getVersionNumberFromEntity(entity,
+                    persistentEntity, converter);
+            Assert.notNull(previousVersion,
+                    "The root aggregate cannot be updated because the version property is null.");
+            previousVersions.add(previousVersion);
+            instances.add(RelationalEntityVersionUtils.setVersionNumberOnEntity(entity,
+                    previousVersion.longValue() + 1, persistentEntity, converter));
+        }
+
+        int[] updateCounts = batchAccessStrategy.updateWithVersion(instances, persistentEntity.getType(),
+                previousVersions);
+        assertUpdateCountsKnown(updateCounts, "update");
+        List<T> updated = new ArrayList<>(instances.size());
+        for (int i = 0; i < updateCounts.length; ++i) {
+            if (updateCounts[i] == 0) {
+                staleEntities.add(RelationalEntityVersionUtils.setVersionNumberOnEntity(instances.get(i),
+                        previousVersions.get(i), persistentEntity, converter));
+            } else {
+                updated.add(instances.get(i));
+            }
+        }
+        replaceReferencedEntities(updated);
+    }
+
+    /**
+     * Fails if the driver reported {@link Statement#SUCCESS_NO_INFO} for rows
+     * of a batch, as rows not found or with a stale version can then not be
+     * told apart from written ones. The surrounding transaction is rolled back.
+     */
+    private void assertUpdateCountsKnown(int[] updateCounts, String operation) {
+        for (int updateCount : updateCounts) {
+            if (updateCount == Statement.SUCCESS_NO_INFO) {
+                throw new IncorrectUpdateSemanticsDataAccessException(String.format(
+                        "Failed to batch %s entities of type %s. The driver does not report the update count of the rows.",
+                        operation, persistentEntity.getType().getName()));
+            }
+        }
+    }
+
+    private void replaceReferencedEntities(List<T> entities) {
+        if (!hasReferencedEntities || entities.isEmpty()) {
+            return;
+        }
+        List<Object> ids = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            ids.add(compiledEntity.getId(entity));
+        }
+        aggregateWriter.deleteReferencedEntities(ids);
+        aggregateWriter.insertReferencedEntities(entities);
+    }
+
     private T setId(T instance, Object id) {
-        PersistentPropertyAccessor<T> propertyAccessor = converter.getPropertyAccessor(persistentEntity, instance);
-        RelationalPersistentProperty idProperty = persistentEntity.getRequiredIdProperty();
-        propertyAccessor.setProperty(idProperty, id);
-        return propertyAccessor.getBean();
+        return compiledEntity.setId(instance, id);
     }
 
     private T prepareVersionForInsert(T instance) {
@@ -104,4 +602,22 @@ public class BatchJdbcRepository<T, ID> extends SimpleJdbcRepository<T, ID> impl
         }
         return preparedInstance;
     }
+
+    /**
+     * Sets the initial version on entities without one, which is the version a
+     * newly inserted row gets. Rows that already exist get their version
+     * incremented by the database instead.
+     */
+    private T prepareVersionForUpsert(T instance) {
+        if (!persistentEntity.hasVersionProperty()) {
+            return instance;
+        }
+        Number version = RelationalEntityVersionUtils.getVersionNumberFromEntity(instance, persistentEntity,
+                converter);
+        if (version == null || version.longValue() == 0) {
+            return prepareVersionForInsert(instance);
+        }
+        return instance;
+    }
+
 }
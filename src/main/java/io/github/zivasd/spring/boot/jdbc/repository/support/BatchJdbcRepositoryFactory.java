@@ -14,6 +14,8 @@ import org.springframework.data.repository.core.RepositoryInformation;
 import org.springframework.data.repository.core.RepositoryMetadata;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.Assert;
 
 public class BatchJdbcRepositoryFactory extends JdbcRepositoryFactory {
 
@@ -21,32 +23,72 @@ public class BatchJdbcRepositoryFactory extends JdbcRepositoryFactory {
     private final JdbcConverter converter;
     private final ApplicationEventPublisher publisher;
     private final DataAccessStrategy accessStrategy;
+    private final BatchDataAccessStrategy batchAccessStrategy;
 
     @Nullable
     private BeanFactory beanFactory;
 
     private EntityCallbacks entityCallbacks;
 
+    private BatchSettings batchSettings = new BatchSettings();
+
+    @Nullable
+    private PlatformTransactionManager transactionManager;
+
+    @Nullable
+    private JdbcAggregateTemplate aggregateTemplate;
+
     /**
      * Creates a new {@link BatchJdbcRepositoryFactory} for the given
-     * {@link DataAccessStrategy},
+     * {@link DataAccessStrategy}, {@link BatchDataAccessStrategy},
      * {@link RelationalMappingContext} and {@link ApplicationEventPublisher}.
      *
-     * @param dataAccessStrategy must not be {@literal null}.
-     * @param context            must not be {@literal null}.
-     * @param converter          must not be {@literal null}.
-     * @param dialect            must not be {@literal null}.
-     * @param publisher          must not be {@literal null}.
-     * @param operations         must not be {@literal null}.
+     * @param dataAccessStrategy      must not be {@literal null}.
+     * @param batchDataAccessStrategy must not be {@literal null}.
+     * @param context                 must not be {@literal null}.
+     * @param converter               must not be {@literal null}.
+     * @param dialect                 must not be {@literal null}.
+     * @param publisher               must not be {@literal null}.
+     * @param operations              must not be {@literal null}.
      */
-    public BatchJdbcRepositoryFactory(DataAccessStrategy dataAccessStrategy, RelationalMappingContext context,
+    public BatchJdbcRepositoryFactory(DataAccessStrategy dataAccessStrategy,
+            BatchDataAccessStrategy batchDataAccessStrategy, RelationalMappingContext context,
             JdbcConverter converter, Dialect dialect, ApplicationEventPublisher publisher,
             NamedParameterJdbcOperations operations) {
-        super(dataAccessStrategy, context, converter, dialect, publisher, operations);
+        super(dataAccessStrategy, context, converter, dialect, publisher,
+                CursorNamedParameterJdbcTemplate.of(operations));
         this.publisher = publisher;
         this.context = context;
         this.converter = converter;
         this.accessStrategy = dataAccessStrategy;
+        this.batchAccessStrategy = batchDataAccessStrategy;
+    }
+
+    /**
+     * @param batchSettings must not be {@literal null}.
+     */
+    public void setBatchSettings(BatchSettings batchSettings) {
+        Assert.notNull(batchSettings, "BatchSettings must not be null");
+        this.batchSettings = batchSettings;
+    }
+
+    /**
+     * @param transactionManager the transaction manager of the datasource unit,
+     *                           used by the batch operations that commit chunk by
+     *                           chunk. Can be {@literal null}.
+     */
+    public void setTransactionManager(@Nullable PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * @param aggregateTemplate the template shared by the repositories of the
+     *                          datasource unit, which must use the
+     *                          {@link DataAccessStrategy} of this factory. Can be
+     *                          {@literal null} to create one per repository.
+     */
+    public void setAggregateTemplate(@Nullable JdbcAggregateTemplate aggregateTemplate) {
+        this.aggregateTemplate = aggregateTemplate;
     }
 
     /*
@@ -60,17 +102,20 @@ public class BatchJdbcRepositoryFactory extends JdbcRepositoryFactory {
     @Override
     protected Object getTargetRepository(RepositoryInformation repositoryInformation) {
 
-        JdbcAggregateTemplate template = new JdbcAggregateTemplate(publisher, context, converter, accessStrategy);
-
-        if (entityCallbacks != null) {
-            template.setEntityCallbacks(entityCallbacks);
+        JdbcAggregateTemplate template = aggregateTemplate;
+        if (template == null) {
+            template = new JdbcAggregateTemplate(publisher, context, converter, accessStrategy);
+            if (entityCallbacks != null) {
+                template.setEntityCallbacks(entityCallbacks);
+            }
         }
 
         RelationalPersistentEntity<?> persistentEntity = context
                 .getRequiredPersistentEntity(repositoryInformation.getDomainType());
 
-        return instantiateClass(repositoryInformation.getRepositoryBaseClass(), accessStrategy, template,
-                persistentEntity, converter);
+        return instantiateClass(repositoryInformation.getRepositoryBaseClass(), accessStrategy,
+                batchAccessStrategy, template,
+                persistentEntity, converter, batchSettings, transactionManager);
     }
 
     /*
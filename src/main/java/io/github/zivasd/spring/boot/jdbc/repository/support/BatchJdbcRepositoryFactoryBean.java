@@ -1,8 +1,14 @@
 package io.github.zivasd.spring.boot.jdbc.repository.support;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.jdbc.core.convert.BatchJdbcOperations;
@@ -17,24 +23,49 @@ import org.springframework.data.mapping.callback.EntityCallbacks;
 import org.springframework.data.relational.core.dialect.Dialect;
 import org.springframework.data.relational.core.mapping.RelationalMappingContext;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.NamedQueries;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
 import org.springframework.data.repository.core.support.TransactionalRepositoryFactoryBeanSupport;
+import org.springframework.data.repository.query.QueryLookupStrategy;
+import org.springframework.data.repository.query.QueryMethodEvaluationContextProvider;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import io.github.zivasd.spring.boot.jdbc.repository.IdAllocator;
+import io.github.zivasd.spring.boot.jdbc.repository.InsertMode;
+import io.github.zivasd.spring.boot.jdbc.repository.ShardingStrategy;
 
 public class BatchJdbcRepositoryFactoryBean<T extends Repository<S, ID>, S, ID extends Serializable>
         extends TransactionalRepositoryFactoryBeanSupport<T, S, ID> {
 
+    private static final boolean MICROMETER_PRESENT = ClassUtils.isPresent(
+            "io.micrometer.core.instrument.MeterRegistry", BatchJdbcRepositoryFactoryBean.class.getClassLoader());
+    private static final String OPERATIONS_BEAN_SUFFIX = "NamedParameterJdbcTemplate";
+    private static final String TRANSACTION_MANAGER_BEAN_SUFFIX = "TransactionManager";
+
     private ApplicationEventPublisher publisher;
     private BeanFactory beanFactory;
     private RelationalMappingContext mappingContext;
     private JdbcConverter converter;
     private DataAccessStrategy dataAccessStrategy;
+    private BatchDataAccessStrategy batchDataAccessStrategy;
     private QueryMappingConfiguration queryMappingConfiguration = QueryMappingConfiguration.EMPTY;
     private NamedParameterJdbcOperations operations;
     private EntityCallbacks entityCallbacks;
     private Dialect dialect;
+    private String transactionManagerName;
+    private UnitRepositorySupport repositorySupport;
+    private final BatchSettings batchSettings = new BatchSettings();
+    private ShardGroup shardGroup;
+    private ShardingStrategy shardingStrategy = new HashShardingStrategy();
+    private List<T> shardRepositories = Collections.emptyList();
+    private final List<Consumer<BatchJdbcRepositoryFactoryBean<T, S, ID>>> repositorySettings = new ArrayList<>();
 
     /**
      * Creates a new {@link BatchJdbcRepositoryFactoryBean} for the given
@@ -68,15 +99,143 @@ public class BatchJdbcRepositoryFactoryBean<T extends Repository<S, ID>, S, ID e
     @NonNull
     protected RepositoryFactorySupport doCreateRepositoryFactory() {
         BatchJdbcRepositoryFactory jdbcRepositoryFactory = new BatchJdbcRepositoryFactory(dataAccessStrategy,
-                mappingContext,
+                batchDataAccessStrategy, mappingContext,
                 converter, dialect, publisher, operations);
         jdbcRepositoryFactory.setQueryMappingConfiguration(queryMappingConfiguration);
         jdbcRepositoryFactory.setEntityCallbacks(entityCallbacks);
         jdbcRepositoryFactory.setBeanFactory(beanFactory);
+        jdbcRepositoryFactory.setBatchSettings(batchSettings);
+        jdbcRepositoryFactory.setTransactionManager(resolveTransactionManager());
+        if (repositorySupport != null && repositorySupport.getDataAccessStrategy() == dataAccessStrategy) {
+            jdbcRepositoryFactory.setAggregateTemplate(repositorySupport.getAggregateTemplate());
+        }
+        batchSettings.setMetrics(resolveMetrics());
+        if (shardGroup != null) {
+            jdbcRepositoryFactory.addRepositoryProxyPostProcessor((factory, information) -> factory.addAdvice(
+                    new ShardRoutingInterceptor(shardGroup, shardingStrategy, shardRepositories,
+                            mappingContext.getRequiredPersistentEntity(information.getDomainType()),
+                            information.getIdType(), converter.getConversionService())));
+        }
 
         return jdbcRepositoryFactory;
     }
 
+    @Nullable
+    private PlatformTransactionManager resolveTransactionManager() {
+        if (beanFactory == null || !StringUtils.hasText(transactionManagerName)
+                || !beanFactory.containsBean(transactionManagerName)) {
+            return null;
+        }
+        return beanFactory.getBean(transactionManagerName, PlatformTransactionManager.class);
+    }
+
+    private BatchMetrics resolveMetrics() {
+        if (!MICROMETER_PRESENT || !(beanFactory instanceof ListableBeanFactory)) {
+            return BatchMetrics.NONE;
+        }
+        return MicrometerBatchMetrics.create(beanFactory, resolveUnitName((ListableBeanFactory) beanFactory));
+    }
+
+    /**
+     * Derives the datasource unit from the name of the
+     * {@code <unit>NamedParameterJdbcTemplate} bean the repository is bound to.
+     */
+    private String resolveUnitName(ListableBeanFactory listableBeanFactory) {
+        for (Map.Entry<String, NamedParameterJdbcOperations> entry : listableBeanFactory
+                .getBeansOfType(NamedParameterJdbcOperations.class).entrySet()) {
+            if (entry.getValue() == operations) {
+                String name = entry.getKey();
+                return name.endsWith(OPERATIONS_BEAN_SUFFIX)
+                        ? name.substring(0, name.length() - OPERATIONS_BEAN_SUFFIX.length())
+                        : name;
+            }
+        }
+        return "default";
+    }
+
+    /**
+     * Creates the repository of one shard of the group, a repository bound to
+     * the unit of the shard with the settings of this factory bean.
+     */
+    private T createShardRepository(String unit) {
+        BatchJdbcRepositoryFactoryBean<T, S, ID> shard = new BatchJdbcRepositoryFactoryBean<>(getObjectType());
+        repositorySettings.forEach(setting -> setting.accept(shard));
+        shard.setTransactionManager(unit + TRANSACTION_MANAGER_BEAN_SUFFIX);
+        shard.setJdbcOperations(beanFactory.getBean(unit + OPERATIONS_BEAN_SUFFIX, NamedParameterJdbcOperations.class));
+        String repositorySupportName = unit + OPERATIONS_BEAN_SUFFIX + UnitRepositorySupport.BEAN_NAME_SUFFIX;
+        if (beanFactory.containsBean(repositorySupportName)) {
+            shard.setRepositorySupport(beanFactory.getBean(repositorySupportName, UnitRepositorySupport.class));
+        }
+        shard.setMappingContext(mappingContext);
+        shard.setConverter(converter);
+        shard.setDialect(dialect);
+        shard.setQueryMappingConfiguration(queryMappingConfiguration);
+        shard.setInsertMode(batchSettings.getInsertMode());
+        shard.setMaxRowsPerInsert(batchSettings.getMaxRowsPerInsert());
+        shard.setParallelism(batchSettings.getParallelism());
+        shard.setChunkRetries(batchSettings.getChunkRetries());
+        shard.setIdAllocator(batchSettings.getIdAllocator());
+        shard.setBeanFactory(beanFactory);
+        if (publisher != null) {
+            shard.setApplicationEventPublisher(publisher);
+        }
+        shard.afterPropertiesSet();
+        return shard.getObject();
+    }
+
+    /*
+     * The settings of the repository definition are replayed on the factory
+     * beans of the shards.
+     */
+
+    @Override
+    public void setRepositoryBaseClass(Class<?> repositoryBaseClass) {
+        super.setRepositoryBaseClass(repositoryBaseClass);
+        repositorySettings.add(shard -> shard.setRepositoryBaseClass(repositoryBaseClass));
+    }
+
+    @Override
+    public void setQueryLookupStrategyKey(QueryLookupStrategy.Key queryLookupStrategyKey) {
+        super.setQueryLookupStrategyKey(queryLookupStrategyKey);
+        repositorySettings.add(shard -> shard.setQueryLookupStrategyKey(queryLookupStrategyKey));
+    }
+
+    @Override
+    public void setCustomImplementation(Object customImplementation) {
+        super.setCustomImplementation(customImplementation);
+        repositorySettings.add(shard -> shard.setCustomImplementation(customImplementation));
+    }
+
+    @Override
+    public void setRepositoryFragments(RepositoryFragments repositoryFragments) {
+        super.setRepositoryFragments(repositoryFragments);
+        repositorySettings.add(shard -> shard.setRepositoryFragments(repositoryFragments));
+    }
+
+    @Override
+    public void setNamedQueries(NamedQueries namedQueries) {
+        super.setNamedQueries(namedQueries);
+        repositorySettings.add(shard -> shard.setNamedQueries(namedQueries));
+    }
+
+    @Override
+    public void setEvaluationContextProvider(QueryMethodEvaluationContextProvider evaluationContextProvider) {
+        super.setEvaluationContextProvider(evaluationContextProvider);
+        repositorySettings.add(shard -> shard.setEvaluationContextProvider(evaluationContextProvider));
+    }
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        super.setBeanClassLoader(classLoader);
+        repositorySettings.add(shard -> shard.setBeanClassLoader(classLoader));
+    }
+
+    @Override
+    public void setTransactionManager(String transactionManager) {
+        super.setTransactionManager(transactionManager);
+        this.transactionManagerName = transactionManager;
+    }
+
     @Autowired
     public void setMappingContext(RelationalMappingContext mappingContext) {
         Assert.notNull(mappingContext, "MappingContext must not be null");
@@ -98,6 +257,14 @@ public class BatchJdbcRepositoryFactoryBean<T extends Repository<S, ID>, S, ID e
         this.dataAccessStrategy = dataAccessStrategy;
     }
 
+    /**
+     * @param batchDataAccessStrategy can be {@literal null}.
+     */
+    public void setBatchDataAccessStrategy(BatchDataAccessStrategy batchDataAccessStrategy) {
+        Assert.notNull(batchDataAccessStrategy, "BatchDataAccessStrategy must not be null");
+        this.batchDataAccessStrategy = batchDataAccessStrategy;
+    }
+
     /**
      * @param queryMappingConfiguration can be {@literal null}.
      *                                  {@link #afterPropertiesSet()} defaults to
@@ -115,6 +282,79 @@ public class BatchJdbcRepositoryFactoryBean<T extends Repository<S, ID>, S, ID e
         this.operations = operations;
     }
 
+    /**
+     * The operations the repository is bound to, identifying its datasource
+     * unit.
+     */
+    public NamedParameterJdbcOperations getJdbcOperations() {
+        return operations;
+    }
+
+    /**
+     * @param repositorySupport the data access objects shared by the
+     *                          repositories of the datasource unit, used unless
+     *                          strategies are set explicitly.
+     */
+    public void setRepositorySupport(UnitRepositorySupport repositorySupport) {
+        Assert.notNull(repositorySupport, "UnitRepositorySupport must not be null");
+        this.repositorySupport = repositorySupport;
+    }
+
+    /**
+     * @param shardGroup the shards the repository stores its entities in, on
+     *                   the units of the group instead of the
+     *                   {@link #setJdbcOperations(NamedParameterJdbcOperations)
+     *                   operations} of the repository. Can be {@literal null}.
+     */
+    public void setShardGroup(ShardGroup shardGroup) {
+        this.shardGroup = shardGroup;
+    }
+
+    /**
+     * @param shardingStrategy must not be {@literal null}, defaults to
+     *                         {@link HashShardingStrategy}.
+     */
+    public void setShardingStrategy(ShardingStrategy shardingStrategy) {
+        Assert.notNull(shardingStrategy, "ShardingStrategy must not be null");
+        this.shardingStrategy = shardingStrategy;
+    }
+
+    /**
+     * @param insertMode must not be {@literal null}.
+     */
+    public void setInsertMode(InsertMode insertMode) {
+        this.batchSettings.setInsertMode(insertMode);
+    }
+
+    /**
+     * @param maxRowsPerInsert must be positive.
+     */
+    public void setMaxRowsPerInsert(int maxRowsPerInsert) {
+        this.batchSettings.setMaxRowsPerInsert(maxRowsPerInsert);
+    }
+
+    /**
+     * @param parallelism must not be negative, {@literal 0} sizes parallel batch
+     *                    operations from the connection pool.
+     */
+    public void setParallelism(int parallelism) {
+        this.batchSettings.setParallelism(parallelism);
+    }
+
+    /**
+     * @param chunkRetries must not be negative.
+     */
+    public void setChunkRetries(int chunkRetries) {
+        this.batchSettings.setChunkRetries(chunkRetries);
+    }
+
+    /**
+     * @param idAllocator can be {@literal null}.
+     */
+    public void setIdAllocator(IdAllocator idAllocator) {
+        this.batchSettings.setIdAllocator(idAllocator);
+    }
+
     @Autowired
     public void setConverter(JdbcConverter converter) {
         Assert.notNull(converter, "JdbcConverter must not be null");
@@ -140,11 +380,32 @@ public class BatchJdbcRepositoryFactoryBean<T extends Repository<S, ID>, S, ID e
         Assert.state(this.mappingContext != null, "MappingContext is required and must not be null!");
         Assert.state(this.converter != null, "RelationalConverter is required and must not be null!");
 
+        if (this.shardGroup != null) {
+            Assert.state(beanFactory != null, "If a ShardGroup is set a BeanFactory must be available.");
+            List<T> repositories = new ArrayList<>(shardGroup.size());
+            for (String unit : shardGroup.getUnits()) {
+                repositories.add(createShardRepository(unit));
+            }
+            this.shardRepositories = repositories;
+            // the repository itself only forwards to the shards, its operations name the first one
+            this.operations = beanFactory.getBean(shardGroup.getUnits().get(0) + OPERATIONS_BEAN_SUFFIX,
+                    NamedParameterJdbcOperations.class);
+        }
+
         if (this.operations == null) {
             Assert.state(beanFactory != null, "If no JdbcOperations are set a BeanFactory must be available.");
             this.operations = beanFactory.getBean(NamedParameterJdbcOperations.class);
         }
 
+        if (this.repositorySupport != null && this.repositorySupport.getJdbcOperations() == this.operations) {
+            if (this.dataAccessStrategy == null) {
+                this.dataAccessStrategy = this.repositorySupport.getDataAccessStrategy();
+            }
+            if (this.batchDataAccessStrategy == null) {
+                this.batchDataAccessStrategy = this.repositorySupport.getBatchDataAccessStrategy();
+            }
+        }
+
         if (this.dataAccessStrategy == null) {
             Assert.state(beanFactory != null, "If no DataAccessStrategy is set a BeanFactory must be available.");
             Assert.state(this.dialect != null, "Dialect is required and must not be null!");
@@ -164,6 +425,18 @@ public class BatchJdbcRepositoryFactoryBean<T extends Repository<S, ID>, S, ID e
 
         }
 
+        if (this.batchDataAccessStrategy == null) {
+            Assert.state(this.dialect != null, "Dialect is required and must not be null!");
+
+            BatchSqlGeneratorSource batchSqlGeneratorSource = new BatchSqlGeneratorSource(this.mappingContext,
+                    this.dialect);
+            BatchSqlParametersFactory batchSqlParametersFactory = new BatchSqlParametersFactory(
+                    this.mappingContext, this.converter, this.dialect);
+
+            this.batchDataAccessStrategy = new DefaultBatchDataAccessStrategy(batchSqlGeneratorSource,
+                    this.mappingContext, this.operations, batchSqlParametersFactory);
+        }
+
         if (this.queryMappingConfiguration == null) {
             this.queryMappingConfiguration = QueryMappingConfiguration.EMPTY;
         }
@@ -0,0 +1,32 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.function.Supplier;
+
+/**
+ * Records the chunks written by the batch operations of a
+ * {@link BatchJdbcRepository}.
+ */
+interface BatchMetrics {
+
+    String INSERT = "insert";
+    String UPDATE = "update";
+    String UPSERT = "upsert";
+    String DELETE = "delete";
+
+    BatchMetrics NONE = new BatchMetrics() {
+        @Override
+        public <R> R record(Class<?> domainType, String operation, boolean generatedKeys, int rows,
+                Supplier<R> chunk) {
+            return chunk.get();
+        }
+    };
+
+    /**
+     * Writes a chunk of {@code rows} rows and records its latency and size.
+     *
+     * @param operation     one of {@link #INSERT}, {@link #UPDATE},
+     *                      {@link #UPSERT} and {@link #DELETE}.
+     * @param generatedKeys whether the ids are read back from the database.
+     */
+    <R> R record(Class<?> domainType, String operation, boolean generatedKeys, int rows, Supplier<R> chunk);
+}
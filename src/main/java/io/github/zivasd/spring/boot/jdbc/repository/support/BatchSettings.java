@@ -0,0 +1,96 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import io.github.zivasd.spring.boot.jdbc.repository.IdAllocator;
+import io.github.zivasd.spring.boot.jdbc.repository.InsertMode;
+
+/**
+ * Settings of the batch operations of a {@link BatchJdbcRepository}, configured
+ * through {@link io.github.zivasd.spring.boot.jdbc.config.EnableMultipleJdbcRepositories}.
+ */
+public class BatchSettings {
+
+    public static final int DEFAULT_MAX_ROWS_PER_INSERT = 1000;
+    public static final int DEFAULT_CHUNK_RETRIES = 3;
+
+    private InsertMode insertMode = InsertMode.BATCH;
+    private int maxRowsPerInsert = DEFAULT_MAX_ROWS_PER_INSERT;
+    private int parallelism;
+    private int chunkRetries = DEFAULT_CHUNK_RETRIES;
+    private IdAllocator idAllocator;
+    private BatchMetrics metrics = BatchMetrics.NONE;
+
+    public InsertMode getInsertMode() {
+        return insertMode;
+    }
+
+    public void setInsertMode(InsertMode insertMode) {
+        Assert.notNull(insertMode, "InsertMode must not be null");
+        this.insertMode = insertMode;
+    }
+
+    public int getMaxRowsPerInsert() {
+        return maxRowsPerInsert;
+    }
+
+    /**
+     * @param maxRowsPerInsert the maximum number of rows of one multi row insert
+     *                         statement, must be positive.
+     */
+    public void setMaxRowsPerInsert(int maxRowsPerInsert) {
+        Assert.isTrue(maxRowsPerInsert > 0, "Max rows per insert must be positive");
+        this.maxRowsPerInsert = maxRowsPerInsert;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism the number of chunks written at the same time by
+     *                    parallel batch operations, {@literal 0} to use half of
+     *                    the connection pool.
+     */
+    public void setParallelism(int parallelism) {
+        Assert.isTrue(parallelism >= 0, "Parallelism must not be negative");
+        this.parallelism = parallelism;
+    }
+
+    public int getChunkRetries() {
+        return chunkRetries;
+    }
+
+    /**
+     * @param chunkRetries the number of times a chunk failing with a transient
+     *                     error is written again, must not be negative.
+     */
+    public void setChunkRetries(int chunkRetries) {
+        Assert.isTrue(chunkRetries >= 0, "Chunk retries must not be negative");
+        this.chunkRetries = chunkRetries;
+    }
+
+    @Nullable
+    public IdAllocator getIdAllocator() {
+        return idAllocator;
+    }
+
+    /**
+     * @param idAllocator the allocator of the ids of new entities whose id would
+     *                    otherwise be generated by the database, can be
+     *                    {@literal null}.
+     */
+    public void setIdAllocator(@Nullable IdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    BatchMetrics getMetrics() {
+        return metrics;
+    }
+
+    void setMetrics(BatchMetrics metrics) {
+        Assert.notNull(metrics, "BatchMetrics must not be null");
+        this.metrics = metrics;
+    }
+}
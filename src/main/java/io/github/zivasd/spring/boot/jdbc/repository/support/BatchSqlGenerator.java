@@ -0,0 +1,508 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentPropertyPath;
+import org.springframework.data.relational.core.dialect.Dialect;
+import org.springframework.data.relational.core.dialect.RenderContextFactory;
+import org.springframework.data.relational.core.mapping.PersistentPropertyPathExtension;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.relational.core.sql.AssignValue;
+import org.springframework.data.relational.core.sql.Assignments;
+import org.springframework.data.relational.core.sql.BindMarker;
+import org.springframework.data.relational.core.sql.Column;
+import org.springframework.data.relational.core.sql.Condition;
+import org.springframework.data.relational.core.sql.Conditions;
+import org.springframework.data.relational.core.sql.Delete;
+import org.springframework.data.relational.core.sql.Expression;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.data.relational.core.sql.OrderByField;
+import org.springframework.data.relational.core.sql.SQL;
+import org.springframework.data.relational.core.sql.Select;
+import org.springframework.data.relational.core.sql.SelectBuilder;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.data.relational.core.sql.StatementBuilder;
+import org.springframework.data.relational.core.sql.Table;
+import org.springframework.data.relational.core.sql.Update;
+import org.springframework.data.relational.core.sql.UpdateBuilder;
+import org.springframework.data.relational.core.sql.render.RenderContext;
+import org.springframework.data.relational.core.sql.render.SqlRenderer;
+import org.springframework.data.util.Lazy;
+import org.springframework.util.Assert;
+
+/**
+ * Generates the SQL statements used by {@link BatchDataAccessStrategy} for a
+ * single entity type. Statements are rendered lazily and cached for the
+ * lifetime of the generator.
+ */
+class BatchSqlGenerator {
+
+    static final SqlIdentifier VERSION_SQL_PARAMETER = SqlIdentifier.unquoted("___oldOptimisticLockingVersion");
+    static final String KEYSET_SQL_PARAMETER = "___keyset";
+
+    private static final Pattern PARAMETER_PATTERN = Pattern.compile("\\W");
+
+    /**
+     * The sizes {@code IN} lists are padded to, so that only a few distinct
+     * statements reach the statement cache of the driver.
+     */
+    private static final int[] IN_LIST_BUCKETS = { 1, 8, 32, 128, 512 };
+
+    private final RelationalMappingContext mappingContext;
+    private final RelationalPersistentEntity<?> entity;
+    private final BatchDialect batchDialect;
+    private final RenderContext renderContext;
+    private final SqlRenderer sqlRenderer;
+    private final Columns columns;
+
+    private final Lazy<String> updateSql = Lazy.of(this::createUpdateSql);
+    private final Lazy<String> updateWithVersionSql = Lazy.of(this::createUpdateWithVersionSql);
+    private final Lazy<String> upsertSql = Lazy.of(this::createUpsertSql);
+    private final Lazy<String> deleteByIdWithVersionSql = Lazy.of(this::createDeleteByIdWithVersionSql);
+    private final Map<Integer, String> deleteByIdInSql = new ConcurrentHashMap<>();
+    private final Map<String, String> deleteByPathSql = new ConcurrentHashMap<>();
+    private final Lazy<String> findAllSql = Lazy.of(() -> render(createSelect().build()));
+    private final Map<Integer, String> findAllByIdInSql = new ConcurrentHashMap<>();
+    private final Map<Integer, String> findVersionsByIdInSql = new ConcurrentHashMap<>();
+    private final Map<String, String> findAllAfterSql = new ConcurrentHashMap<>();
+
+    BatchSqlGenerator(RelationalMappingContext mappingContext, RelationalPersistentEntity<?> entity,
+            Dialect dialect, BatchDialect batchDialect) {
+        this.mappingContext = mappingContext;
+        this.entity = entity;
+        this.batchDialect = batchDialect;
+        this.renderContext = new RenderContextFactory(dialect).createRenderContext();
+        this.sqlRenderer = SqlRenderer.create(renderContext);
+        this.columns = new Columns(mappingContext, entity);
+    }
+
+    /**
+     * Returns the name under which the value for {@code column} is bound.
+     */
+    static String parameterName(SqlIdentifier column, IdentifierProcessing identifierProcessing) {
+        return PARAMETER_PATTERN.matcher(column.getReference(identifierProcessing)).replaceAll("");
+    }
+
+    static String rowSuffix(int row) {
+        return "_" + row;
+    }
+
+    /**
+     * Returns the number of elements of the {@code IN} lists of one statement:
+     * the largest bucket, or {@code maxSize}, the limit of the dialect, if it is
+     * smaller, so that no list is padded beyond the buckets.
+     */
+    static int maxInListSize(int maxSize) {
+        return Math.min(IN_LIST_BUCKETS[IN_LIST_BUCKETS.length - 1], maxSize);
+    }
+
+    /**
+     * Returns the size an {@code IN} list of {@code size} elements is padded to:
+     * the smallest bucket that fits, or {@code maxSize} if no bucket below it
+     * does.
+     */
+    static int inListSize(int size, int maxSize) {
+        for (int bucket : IN_LIST_BUCKETS) {
+            if (bucket >= maxSize) {
+                break;
+            }
+            if (bucket >= size) {
+                return bucket;
+            }
+        }
+        return maxSize;
+    }
+
+    /**
+     * Returns the columns of an insert, followed by {@code additionalColumns}
+     * and the id column if {@code includeId} is set.
+     */
+    List<SqlIdentifier> getInsertColumns(Collection<SqlIdentifier> additionalColumns, boolean includeId) {
+        List<SqlIdentifier> insertColumns = new ArrayList<>(columns.getInsertableColumns());
+        for (SqlIdentifier column : additionalColumns) {
+            if (!insertColumns.contains(column)) {
+                insertColumns.add(column);
+            }
+        }
+        if (includeId && !insertColumns.contains(entity.getIdColumn())) {
+            insertColumns.add(entity.getIdColumn());
+        }
+        return insertColumns;
+    }
+
+    /**
+     * Creates an {@code INSERT ... VALUES (...), (...)} statement for
+     * {@code rows} rows. The parameters of each row are suffixed with
+     * {@link #rowSuffix(int)}.
+     */
+    String getInsertMultiValues(List<SqlIdentifier> insertColumns, int rows) {
+        IdentifierProcessing identifierProcessing = renderContext.getIdentifierProcessing();
+        StringJoiner columnList = new StringJoiner(", ", " (", ")");
+        for (SqlIdentifier column : insertColumns) {
+            columnList.add(column.toSql(identifierProcessing));
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO ") //
+                .append(entity.getTableName().toSql(identifierProcessing)) //
+                .append(columnList) //
+                .append(" VALUES ");
+        for (int row = 0; row < rows; ++row) {
+            StringJoiner values = new StringJoiner(", ", row == 0 ? "(" : ", (", ")");
+            for (SqlIdentifier column : insertColumns) {
+                values.add(":" + parameterName(column, identifierProcessing) + rowSuffix(row));
+            }
+            sql.append(values);
+        }
+        return sql.toString();
+    }
+
+    String getUpdate() {
+        return updateSql.get();
+    }
+
+    String getUpdateWithVersion() {
+        return updateWithVersionSql.get();
+    }
+
+    /**
+     * Returns the single row statement inserting or updating a row by its id.
+     *
+     * @throws UnsupportedOperationException if the database has no suitable
+     *                                       statement.
+     */
+    String getUpsert() {
+        return upsertSql.get();
+    }
+
+    /**
+     * Creates a {@code DELETE ... WHERE id IN (...)} statement with {@code size}
+     * bind markers named after the id column with {@link #rowSuffix(int)}.
+     */
+    String getDeleteByIdIn(int size) {
+        return deleteByIdInSql.computeIfAbsent(size, this::createDeleteByIdInSql);
+    }
+
+    /**
+     * Creates a statement deleting the rows of the entities referenced through
+     * {@code path} by the aggregates whose ids are bound like those of
+     * {@link #getDeleteByIdIn(int)}.
+     */
+    String getDeleteByPath(PersistentPropertyPath<RelationalPersistentProperty> path, int size) {
+        return deleteByPathSql.computeIfAbsent(path.toDotPath() + ":" + size,
+                key -> createDeleteByPathSql(path, size));
+    }
+
+    String getDeleteByIdWithVersion() {
+        return deleteByIdWithVersionSql.get();
+    }
+
+    /**
+     * Creates the statement selecting all aggregates, with the columns and joins
+     * Spring Data JDBC reads them with.
+     */
+    String getFindAll() {
+        return findAllSql.get();
+    }
+
+    /**
+     * Creates the statement selecting the aggregates whose ids are bound like
+     * those of {@link #getDeleteByIdIn(int)}.
+     */
+    String getFindAllByIdIn(int size) {
+        return findAllByIdInSql.computeIfAbsent(size,
+                key -> render(createSelect().where(getIdColumn().in(getIdBindMarkers(size))).build()));
+    }
+
+    /**
+     * Creates the statement selecting the id and the version of the rows whose
+     * ids are bound like those of {@link #getDeleteByIdIn(int)}.
+     */
+    String getFindVersionsByIdIn(int size) {
+        return findVersionsByIdInSql.computeIfAbsent(size,
+                key -> render(StatementBuilder.select(getIdColumn(), getVersionColumn()).from(getTable())
+                        .where(getIdColumn().in(getIdBindMarkers(size))).build()));
+    }
+
+    /**
+     * Returns the properties a keyset page is ordered by: those of {@code sort},
+     * followed by the id property unless it is among them, which makes the
+     * order total.
+     *
+     * @throws IllegalArgumentException if a property of {@code sort} is not a
+     *                                  simple property of the aggregate root or
+     *                                  is sorted ignoring case.
+     */
+    List<RelationalPersistentProperty> getKeysetProperties(Sort sort) {
+        List<RelationalPersistentProperty> properties = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            RelationalPersistentProperty property = entity.getPersistentProperty(order.getProperty());
+            Assert.isTrue(property != null && !property.isEntity() && !property.isCollectionLike(),
+                    () -> "Keyset property " + order.getProperty() + " is not a simple property of "
+                            + entity.getName());
+            Assert.isTrue(!order.isIgnoreCase(), "Keyset properties can not be sorted ignoring case");
+            properties.add(property);
+        }
+        if (!properties.contains(entity.getRequiredIdProperty())) {
+            properties.add(entity.getRequiredIdProperty());
+        }
+        return properties;
+    }
+
+    /**
+     * Creates the statement selecting the first {@code limit} aggregates in the
+     * order of {@code sort}, completed by {@link #getKeysetProperties(Sort)}.
+     * Unless {@code first} is set only the aggregates following the keyset bound
+     * as {@link #KEYSET_SQL_PARAMETER} with {@link #rowSuffix(int)} are selected.
+     */
+    String getFindAllAfter(Sort sort, boolean first, int limit) {
+        return findAllAfterSql.computeIfAbsent(sort + ":" + first + ":" + limit,
+                key -> createFindAllAfterSql(sort, first, limit));
+    }
+
+    /**
+     * Selects the columns of the entity and of the entities it references one
+     * to one, which are joined. Collections are read by separate statements.
+     */
+    private SelectBuilder.SelectWhere createSelect() {
+        List<Expression> selectColumns = new ArrayList<>();
+        List<PersistentPropertyPathExtension> joins = new ArrayList<>();
+        for (PersistentPropertyPath<RelationalPersistentProperty> path : mappingContext
+                .findPersistentPropertyPaths(entity.getType(), property -> true)) {
+            PersistentPropertyPathExtension pathExtension = new PersistentPropertyPathExtension(mappingContext,
+                    path);
+            if (pathExtension.isEmbedded() || pathExtension.isMultiValued()) {
+                continue;
+            }
+            if (!pathExtension.isEntity()) {
+                selectColumns.add(getTable(pathExtension).column(pathExtension.getColumnName())
+                        .as(pathExtension.getColumnAlias()));
+                continue;
+            }
+            joins.add(pathExtension);
+            if (!pathExtension.isQualified() && !pathExtension.isCollectionLike()
+                    && !pathExtension.hasIdProperty()) {
+                // distinguishes an absent entity from one with only null values
+                selectColumns.add(getTable(pathExtension).column(pathExtension.getReverseColumnName())
+                        .as(pathExtension.getReverseColumnNameAlias()));
+            }
+        }
+        SelectBuilder.SelectJoin select = StatementBuilder.select(selectColumns).from(getTable());
+        for (PersistentPropertyPathExtension join : joins) {
+            Table joinTable = getTable(join);
+            PersistentPropertyPathExtension parentPath = join.getIdDefiningParentPath();
+            select = select.leftOuterJoin(joinTable).on(joinTable.column(join.getReverseColumnName()))
+                    .equals(getTable(parentPath).column(parentPath.getIdColumnName()));
+        }
+        return (SelectBuilder.SelectWhere) select;
+    }
+
+    /**
+     * Expands the row value comparison {@code (k0, k1, ...) > (:k0, :k1, ...)},
+     * honoring the direction of each key, as not all databases support it.
+     */
+    private String createFindAllAfterSql(Sort sort, boolean first, int limit) {
+        List<RelationalPersistentProperty> properties = getKeysetProperties(sort);
+        List<OrderByField> orderByFields = new ArrayList<>();
+        List<Sort.Direction> directions = new ArrayList<>();
+        for (RelationalPersistentProperty property : properties) {
+            Sort.Order order = sort.getOrderFor(property.getName());
+            Sort.Direction direction = order == null ? Sort.Direction.ASC : order.getDirection();
+            directions.add(direction);
+            orderByFields.add(OrderByField.from(getTable().column(property.getColumnName()), direction));
+        }
+
+        SelectBuilder.SelectWhere selectAll = createSelect();
+        SelectBuilder.SelectOrdered select = selectAll;
+        if (!first) {
+            Condition after = null;
+            for (int i = 0; i < properties.size(); ++i) {
+                Condition next = null;
+                for (int j = 0; j <= i; ++j) {
+                    Column column = getTable().column(properties.get(j).getColumnName());
+                    BindMarker value = SQL.bindMarker(":" + KEYSET_SQL_PARAMETER + rowSuffix(j));
+                    Condition comparison = j < i ? column.isEqualTo(value)
+                            : directions.get(j).isAscending() ? column.isGreater(value) : column.isLess(value);
+                    next = next == null ? comparison : next.and(comparison);
+                }
+                after = after == null ? next : after.or(Conditions.nest(next));
+            }
+            select = selectAll.where(after);
+        }
+        select = select.orderBy(orderByFields);
+        // the default select builder implements all steps, as relied on by Spring Data JDBC for paging
+        return render(((SelectBuilder.BuildSelect) ((SelectBuilder.SelectLimitOffset) select).limit(limit)).build());
+    }
+
+    private static Table getTable(PersistentPropertyPathExtension path) {
+        SqlIdentifier tableAlias = path.getTableAlias();
+        Table table = Table.create(path.getTableName());
+        return tableAlias == null ? table : table.as(tableAlias);
+    }
+
+    private String createDeleteByIdInSql(int size) {
+        Delete delete = StatementBuilder.delete(getTable()) //
+                .where(getIdColumn().in(getIdBindMarkers(size))) //
+                .build();
+        return sqlRenderer.render(delete);
+    }
+
+    private String createDeleteByPathSql(PersistentPropertyPath<RelationalPersistentProperty> path, int size) {
+        PersistentPropertyPathExtension pathExtension = new PersistentPropertyPathExtension(mappingContext, path);
+        Delete delete = StatementBuilder.delete(Table.create(pathExtension.getTableName())) //
+                .where(createBackReferenceCondition(pathExtension, getIdBindMarkers(size))) //
+                .build();
+        return sqlRenderer.render(delete);
+    }
+
+    /**
+     * Selects the rows of {@code path} belonging to the given aggregates. Rows
+     * below an entity with an id refer to that entity, so a sub select is
+     * needed per such entity on the path.
+     */
+    private Condition createBackReferenceCondition(PersistentPropertyPathExtension path, Expression[] rootIds) {
+        Column backReference = Table.create(path.getTableName()).column(path.getReverseColumnName());
+        PersistentPropertyPathExtension parentPath = path.getIdDefiningParentPath();
+        if (parentPath.getLength() == 0) {
+            return backReference.in(rootIds);
+        }
+        Table parentTable = Table.create(parentPath.getTableName());
+        Select parentIds = StatementBuilder.select(parentTable.column(parentPath.getIdColumnName())) //
+                .from(parentTable) //
+                .where(createBackReferenceCondition(parentPath, rootIds)) //
+                .build();
+        return backReference.in(parentIds);
+    }
+
+    private Expression[] getIdBindMarkers(int size) {
+        String idParameter = parameterName(entity.getIdColumn(), renderContext.getIdentifierProcessing());
+        Expression[] bindMarkers = new Expression[size];
+        for (int i = 0; i < size; ++i) {
+            bindMarkers[i] = SQL.bindMarker(":" + idParameter + rowSuffix(i));
+        }
+        return bindMarkers;
+    }
+
+    private String createDeleteByIdWithVersionSql() {
+        Delete delete = StatementBuilder.delete(getTable()) //
+                .where(getIdColumn().isEqualTo(getBindMarker(entity.getIdColumn()))) //
+                .and(getVersionColumn().isEqualTo(getBindMarker(VERSION_SQL_PARAMETER))) //
+                .build();
+        return sqlRenderer.render(delete);
+    }
+
+    private String createUpsertSql() {
+        IdentifierProcessing identifierProcessing = renderContext.getIdentifierProcessing();
+        List<String> columnNames = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (SqlIdentifier column : getInsertColumns(Collections.emptySet(), true)) {
+            columnNames.add(column.toSql(identifierProcessing));
+            values.add(":" + parameterName(column, identifierProcessing));
+        }
+        String versionColumn = entity.hasVersionProperty()
+                ? entity.getRequiredVersionProperty().getColumnName().toSql(identifierProcessing)
+                : null;
+        return batchDialect.upsert(new BatchDialect.UpsertColumns(entity.getTableName().toSql(identifierProcessing),
+                columnNames, values, entity.getIdColumn().toSql(identifierProcessing), versionColumn));
+    }
+
+    private String createUpdateSql() {
+        return render(createBaseUpdate().build());
+    }
+
+    private String createUpdateWithVersionSql() {
+        Update update = createBaseUpdate() //
+                .and(getVersionColumn().isEqualTo(getBindMarker(VERSION_SQL_PARAMETER))) //
+                .build();
+        return render(update);
+    }
+
+    private UpdateBuilder.UpdateWhereAndOr createBaseUpdate() {
+        Table table = getTable();
+        List<AssignValue> assignments = new ArrayList<>();
+        for (SqlIdentifier column : columns.getUpdatableColumns()) {
+            assignments.add(Assignments.value(table.column(column), getBindMarker(column)));
+        }
+        return StatementBuilder.update(table) //
+                .set(assignments) //
+                .where(getIdColumn().isEqualTo(getBindMarker(entity.getIdColumn())));
+    }
+
+    private String render(Update update) {
+        return this.sqlRenderer.render(update);
+    }
+
+    private String render(Select select) {
+        return this.sqlRenderer.render(select);
+    }
+
+    private BindMarker getBindMarker(SqlIdentifier column) {
+        return SQL.bindMarker(":" + parameterName(column, renderContext.getIdentifierProcessing()));
+    }
+
+    private Table getTable() {
+        return Table.create(entity.getTableName());
+    }
+
+    private Column getIdColumn() {
+        return getTable().column(entity.getIdColumn());
+    }
+
+    private Column getVersionColumn() {
+        return getTable().column(entity.getRequiredVersionProperty().getColumnName());
+    }
+
+    /**
+     * Column names of the entity, with embedded entities flattened using their
+     * prefix. Referenced entities are skipped because their columns live in the
+     * child table.
+     */
+    static class Columns {
+
+        private final RelationalMappingContext mappingContext;
+        private final Map<SqlIdentifier, RelationalPersistentProperty> columns = new LinkedHashMap<>();
+        private final List<SqlIdentifier> insertableColumns = new ArrayList<>();
+        private final List<SqlIdentifier> updatableColumns = new ArrayList<>();
+
+        Columns(RelationalMappingContext mappingContext, RelationalPersistentEntity<?> entity) {
+            this.mappingContext = mappingContext;
+            populateColumns(entity, "");
+            for (Map.Entry<SqlIdentifier, RelationalPersistentProperty> entry : columns.entrySet()) {
+                RelationalPersistentProperty property = entry.getValue();
+                if (property.isWritable() && !property.isIdProperty()) {
+                    insertableColumns.add(entry.getKey());
+                    updatableColumns.add(entry.getKey());
+                }
+            }
+        }
+
+        private void populateColumns(RelationalPersistentEntity<?> entity, String prefix) {
+            entity.doWithAll(property -> {
+                if (!property.isEntity()) {
+                    columns.put(property.getColumnName().transform(prefix::concat), property);
+                } else if (property.isEmbedded()) {
+                    RelationalPersistentEntity<?> embedded = mappingContext
+                            .getRequiredPersistentEntity(property.getType());
+                    populateColumns(embedded, prefix + property.getEmbeddedPrefix());
+                }
+            });
+        }
+
+        List<SqlIdentifier> getInsertableColumns() {
+            return Collections.unmodifiableList(insertableColumns);
+        }
+
+        List<SqlIdentifier> getUpdatableColumns() {
+            return Collections.unmodifiableList(updatableColumns);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.Map;
+
+import org.springframework.data.relational.core.dialect.Dialect;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Provides {@link BatchSqlGenerator}s per domain type. Instances are cached as
+ * this class is expected to be shared by all repositories of a datasource
+ * unit.
+ */
+public class BatchSqlGeneratorSource {
+
+    private final Map<Class<?>, BatchSqlGenerator> cache = new ConcurrentReferenceHashMap<>();
+    private final RelationalMappingContext context;
+    private final Dialect dialect;
+    private final BatchDialect batchDialect;
+
+    public BatchSqlGeneratorSource(RelationalMappingContext context, Dialect dialect) {
+        Assert.notNull(context, "Context must not be null.");
+        Assert.notNull(dialect, "Dialect must not be null.");
+        this.context = context;
+        this.dialect = dialect;
+        this.batchDialect = BatchDialect.of(dialect);
+    }
+
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    BatchDialect getBatchDialect() {
+        return batchDialect;
+    }
+
+    BatchSqlGenerator getSqlGenerator(Class<?> domainType) {
+        return cache.computeIfAbsent(domainType,
+                t -> new BatchSqlGenerator(context, context.getRequiredPersistentEntity(t), dialect, batchDialect));
+    }
+}
@@ -0,0 +1,238 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.sql.SQLType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.jdbc.core.convert.Identifier;
+import org.springframework.data.jdbc.core.convert.JdbcConverter;
+import org.springframework.data.jdbc.core.mapping.JdbcValue;
+import org.springframework.data.jdbc.support.JdbcUtil;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.relational.core.conversion.IdValueSource;
+import org.springframework.data.relational.core.dialect.Dialect;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Creates the parameter sources for the statements generated by
+ * {@link BatchSqlGenerator}. Values are converted the same way Spring Data
+ * JDBC converts them for single row operations.
+ * <p>
+ * The columns of an entity, their parameter names and types are resolved once
+ * per entity. Their values are read through the accessors of
+ * {@link CompiledEntity}.
+ */
+public class BatchSqlParametersFactory {
+
+    private final RelationalMappingContext context;
+    private final JdbcConverter converter;
+    private final IdentifierProcessing identifierProcessing;
+    private final Map<RelationalPersistentEntity<?>, List<ParameterColumn>> insertColumns = new ConcurrentHashMap<>();
+    private final Map<RelationalPersistentEntity<?>, List<ParameterColumn>> updateColumns = new ConcurrentHashMap<>();
+
+    public BatchSqlParametersFactory(RelationalMappingContext context, JdbcConverter converter, Dialect dialect) {
+        this.context = context;
+        this.converter = converter;
+        this.identifierProcessing = dialect.getIdentifierProcessing();
+    }
+
+    JdbcConverter getConverter() {
+        return converter;
+    }
+
+    /**
+     * Adds the values of one row of a multi row insert to {@code parameters}.
+     * The parameter names carry the suffix of {@code row}.
+     */
+    <T> void forInsert(MapSqlParameterSource parameters, T instance, RelationalPersistentEntity<T> persistentEntity,
+            Identifier identifier, IdValueSource idValueSource, int row) {
+        addInsertValues(parameters, instance, persistentEntity, identifier, idValueSource,
+                BatchSqlGenerator.rowSuffix(row));
+    }
+
+    /**
+     * Creates the parameters of an upsert, which are those of an insert with a
+     * provided id.
+     */
+    <T> MapSqlParameterSource forUpsert(T instance, RelationalPersistentEntity<T> persistentEntity) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        addInsertValues(parameters, instance, persistentEntity, Identifier.empty(), IdValueSource.PROVIDED, "");
+        return parameters;
+    }
+
+    private <T> void addInsertValues(MapSqlParameterSource parameters, T instance,
+            RelationalPersistentEntity<T> persistentEntity, Identifier identifier, IdValueSource idValueSource,
+            String suffix) {
+        addProperties(parameters, instance, persistentEntity, suffix, true);
+        identifier.forEach((name, value, targetType) -> addConvertedValue(parameters, value,
+                parameterName(name) + suffix, targetType, JdbcUtil.targetSqlTypeFor(targetType)));
+        if (idValueSource == IdValueSource.PROVIDED) {
+            RelationalPersistentProperty idProperty = persistentEntity.getRequiredIdProperty();
+            Object id = CompiledEntity.of(persistentEntity, converter).getId(instance);
+            addConvertedPropertyValue(parameters, idProperty, id, parameterName(idProperty.getColumnName()) + suffix);
+        }
+    }
+
+    <T> MapSqlParameterSource forUpdate(T instance, RelationalPersistentEntity<T> persistentEntity) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        addProperties(parameters, instance, persistentEntity, "", false);
+        return parameters;
+    }
+
+    <T> MapSqlParameterSource forUpdateWithVersion(T instance, RelationalPersistentEntity<T> persistentEntity,
+            Number previousVersion) {
+        MapSqlParameterSource parameters = forUpdate(instance, persistentEntity);
+        parameters.addValue(parameterName(BatchSqlGenerator.VERSION_SQL_PARAMETER), previousVersion);
+        return parameters;
+    }
+
+    /**
+     * Creates the parameters of an {@code IN} list of ids. The list is padded to
+     * {@code size} elements by repeating the last id.
+     */
+    <T> MapSqlParameterSource forIdIn(List<?> ids, RelationalPersistentEntity<T> persistentEntity, int size) {
+        RelationalPersistentProperty idProperty = persistentEntity.getRequiredIdProperty();
+        String idParameter = parameterName(idProperty.getColumnName());
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        for (int i = 0; i < size; ++i) {
+            addConvertedPropertyValue(parameters, idProperty, ids.get(Math.min(i, ids.size() - 1)),
+                    idParameter + BatchSqlGenerator.rowSuffix(i));
+        }
+        return parameters;
+    }
+
+    /**
+     * Creates the parameters of a keyset from the values of {@code properties}
+     * of {@code last}.
+     *
+     * @throws IllegalArgumentException if one of the values is {@literal null}.
+     */
+    <T> MapSqlParameterSource forKeyset(T last, RelationalPersistentEntity<T> persistentEntity,
+            List<RelationalPersistentProperty> properties) {
+        PersistentPropertyAccessor<T> propertyAccessor = persistentEntity.getPropertyAccessor(last);
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        for (int i = 0; i < properties.size(); ++i) {
+            RelationalPersistentProperty property = properties.get(i);
+            Object value = propertyAccessor.getProperty(property);
+            Assert.notNull(value, () -> "Keyset property " + property.getName() + " must not be null");
+            addConvertedPropertyValue(parameters, property, value,
+                    BatchSqlGenerator.KEYSET_SQL_PARAMETER + BatchSqlGenerator.rowSuffix(i));
+        }
+        return parameters;
+    }
+
+    <T> MapSqlParameterSource forDeleteWithVersion(Object id, RelationalPersistentEntity<T> persistentEntity,
+            Number previousVersion) {
+        RelationalPersistentProperty idProperty = persistentEntity.getRequiredIdProperty();
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        addConvertedPropertyValue(parameters, idProperty, id, parameterName(idProperty.getColumnName()));
+        parameters.addValue(parameterName(BatchSqlGenerator.VERSION_SQL_PARAMETER), previousVersion);
+        return parameters;
+    }
+
+    private <S> void addProperties(MapSqlParameterSource parameters, S instance,
+            RelationalPersistentEntity<S> persistentEntity, String suffix, boolean skipId) {
+        Map<RelationalPersistentEntity<?>, List<ParameterColumn>> cache = skipId ? insertColumns : updateColumns;
+        List<ParameterColumn> columns = cache.computeIfAbsent(persistentEntity, entity -> {
+            List<ParameterColumn> resolved = new ArrayList<>();
+            collectParameterColumns(resolved, entity, new ArrayList<>(), "", skipId);
+            return resolved;
+        });
+        for (ParameterColumn column : columns) {
+            addConvertedValue(parameters, column.getValue(instance), column.name + suffix, column.columnType,
+                    column.sqlType);
+        }
+    }
+
+    /**
+     * Resolves the writable columns of {@code entity}, flattening embedded
+     * entities with their prefix. Referenced entities are skipped.
+     */
+    private void collectParameterColumns(List<ParameterColumn> columns, RelationalPersistentEntity<?> entity,
+            List<RelationalPersistentProperty> path, String prefix, boolean skipId) {
+        entity.doWithAll(property -> {
+            if ((skipId && property.isIdProperty()) || !property.isWritable()
+                    || (property.isEntity() && !property.isEmbedded())) {
+                return;
+            }
+            List<RelationalPersistentProperty> propertyPath = new ArrayList<>(path);
+            propertyPath.add(property);
+            if (property.isEmbedded()) {
+                collectParameterColumns(columns, context.getRequiredPersistentEntity(property.getType()),
+                        propertyPath, prefix + property.getEmbeddedPrefix(), skipId);
+                return;
+            }
+            columns.add(new ParameterColumn(propertyPath,
+                    parameterName(property.getColumnName().transform(prefix::concat)),
+                    converter.getColumnType(property), converter.getTargetSqlType(property)));
+        });
+    }
+
+    private void addConvertedPropertyValue(MapSqlParameterSource parameters, RelationalPersistentProperty property,
+            Object value, String name) {
+        addConvertedValue(parameters, value, name, converter.getColumnType(property),
+                converter.getTargetSqlType(property));
+    }
+
+    private void addConvertedValue(MapSqlParameterSource parameters, Object value, String name, Class<?> javaType,
+            SQLType sqlType) {
+        JdbcValue jdbcValue = converter.writeJdbcValue(value, javaType, sqlType);
+        SQLType jdbcType = jdbcValue.getJdbcType();
+        parameters.addValue(name, jdbcValue.getValue(),
+                jdbcType == null ? JdbcUtils.TYPE_UNKNOWN : jdbcType.getVendorTypeNumber());
+    }
+
+    private String parameterName(SqlIdentifier column) {
+        return BatchSqlGenerator.parameterName(column, identifierProcessing);
+    }
+
+    /**
+     * A column of an entity, reached from the aggregate root through the
+     * embedded entities of {@code path}.
+     */
+    private final class ParameterColumn {
+
+        private final CompiledEntity<?>[] owners;
+        private final RelationalPersistentProperty[] path;
+        private final String name;
+        private final Class<?> columnType;
+        private final SQLType sqlType;
+
+        private ParameterColumn(List<RelationalPersistentProperty> path, String name, Class<?> columnType,
+                SQLType sqlType) {
+            this.path = path.toArray(new RelationalPersistentProperty[0]);
+            this.owners = new CompiledEntity<?>[this.path.length];
+            for (int i = 0; i < this.path.length; ++i) {
+                owners[i] = CompiledEntity.of(context.getRequiredPersistentEntity(this.path[i].getOwner().getType()),
+                        converter);
+            }
+            this.name = name;
+            this.columnType = columnType;
+            this.sqlType = sqlType;
+        }
+
+        /**
+         * Returns the value of the column, {@literal null} if one of the embedded
+         * entities on the path is absent.
+         */
+        @Nullable
+        @SuppressWarnings("unchecked")
+        private Object getValue(Object instance) {
+            Object value = instance;
+            for (int i = 0; i < path.length && value != null; ++i) {
+                value = ((CompiledEntity<Object>) owners[i]).getProperty(value, path[i]);
+            }
+            return value;
+        }
+    }
+}
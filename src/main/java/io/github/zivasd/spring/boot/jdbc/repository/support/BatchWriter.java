@@ -0,0 +1,253 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+import io.github.zivasd.spring.boot.jdbc.repository.BatchRepository;
+import io.github.zivasd.spring.boot.jdbc.repository.BatchResult;
+
+/**
+ * Buffers entities submitted one at a time and writes them with
+ * {@link BatchRepository#batchSaveChunked(Iterable, int)} of the repository of
+ * the datasource unit managing their type. A batch is written once
+ * {@link BatchWriterProperties#getBatchSize()} entities are buffered or the
+ * oldest of them waited {@link BatchWriterProperties#getFlushInterval()}. Only
+ * the entities reported as failed by the repository fail, the others of their
+ * batch are saved.
+ * <p>
+ * The buffer is bounded, {@link #submit(Object)} blocks while it is full. On
+ * shutdown the buffered entities are still written; those left when the
+ * shutdown timeout expires fail.
+ */
+public class BatchWriter implements BeanFactoryAware, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchWriter.class);
+
+    private final String unit;
+    private final BatchWriterProperties properties;
+    private final BlockingQueue<Submission<?>> queue;
+    private final Map<Class<?>, BatchRepository<?, ?>> repositories = new ConcurrentHashMap<>();
+    private ListableBeanFactory beanFactory;
+    private Thread flusher;
+    private volatile boolean closed;
+
+    public BatchWriter(String unit, BatchWriterProperties properties) {
+        Assert.hasText(unit, "Unit must not be empty");
+        Assert.notNull(properties, "BatchWriterProperties must not be null");
+        this.unit = unit;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    /**
+     * Buffers {@code entity} for the next batch, waiting for space if the
+     * buffer is full.
+     *
+     * @param entity must not be {@literal null}, its type must be managed by a
+     *               batch repository of the datasource unit.
+     * @return completed with the saved entity once it is committed, or
+     *         exceptionally with the failure of its chunk.
+     * @throws IllegalStateException if the writer is shut down.
+     */
+    public <T> CompletableFuture<T> submit(T entity) {
+        Assert.notNull(entity, "Entity must not be null");
+        Assert.state(!closed, "BatchWriter of " + unit + " is shut down");
+        getRepository(entity.getClass());
+        Submission<T> submission = new Submission<>(entity);
+        startFlusher();
+        try {
+            queue.put(submission);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            submission.future.completeExceptionally(e);
+        }
+        return submission.future;
+    }
+
+    /**
+     * The number of buffered entities not yet handed to a batch.
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    @Override
+    public void setBeanFactory(@NonNull BeanFactory beanFactory) throws BeansException {
+        Assert.isInstanceOf(ListableBeanFactory.class, beanFactory);
+        this.beanFactory = (ListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        closed = true;
+        Thread thread;
+        synchronized (this) {
+            thread = flusher;
+        }
+        if (thread != null) {
+            thread.join(properties.getShutdownTimeout().toMillis() + 1);
+            if (thread.isAlive()) {
+                thread.interrupt();
+                List<Submission<?>> pending = new ArrayList<>();
+                queue.drainTo(pending);
+                LOGGER.warn("BatchWriter of {} did not drain within {}, {} entities are not written.", unit,
+                        properties.getShutdownTimeout(), pending.size());
+                failShutDown(pending);
+                return;
+            }
+        }
+        // submissions racing with the shutdown
+        List<Submission<?>> batch = new ArrayList<>();
+        while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private synchronized void startFlusher() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = new Thread(this::flushLoop, unit + "-batch-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void flushLoop() {
+        long flushInterval = properties.getFlushInterval().toNanos();
+        List<Submission<?>> batch = new ArrayList<>(properties.getBatchSize());
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Submission<?> first = queue.poll(flushInterval, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = first.submitted + flushInterval;
+                while (batch.size() < properties.getBatchSize()) {
+                    queue.drainTo(batch, properties.getBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= properties.getBatchSize() || remaining <= 0 || closed) {
+                        break;
+                    }
+                    Submission<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            failShutDown(batch);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void failShutDown(List<Submission<?>> submissions) {
+        IllegalStateException failure = new IllegalStateException("BatchWriter of " + unit + " is shut down");
+        for (Submission<?> submission : submissions) {
+            submission.future.completeExceptionally(failure);
+        }
+    }
+
+    private void write(List<Submission<?>> batch) {
+        Map<BatchRepository<?, ?>, List<Submission<?>>> groups = new LinkedHashMap<>();
+        for (Submission<?> submission : batch) {
+            groups.computeIfAbsent(getRepository(submission.entity.getClass()), r -> new ArrayList<>())
+                    .add(submission);
+        }
+        for (Map.Entry<BatchRepository<?, ?>, List<Submission<?>>> group : groups.entrySet()) {
+            write(group.getKey(), group.getValue());
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void write(BatchRepository repository, List<Submission<?>> submissions) {
+        List<Object> entities = new ArrayList<>(submissions.size());
+        for (Submission<?> submission : submissions) {
+            entities.add(submission.entity);
+        }
+        try {
+            BatchResult<Object> result = repository.batchSaveChunked(entities, properties.getBatchSize());
+            Map<Object, RuntimeException> failures = new IdentityHashMap<>();
+            for (BatchResult.Chunk<Object> chunk : result.getChunks()) {
+                for (Object entity : chunk.getFailedEntities()) {
+                    failures.put(entity, chunk.getFailure());
+                }
+            }
+            if (!failures.isEmpty()) {
+                LOGGER.debug("BatchWriter of {} failed to write {} of {} entities.", unit, failures.size(),
+                        submissions.size());
+            }
+            for (Submission<?> submission : submissions) {
+                RuntimeException failure = failures.get(submission.entity);
+                if (failure != null) {
+                    submission.future.completeExceptionally(failure);
+                } else {
+                    ((Submission<Object>) submission).future.complete(submission.entity);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("BatchWriter of {} failed to write {} entities.", unit, submissions.size(), e);
+            for (Submission<?> submission : submissions) {
+                submission.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private BatchRepository<?, ?> getRepository(Class<?> type) {
+        return repositories.computeIfAbsent(type, this::findRepository);
+    }
+
+    /**
+     * Finds the first batch repository of this unit whose domain type is
+     * assignable from {@code type}.
+     */
+    private BatchRepository<?, ?> findRepository(Class<?> type) {
+        Assert.state(beanFactory != null, "BatchWriter requires a ListableBeanFactory");
+        Object operations = beanFactory.getBean(unit + "NamedParameterJdbcTemplate");
+        for (BatchJdbcRepositoryFactoryBean<?, ?, ?> factoryBean : beanFactory
+                .getBeansOfType(BatchJdbcRepositoryFactoryBean.class, false, true).values()) {
+            if (factoryBean.getJdbcOperations() != operations
+                    || !factoryBean.getRepositoryInformation().getDomainType().isAssignableFrom(type)) {
+                continue;
+            }
+            Object repository = factoryBean.getObject();
+            if (repository instanceof BatchRepository) {
+                return (BatchRepository<?, ?>) repository;
+            }
+        }
+        throw new IllegalArgumentException(
+                "No BatchRepository for " + type.getName() + " in datasource unit " + unit);
+    }
+
+    private static final class Submission<T> {
+        private final T entity;
+        private final long submitted = System.nanoTime();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Submission(T entity) {
+            this.entity = entity;
+        }
+    }
+}
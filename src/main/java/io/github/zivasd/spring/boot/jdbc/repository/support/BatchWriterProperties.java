@@ -0,0 +1,71 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.time.Duration;
+
+import org.springframework.util.Assert;
+
+/**
+ * Settings of the {@link BatchWriter} of a datasource unit, bound from
+ * {@code spring.datasources.<unit>.batch-writer}.
+ */
+public class BatchWriterProperties {
+
+    private int queueCapacity = 10000;
+    private int batchSize = 500;
+    private Duration flushInterval = Duration.ofSeconds(1);
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @param queueCapacity the number of entities buffered before submitting
+     *                      threads are blocked, must be positive.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        Assert.isTrue(queueCapacity > 0, "Queue capacity must be positive");
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize the maximum number of entities written by one
+     *                  {@code batchSave}, must be positive.
+     */
+    public void setBatchSize(int batchSize) {
+        Assert.isTrue(batchSize > 0, "Batch size must be positive");
+        this.batchSize = batchSize;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * @param flushInterval the maximum time an entity waits in the buffer, must
+     *                      be positive.
+     */
+    public void setFlushInterval(Duration flushInterval) {
+        Assert.isTrue(flushInterval != null && !flushInterval.isNegative() && !flushInterval.isZero(),
+                "Flush interval must be positive");
+        this.flushInterval = flushInterval;
+    }
+
+    public Duration getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    /**
+     * @param shutdownTimeout the maximum time waited for the buffer to drain on
+     *                        shutdown, must not be negative.
+     */
+    public void setShutdownTimeout(Duration shutdownTimeout) {
+        Assert.isTrue(shutdownTimeout != null && !shutdownTimeout.isNegative(),
+                "Shutdown timeout must not be negative");
+        this.shutdownTimeout = shutdownTimeout;
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import org.springframework.util.Assert;
+
+import io.github.zivasd.spring.boot.jdbc.repository.IdAllocator;
+
+/**
+ * Base class of the allocators that reserve a block of consecutive ids with a
+ * single database round trip and hand them out from memory.
+ */
+abstract class BlockIdAllocator implements IdAllocator {
+
+    private final int blockSize;
+    private long next;
+    private long limit;
+
+    BlockIdAllocator(int blockSize) {
+        Assert.isTrue(blockSize > 0, "Block size must be positive");
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public synchronized long[] allocate(Class<?> domainType, int count) {
+        Assert.isTrue(count > 0, "Count must be positive");
+        long[] ids = new long[count];
+        for (int i = 0; i < count; ++i) {
+            if (next == limit) {
+                next = nextBlockStart();
+                limit = next + blockSize;
+            }
+            ids[i] = next++;
+        }
+        return ids;
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Reserves the next block and returns its first id.
+     */
+    abstract long nextBlockStart();
+}
@@ -0,0 +1,297 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+import io.github.zivasd.spring.boot.jdbc.repository.BatchResult;
+
+/**
+ * Writes the chunks of a batch operation each in its own transaction of the
+ * transaction manager of the datasource unit. Chunks of a bulk read are read
+ * the same way in read only transactions.
+ * <p>
+ * The chunks of all the calls run on the same threads, at most the
+ * parallelism of the executor, which are stopped once idle. An executor is
+ * shared by all the repositories of a transaction manager configuring the same
+ * parallelism, so the chunks of a unit take no more connections however many
+ * repositories write to it.
+ */
+class ChunkedBatchExecutor {
+
+    private static final long RETRY_BACK_OFF_MILLIS = 50;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private static final Map<PlatformTransactionManager, Map<Integer, ChunkedBatchExecutor>> EXECUTORS =
+            new ConcurrentReferenceHashMap<>();
+
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readTransactionTemplate;
+    private final int parallelism;
+    @Nullable
+    private ThreadPoolExecutor executor;
+
+    /**
+     * @param parallelism the number of chunks written at the same time,
+     *                    {@literal 0} to use half of the connection pool,
+     *                    leaving at least one connection to the other users of
+     *                    the unit.
+     */
+    private ChunkedBatchExecutor(PlatformTransactionManager transactionManager, int parallelism) {
+        this.transactionManager = transactionManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransactionTemplate.setReadOnly(true);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the executor of the repositories of {@code transactionManager}
+     * with the given parallelism.
+     *
+     * @param parallelism the number of chunks written at the same time,
+     *                    {@literal 0} to use half of the connection pool.
+     */
+    static ChunkedBatchExecutor of(PlatformTransactionManager transactionManager, int parallelism) {
+        return EXECUTORS.computeIfAbsent(transactionManager, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(parallelism, p -> new ChunkedBatchExecutor(transactionManager, p));
+    }
+
+    /**
+     * Splits {@code entities} into chunks of {@code chunkSize} and hands them
+     * to {@code chunkWriter} on several threads. A failing chunk is rolled back
+     * and reported, the other chunks are not affected.
+     */
+    <S> BatchResult<S> executeParallel(List<S> entities, int chunkSize, Consumer<List<S>> chunkWriter) {
+        int chunkCount = (entities.size() + chunkSize - 1) / chunkSize;
+        ThreadPoolExecutor executor = executor();
+        List<Future<BatchResult.Chunk<S>>> futures = new ArrayList<>(chunkCount);
+        try {
+            for (int index = 0; index < chunkCount; ++index) {
+                int offset = index * chunkSize;
+                List<S> chunk = entities.subList(offset, Math.min(offset + chunkSize, entities.size()));
+                int chunkIndex = index;
+                futures.add(executor.submit(() -> writeChunk(chunkIndex, offset, chunk, chunkWriter)));
+            }
+            List<BatchResult.Chunk<S>> chunks = new ArrayList<>(chunkCount);
+            for (Future<BatchResult.Chunk<S>> future : futures) {
+                chunks.add(future.get());
+            }
+            return new BatchResult<>(chunks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while writing batch chunks", e);
+        } catch (ExecutionException e) {
+            // writeChunk catches RuntimeExceptions, so only errors end up here
+            throw (Error) e.getCause();
+        } finally {
+            cancel(futures);
+        }
+    }
+
+    /**
+     * Hands each of {@code chunks} to {@code chunkReader} on several threads and
+     * concatenates the results in the order of the chunks. Unlike writes, a
+     * failing chunk fails the whole read.
+     */
+    <I, R> List<R> readParallel(List<List<I>> chunks, Function<List<I>, List<R>> chunkReader) {
+        ThreadPoolExecutor executor = executor();
+        List<Future<List<R>>> futures = new ArrayList<>(chunks.size());
+        try {
+            for (List<I> chunk : chunks) {
+                futures.add(executor.submit(() -> readTransactionTemplate.execute(status -> chunkReader.apply(chunk))));
+            }
+            List<R> results = new ArrayList<>();
+            for (Future<List<R>> future : futures) {
+                results.addAll(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while reading batch chunks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw (Error) e.getCause();
+        } finally {
+            cancel(futures);
+        }
+    }
+
+    /**
+     * Stops the chunks still running or waiting after a failure or an
+     * interruption, does nothing to the completed ones.
+     */
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Reads chunks of {@code chunkSize} from {@code entities} and hands them to
+     * {@code chunkWriter} one after the other. A chunk failing with a transient
+     * error is retried up to {@code retries} times. A chunk failing otherwise is
+     * bisected until the failing entities are isolated.
+     */
+    <S> BatchResult<S> executeChunked(Iterator<S> entities, int chunkSize, int retries,
+            Consumer<List<S>> chunkWriter) {
+        List<BatchResult.Chunk<S>> chunks = new ArrayList<>();
+        long offset = 0;
+        while (entities.hasNext()) {
+            List<S> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && entities.hasNext()) {
+                chunk.add(entities.next());
+            }
+            long start = System.nanoTime();
+            List<S> failedEntities = new ArrayList<>();
+            RuntimeException failure = writeBisecting(chunk, retries, chunkWriter, failedEntities);
+            chunks.add(new BatchResult.Chunk<>(chunks.size(), offset, chunk.size(), failedEntities, failure,
+                    Duration.ofNanos(System.nanoTime() - start)));
+            offset += chunk.size();
+        }
+        return new BatchResult<>(chunks);
+    }
+
+    /**
+     * Writes {@code chunk}, collecting the entities that could not be written
+     * in {@code failedEntities}.
+     *
+     * @return the first failure, {@literal null} if every entity was written.
+     */
+    @Nullable
+    private <S> RuntimeException writeBisecting(List<S> chunk, int retries, Consumer<List<S>> chunkWriter,
+            List<S> failedEntities) {
+        RuntimeException failure = writeWithRetries(chunk, retries, chunkWriter);
+        if (failure == null) {
+            return null;
+        }
+        if (chunk.size() == 1 || !isEntitySpecific(failure)) {
+            failedEntities.addAll(chunk);
+            return failure;
+        }
+        int middle = chunk.size() / 2;
+        RuntimeException first = writeBisecting(chunk.subList(0, middle), retries, chunkWriter, failedEntities);
+        RuntimeException second = writeBisecting(chunk.subList(middle, chunk.size()), retries, chunkWriter,
+                failedEntities);
+        return first != null ? first : second;
+    }
+
+    @Nullable
+    private <S> RuntimeException writeWithRetries(List<S> chunk, int retries, Consumer<List<S>> chunkWriter) {
+        for (int attempt = 0;; ++attempt) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> chunkWriter.accept(chunk));
+                return null;
+            } catch (RuntimeException e) {
+                if (attempt >= retries || !isTransient(e)) {
+                    return e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACK_OFF_MILLIS << Math.min(attempt, 10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while retrying a batch chunk", e);
+        }
+    }
+
+    /**
+     * Whether writing the same chunk again may succeed. Stale versions will not
+     * change by retrying.
+     */
+    private static boolean isTransient(RuntimeException e) {
+        return (e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException)
+                && !(e instanceof OptimisticLockingFailureException);
+    }
+
+    /**
+     * Whether a failure may be caused by some entities of a chunk, rather than
+     * by the database being unavailable, so bisecting the chunk isolates them.
+     */
+    private static boolean isEntitySpecific(RuntimeException e) {
+        return !isTransient(e) && !(e instanceof DataAccessResourceFailureException);
+    }
+
+    private <S> BatchResult.Chunk<S> writeChunk(int index, long offset, List<S> chunk,
+            Consumer<List<S>> chunkWriter) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> chunkWriter.accept(chunk));
+            return new BatchResult.Chunk<>(index, offset, chunk.size(), Collections.emptyList(), null,
+                    Duration.ofNanos(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            return new BatchResult.Chunk<>(index, offset, chunk.size(), new ArrayList<>(chunk), e,
+                    Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Returns the executor of the chunks, sized again if the pool of a lazily
+     * initialized unit became known since the last call.
+     */
+    private synchronized ThreadPoolExecutor executor() {
+        int threads = resolveParallelism();
+        if (executor == null) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("batch-chunk-");
+            threadFactory.setDaemon(true);
+            executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+        } else if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else if (threads < executor.getMaximumPoolSize()) {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+        return executor;
+    }
+
+    private int resolveParallelism() {
+        if (parallelism > 0) {
+            return parallelism;
+        }
+        if (transactionManager instanceof DataSourceTransactionManager) {
+            DataSource dataSource = ((DataSourceTransactionManager) transactionManager).getDataSource();
+            int maxPoolSize = dataSource == null ? -1 : DataSourcePools.getMaxPoolSize(dataSource);
+            if (maxPoolSize > 0) {
+                return Math.max(1, Math.min(maxPoolSize / 2, maxPoolSize - 1));
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,226 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.jdbc.core.convert.JdbcConverter;
+import org.springframework.data.mapping.InstanceCreatorMetadata;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.PreferredConstructor;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Accessors of an entity compiled once per {@link JdbcConverter} to
+ * {@link MethodHandle}s on its fields, used on the per row paths of the batch
+ * operations instead of a {@link PersistentPropertyAccessor} per row. The
+ * finders inherited from Spring Data JDBC keep its row mapping, which
+ * publishes the load events and callbacks.
+ * <p>
+ * Properties whose field can not be accessed, and immutable properties that
+ * are set through a wither or a copy constructor, are left to the accessor of
+ * the {@link JdbcConverter}. Likewise {@link #getRowMapper(IdentifierProcessing)}
+ * returns {@literal null} unless the entity is created through a no argument
+ * constructor and consists of simple properties only.
+ */
+final class CompiledEntity<T> {
+
+    /** by converter, each unit may convert the same entity differently */
+    private static final Map<JdbcConverter, Map<RelationalPersistentEntity<?>, CompiledEntity<?>>> CACHE =
+            new ConcurrentReferenceHashMap<>();
+
+    private final RelationalPersistentEntity<T> entity;
+    private final JdbcConverter converter;
+    private final Map<RelationalPersistentProperty, MethodHandle> getters = new HashMap<>();
+    private final Map<RelationalPersistentProperty, MethodHandle> setters = new HashMap<>();
+    @Nullable
+    private final RelationalPersistentProperty idProperty;
+    @Nullable
+    private final MethodHandle constructor;
+
+    private CompiledEntity(RelationalPersistentEntity<T> entity, JdbcConverter converter) {
+        this.entity = entity;
+        this.converter = converter;
+        this.idProperty = entity.getIdProperty();
+        entity.doWithProperties((RelationalPersistentProperty property) -> compile(property));
+        this.constructor = compileConstructor();
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> CompiledEntity<T> of(RelationalPersistentEntity<T> entity, JdbcConverter converter) {
+        return (CompiledEntity<T>) CACHE.computeIfAbsent(converter, c -> new ConcurrentReferenceHashMap<>())
+                .computeIfAbsent(entity, e -> new CompiledEntity<>(entity, converter));
+    }
+
+    @Nullable
+    Object getProperty(T bean, RelationalPersistentProperty property) {
+        MethodHandle getter = getters.get(property);
+        if (getter == null) {
+            return entity.getPropertyAccessor(bean).getProperty(property);
+        }
+        try {
+            return getter.invoke(bean);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Sets {@code value}, converted to the type of {@code property} if needed.
+     *
+     * @return the bean holding the value, which is a new instance for immutable
+     *         properties.
+     */
+    T setProperty(T bean, RelationalPersistentProperty property, @Nullable Object value) {
+        MethodHandle setter = setters.get(property);
+        if (setter == null) {
+            PersistentPropertyAccessor<T> accessor = converter.getPropertyAccessor(entity, bean);
+            accessor.setProperty(property, value);
+            return accessor.getBean();
+        }
+        Object converted = value;
+        if (value != null && !ClassUtils.isAssignableValue(property.getType(), value)) {
+            converted = converter.getConversionService().convert(value, property.getType());
+        }
+        try {
+            setter.invoke(bean, converted);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+        return bean;
+    }
+
+    @Nullable
+    Object getId(T bean) {
+        return idProperty == null ? null : getProperty(bean, idProperty);
+    }
+
+    T setId(T bean, @Nullable Object id) {
+        return setProperty(bean, entity.getRequiredIdProperty(), id);
+    }
+
+    /**
+     * Returns a row mapper reading the columns of {@link BatchSqlGenerator}
+     * selects, or {@literal null} if the entity needs the converter to be read.
+     * The mapper resolves the column indices on the first row, so a new one is
+     * needed per statement.
+     */
+    @Nullable
+    RowMapper<T> getRowMapper(IdentifierProcessing identifierProcessing) {
+        if (constructor == null) {
+            return null;
+        }
+        List<RelationalPersistentProperty> properties = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        for (RelationalPersistentProperty property : entity) {
+            if (property.isEntity() || property.isEmbedded() || property.isCollectionLike()
+                    || !setters.containsKey(property)) {
+                return null;
+            }
+            properties.add(property);
+            labels.add(property.getColumnName().getReference(identifierProcessing));
+        }
+        return new CompiledRowMapper(properties, labels);
+    }
+
+    private void compile(RelationalPersistentProperty property) {
+        Field field = property.getField();
+        if (field == null || Modifier.isStatic(field.getModifiers())) {
+            return;
+        }
+        try {
+            field.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            getters.put(property, lookup.unreflectGetter(field));
+            if (!Modifier.isFinal(field.getModifiers()) && !property.isImmutable()) {
+                setters.put(property, lookup.unreflectSetter(field));
+            }
+        } catch (IllegalAccessException | RuntimeException e) {
+            // e.g. a field of a module not open to this one, left to the converter
+        }
+    }
+
+    @Nullable
+    private MethodHandle compileConstructor() {
+        InstanceCreatorMetadata<RelationalPersistentProperty> creator = entity.getInstanceCreatorMetadata();
+        if (!(creator instanceof PreferredConstructor) || creator.hasParameters()
+                || Modifier.isAbstract(entity.getType().getModifiers())) {
+            return null;
+        }
+        Constructor<?> noArgConstructor = ((PreferredConstructor<?, ?>) creator).getConstructor();
+        try {
+            noArgConstructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(noArgConstructor);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+
+    private final class CompiledRowMapper implements RowMapper<T> {
+
+        private final RelationalPersistentProperty[] properties;
+        private final MethodHandle[] propertySetters;
+        private final String[] labels;
+        private int[] columns;
+
+        private CompiledRowMapper(List<RelationalPersistentProperty> properties, List<String> labels) {
+            this.properties = properties.toArray(new RelationalPersistentProperty[0]);
+            this.labels = labels.toArray(new String[0]);
+            this.propertySetters = new MethodHandle[this.properties.length];
+            for (int i = 0; i < this.properties.length; ++i) {
+                propertySetters[i] = setters.get(this.properties[i]);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+            if (columns == null) {
+                columns = new int[labels.length];
+                for (int i = 0; i < labels.length; ++i) {
+                    columns[i] = rs.findColumn(labels[i]);
+                }
+            }
+            try {
+                T bean = (T) constructor.invoke();
+                for (int i = 0; i < properties.length; ++i) {
+                    Object value = JdbcUtils.getResultSetValue(rs, columns[i]);
+                    if (value == null && properties[i].getType().isPrimitive()) {
+                        continue;
+                    }
+                    propertySetters[i].invoke(bean, converter.readValue(value, properties[i].getTypeInformation()));
+                }
+                return bean;
+            } catch (SQLException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A {@link NamedParameterJdbcTemplate} whose streams read a forward only cursor
+ * that stays open until the stream is closed.
+ * <p>
+ * Within a transaction of the caller the stream uses the connection of that
+ * transaction and must be consumed before it ends. Otherwise the stream gets a
+ * connection of its own, outliving the read only transaction of the repository
+ * method. It runs with auto commit disabled so that drivers such as
+ * PostgreSQL honor the fetch size. The connection is returned to the pool when
+ * the stream is closed.
+ */
+class CursorNamedParameterJdbcTemplate extends NamedParameterJdbcTemplate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CursorNamedParameterJdbcTemplate.class);
+
+    CursorNamedParameterJdbcTemplate(NamedParameterJdbcOperations operations) {
+        super(operations.getJdbcOperations());
+    }
+
+    /**
+     * Wraps {@code operations} unless it already streams from a cursor.
+     */
+    static CursorNamedParameterJdbcTemplate of(NamedParameterJdbcOperations operations) {
+        return operations instanceof CursorNamedParameterJdbcTemplate
+                ? (CursorNamedParameterJdbcTemplate) operations
+                : new CursorNamedParameterJdbcTemplate(operations);
+    }
+
+    @Override
+    @NonNull
+    public <T> Stream<T> queryForStream(@NonNull String sql, @NonNull SqlParameterSource paramSource,
+            @NonNull RowMapper<T> rowMapper) {
+        return queryForStream(sql, paramSource, rowMapper, 0);
+    }
+
+    /**
+     * Streams the rows of {@code sql}.
+     *
+     * @param fetchSize the number of rows fetched per round trip, {@literal 0}
+     *                  to use the fetch size of the {@link JdbcTemplate}.
+     */
+    <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper,
+            int fetchSize) {
+        JdbcOperations jdbcOperations = getJdbcOperations();
+        if (!(jdbcOperations instanceof JdbcTemplate) || ((JdbcTemplate) jdbcOperations).getDataSource() == null) {
+            return super.queryForStream(sql, paramSource, rowMapper);
+        }
+        JdbcTemplate template = (JdbcTemplate) jdbcOperations;
+        DataSource dataSource = template.getDataSource();
+
+        ParsedSql parsedSql = getParsedSql(sql);
+        PreparedStatementCreatorFactory statementFactory = getPreparedStatementCreatorFactory(parsedSql,
+                paramSource);
+        String sqlToUse = statementFactory.getSql();
+        PreparedStatementCreator statementCreator = con -> con.prepareStatement(sqlToUse,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        PreparedStatementSetter valueSetter = statementFactory
+                .newPreparedStatementSetter(NamedParameterUtils.buildValueArray(parsedSql, paramSource, null));
+        // runs after the statement settings of the template, so it takes precedence
+        PreparedStatementSetter statementSetter = ps -> {
+            if (fetchSize > 0) {
+                ps.setFetchSize(fetchSize);
+            }
+            valueSetter.setValues(ps);
+        };
+
+        if (isCallerTransaction(dataSource)) {
+            return template.queryForStream(statementCreator, statementSetter, rowMapper);
+        }
+        return queryOnOwnConnection(template, dataSource, sqlToUse, statementCreator, statementSetter, rowMapper);
+    }
+
+    /**
+     * Whether a transaction bound to {@code dataSource} was started by the caller
+     * rather than by the repository method currently executing.
+     */
+    private static boolean isCallerTransaction(DataSource dataSource) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.hasResource(dataSource)) {
+            return false;
+        }
+        try {
+            return !TransactionAspectSupport.currentTransactionStatus().isNewTransaction();
+        } catch (NoTransactionException e) {
+            return true;
+        }
+    }
+
+    private static <T> Stream<T> queryOnOwnConnection(JdbcTemplate template, DataSource dataSource, String sql,
+            PreparedStatementCreator statementCreator, PreparedStatementSetter statementSetter,
+            RowMapper<T> rowMapper) {
+        Connection connection;
+        boolean autoCommit;
+        try {
+            connection = dataSource.getConnection();
+        } catch (SQLException e) {
+            throw translate(template, "Obtain cursor connection", sql, e);
+        }
+        try {
+            autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+        } catch (SQLException e) {
+            JdbcUtils.closeConnection(connection);
+            throw translate(template, "Prepare cursor connection", sql, e);
+        }
+
+        JdbcTemplate cursorTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        cursorTemplate.setExceptionTranslator(template.getExceptionTranslator());
+        cursorTemplate.setFetchSize(template.getFetchSize());
+        cursorTemplate.setMaxRows(template.getMaxRows());
+        cursorTemplate.setQueryTimeout(template.getQueryTimeout());
+        try {
+            return cursorTemplate.queryForStream(statementCreator, statementSetter, rowMapper)
+                    .onClose(() -> release(connection, autoCommit));
+        } catch (RuntimeException e) {
+            release(connection, autoCommit);
+            throw e;
+        }
+    }
+
+    private static DataAccessException translate(JdbcTemplate template, String task, String sql, SQLException e) {
+        DataAccessException exception = template.getExceptionTranslator().translate(task, sql, e);
+        return exception != null ? exception : new UncategorizedSQLException(task, sql, e);
+    }
+
+    private static void release(Connection connection, boolean autoCommit) {
+        try {
+            // nothing was written through the cursor
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            LOGGER.debug("Could not reset cursor connection", e);
+        } finally {
+            JdbcUtils.closeConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import io.github.zivasd.spring.boot.jdbc.cfg.LazyInitDataSource;
+
+/**
+ * Reads the size of the connection pool behind a {@link DataSource} without
+ * depending on a particular pool implementation.
+ */
+final class DataSourcePools {
+
+    /**
+     * The maximum pool size properties of Hikari, DBCP2, Tomcat and Druid, C3P0
+     * and Oracle UCP.
+     */
+    private static final String[] MAX_POOL_SIZE_PROPERTIES = { "maximumPoolSize", "maxTotal", "maxActive",
+            "maxPoolSize" };
+
+    private DataSourcePools() {
+    }
+
+    /**
+     * Returns the maximum number of connections of the pool, or {@code -1} if it
+     * is unknown.
+     */
+    static int getMaxPoolSize(DataSource dataSource) {
+        DataSource pool = unwrap(dataSource);
+        BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(pool);
+        for (String property : MAX_POOL_SIZE_PROPERTIES) {
+            if (beanWrapper.isReadableProperty(property)) {
+                Object value = beanWrapper.getPropertyValue(property);
+                if (value instanceof Number && ((Number) value).intValue() > 0) {
+                    return ((Number) value).intValue();
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static DataSource unwrap(DataSource dataSource) {
+        DataSource current = dataSource;
+        while (true) {
+            DataSource target = null;
+            if (current instanceof DelegatingDataSource) {
+                target = ((DelegatingDataSource) current).getTargetDataSource();
+            } else if (current instanceof LazyInitDataSource) {
+                // not created before the first connection
+                target = ((LazyInitDataSource) current).getTargetDataSource();
+            }
+            if (target == null) {
+                return current;
+            }
+            current = target;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jdbc.core.convert.EntityRowMapper;
+import org.springframework.data.jdbc.core.convert.InsertSubject;
+import org.springframework.data.mapping.PersistentPropertyPath;
+import org.springframework.data.relational.core.conversion.IdValueSource;
+import org.springframework.data.relational.core.dialect.Dialect;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * The default {@link BatchDataAccessStrategy}, backed by the
+ * {@link NamedParameterJdbcOperations} of a datasource unit.
+ */
+public class DefaultBatchDataAccessStrategy implements BatchDataAccessStrategy {
+
+    private final BatchSqlGeneratorSource sqlGeneratorSource;
+    private final RelationalMappingContext context;
+    private final NamedParameterJdbcOperations operations;
+    private final BatchSqlParametersFactory sqlParametersFactory;
+    private final CursorNamedParameterJdbcTemplate cursorOperations;
+
+    public DefaultBatchDataAccessStrategy(BatchSqlGeneratorSource sqlGeneratorSource,
+            RelationalMappingContext context, NamedParameterJdbcOperations operations,
+            BatchSqlParametersFactory sqlParametersFactory) {
+        Assert.notNull(sqlGeneratorSource, "BatchSqlGeneratorSource must not be null");
+        Assert.notNull(context, "RelationalMappingContext must not be null");
+        Assert.notNull(operations, "NamedParameterJdbcOperations must not be null");
+        Assert.notNull(sqlParametersFactory, "BatchSqlParametersFactory must not be null");
+        this.sqlGeneratorSource = sqlGeneratorSource;
+        this.context = context;
+        this.operations = operations;
+        this.sqlParametersFactory = sqlParametersFactory;
+        this.cursorOperations = CursorNamedParameterJdbcTemplate.of(operations);
+    }
+
+    @Override
+    public boolean supportsMultiValuesInsert(Class<?> domainType, IdValueSource idValueSource) {
+        BatchDialect batchDialect = sqlGeneratorSource.getBatchDialect();
+        if (!batchDialect.supportsMultiValuesInsert()) {
+            return false;
+        }
+        if (idValueSource == IdValueSource.GENERATED && !batchDialect.supportsMultiValuesGeneratedKeys()) {
+            return false;
+        }
+        return !sql(domainType).getInsertColumns(Collections.emptySet(), idValueSource == IdValueSource.PROVIDED)
+                .isEmpty();
+    }
+
+    @Override
+    public <T> Object[] insert(List<InsertSubject<T>> insertSubjects, Class<T> domainType,
+            IdValueSource idValueSource, int maxRowsPerStatement) {
+        Assert.notEmpty(insertSubjects, "Batch insert must contain at least one entity");
+        Assert.isTrue(maxRowsPerStatement > 0, "Rows per statement must be positive");
+
+        RelationalPersistentEntity<T> persistentEntity = getRequiredPersistentEntity(domainType);
+        BatchSqlGenerator sqlGenerator = sql(domainType);
+        List<SqlIdentifier> insertColumns = sqlGenerator.getInsertColumns(
+                insertSubjects.get(0).getIdentifier().toMap().keySet(), idValueSource == IdValueSource.PROVIDED);
+        int maxRowsByParameters = sqlGeneratorSource.getBatchDialect().getMaxBindParameters() / insertColumns.size();
+        int rowsPerStatement = Math.max(1, Math.min(maxRowsPerStatement, maxRowsByParameters));
+
+        Object[] ids = new Object[insertSubjects.size()];
+        for (int from = 0; from < insertSubjects.size(); from += rowsPerStatement) {
+            List<InsertSubject<T>> rows = insertSubjects.subList(from,
+                    Math.min(from + rowsPerStatement, insertSubjects.size()));
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            for (int row = 0; row < rows.size(); ++row) {
+                InsertSubject<T> subject = rows.get(row);
+                sqlParametersFactory.forInsert(parameters, subject.getInstance(), persistentEntity,
+                        subject.getIdentifier(), idValueSource, row);
+            }
+            String sql = sqlGenerator.getInsertMultiValues(insertColumns, rows.size());
+            if (idValueSource == IdValueSource.GENERATED) {
+                List<Map<String, Object>> keys = executeInsertWithKeys(sql, parameters, persistentEntity);
+                Assert.state(keys.size() == rows.size(), () -> String.format(
+                        "Expected %d generated keys but the driver returned %d", rows.size(), keys.size()));
+                for (int row = 0; row < rows.size(); ++row) {
+                    ids[from + row] = getId(keys.get(row), persistentEntity);
+                }
+            } else {
+                operations.update(sql, parameters);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public <T> int[] update(List<T> instances, Class<T> domainType) {
+        RelationalPersistentEntity<T> persistentEntity = getRequiredPersistentEntity(domainType);
+        SqlParameterSource[] parameterSources = new SqlParameterSource[instances.size()];
+        for (int i = 0; i < parameterSources.length; ++i) {
+            parameterSources[i] = sqlParametersFactory.forUpdate(instances.get(i), persistentEntity);
+        }
+        return operations.batchUpdate(sql(domainType).getUpdate(), parameterSources);
+    }
+
+    @Override
+    public <T> int[] updateWithVersion(List<T> instances, Class<T> domainType,
+            List<? extends Number> previousVersions) {
+        Assert.isTrue(instances.size() == previousVersions.size(),
+                "There must be exactly one previous version per instance");
+        RelationalPersistentEntity<T> persistentEntity = getRequiredPersistentEntity(domainType);
+        SqlParameterSource[] parameterSources = new SqlParameterSource[instances.size()];
+        for (int i = 0; i < parameterSources.length; ++i) {
+            parameterSources[i] = sqlParametersFactory.forUpdateWithVersion(instances.get(i), persistentEntity,
+                    previousVersions.get(i));
+        }
+        return operations.batchUpdate(sql(domainType).getUpdateWithVersion(), parameterSources);
+    }
+
+    @Override
+    public <T> int[] upsert(List<T> instances, Class<T> domainType) {
+        String sql = sql(domainType).getUpsert();
+        RelationalPersistentEntity<T> persistentEntity = getRequiredPersistentEntity(domainType);
+        SqlParameterSource[] parameterSources = new SqlParameterSource[instances.size()];
+        for (int i = 0; i < parameterSources.length; ++i) {
+            parameterSources[i] = sqlParametersFactory.forUpsert(instances.get(i), persistentEntity);
+        }
+        return operations.batchUpdate(sql, parameterSources);
+    }
+
+    @Override
+    public int deleteByIds(List<?> ids, Class<?> domainType, int maxIdsPerStatement) {
+        Assert.isTrue(maxIdsPerStatement > 0, "Ids per statement must be positive");
+        BatchSqlGenerator sqlGenerator = sql(domainType);
+        return deleteIn(ids, domainType, maxIdsPerStatement, sqlGenerator::getDeleteByIdIn);
+    }
+
+    @Override
+    public int deleteByRootIds(List<?> rootIds, Class<?> rootType,
+            PersistentPropertyPath<RelationalPersistentProperty> path) {
+        BatchSqlGenerator sqlGenerator = sql(rootType);
+        return deleteIn(rootIds, rootType, rootIds.size(), size -> sqlGenerator.getDeleteByPath(path, size));
+    }
+
+    /**
+     * Executes the statements created by {@code sqlForSize} for chunks of the
+     * given ids, padding every {@code IN} list to a bucket size.
+     */
+    private int deleteIn(List<?> ids, Class<?> domainType, int maxIdsPerStatement, IntFunction<String> sqlForSize) {
+        RelationalPersistentEntity<?> persistentEntity = getRequiredPersistentEntity(domainType);
+        int idsPerStatement = Math.min(maxIdsPerStatement,
+                BatchSqlGenerator.maxInListSize(sqlGeneratorSource.getBatchDialect().getMaxInListSize()));
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += idsPerStatement) {
+            List<?> chunk = ids.subList(from, Math.min(from + idsPerStatement, ids.size()));
+            int size = BatchSqlGenerator.inListSize(chunk.size(), idsPerStatement);
+            deleted += operations.update(sqlForSize.apply(size),
+                    sqlParametersFactory.forIdIn(chunk, persistentEntity, size));
+        }
+        return deleted;
+    }
+
+    @Override
+    public int[] deleteWithVersion(List<?> ids, Class<?> domainType, List<? extends Number> previousVersions) {
+        Assert.isTrue(ids.size() == previousVersions.size(), "There must be exactly one previous version per id");
+        RelationalPersistentEntity<?> persistentEntity = getRequiredPersistentEntity(domainType);
+        // as many rows per batch as ids per IN list of the unversioned deletes
+        int rowsPerBatch = BatchSqlGenerator.maxInListSize(sqlGeneratorSource.getBatchDialect().getMaxInListSize());
+        String sql = sql(domainType).getDeleteByIdWithVersion();
+        int[] updateCounts = new int[ids.size()];
+        for (int from = 0; from < ids.size(); from += rowsPerBatch) {
+            SqlParameterSource[] parameterSources = new SqlParameterSource[Math.min(rowsPerBatch, ids.size() - from)];
+            for (int i = 0; i < parameterSources.length; ++i) {
+                parameterSources[i] = sqlParametersFactory.forDeleteWithVersion(ids.get(from + i), persistentEntity,
+                        previousVersions.get(from + i));
+            }
+            int[] chunkCounts = operations.batchUpdate(sql, parameterSources);
+            System.arraycopy(chunkCounts, 0, updateCounts, from, chunkCounts.length);
+        }
+        return updateCounts;
+    }
+
+    @Override
+    public <T> Stream<T> streamAll(Class<T> domainType, int fetchSize) {
+        return cursorOperations.queryForStream(sql(domainType).getFindAll(), EmptySqlParameterSource.INSTANCE,
+                getEntityRowMapper(domainType), fetchSize);
+    }
+
+    @Override
+    public <T> Stream<T> streamAllById(List<?> ids, Class<T> domainType, int fetchSize) {
+        RelationalPersistentEntity<T> persistentEntity = getRequiredPersistentEntity(domainType);
+        BatchSqlGenerator sqlGenerator = sql(domainType);
+        int idsPerStatement = BatchSqlGenerator
+                .maxInListSize(sqlGeneratorSource.getBatchDialect().getMaxInListSize());
+        List<List<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += idsPerStatement) {
+            chunks.add(ids.subList(from, Math.min(from + idsPerStatement, ids.size())));
+        }
+        // each chunk opens its cursor only once the previous one is exhausted
+        return chunks.stream().flatMap(chunk -> {
+            int size = BatchSqlGenerator.inListSize(chunk.size(), idsPerStatement);
+            return cursorOperations.queryForStream(sqlGenerator.getFindAllByIdIn(size),
+                    sqlParametersFactory.forIdIn(chunk, persistentEntity, size), getEntityRowMapper(domainType),
+                    fetchSize);
+        });
+    }
+
+    @Override
+    public <T> List<T> findAllByIdIn(List<?> ids, Class<T> domainType) {
+        RelationalPersistentEntity<T> persistentEntity = getRequiredPersistentEntity(domainType);
+        BatchSqlGenerator sqlGenerator = sql(domainType);
+        int idsPerStatement = BatchSqlGenerator
+                .maxInListSize(sqlGeneratorSource.getBatchDialect().getMaxInListSize());
+        List<T> result = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += idsPerStatement) {
+            List<?> chunk = ids.subList(from, Math.min(from + idsPerStatement, ids.size()));
+            int size = BatchSqlGenerator.inListSize(chunk.size(), idsPerStatement);
+            result.addAll(operations.query(sqlGenerator.getFindAllByIdIn(size),
+                    sqlParametersFactory.forIdIn(chunk, persistentEntity, size), getEntityRowMapper(domainType)));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Object, Number> findVersionsByIdIn(List<?> ids, Class<?> domainType) {
+        RelationalPersistentEntity<?> persistentEntity = getRequiredPersistentEntity(domainType);
+        BatchSqlGenerator sqlGenerator = sql(domainType);
+        Class<?> idType = persistentEntity.getRequiredIdProperty().getActualType();
+        int idsPerStatement = BatchSqlGenerator
+                .maxInListSize(sqlGeneratorSource.getBatchDialect().getMaxInListSize());
+        Map<Object, Number> versions = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += idsPerStatement) {
+            List<?> chunk = ids.subList(from, Math.min(from + idsPerStatement, ids.size()));
+            int size = BatchSqlGenerator.inListSize(chunk.size(), idsPerStatement);
+            operations.query(sqlGenerator.getFindVersionsByIdIn(size),
+                    sqlParametersFactory.forIdIn(chunk, persistentEntity, size),
+                    resultSet -> {
+                        versions.put(JdbcUtils.getResultSetValue(resultSet, 1, idType),
+                                (Number) JdbcUtils.getResultSetValue(resultSet, 2));
+                    });
+        }
+        return versions;
+    }
+
+    @Override
+    public <T> List<T> findAllAfter(@Nullable T last, Class<T> domainType, Sort sort, int limit) {
+        BatchSqlGenerator sqlGenerator = sql(domainType);
+        SqlParameterSource parameters = last == null ? EmptySqlParameterSource.INSTANCE
+                : sqlParametersFactory.forKeyset(last, getRequiredPersistentEntity(domainType),
+                        sqlGenerator.getKeysetProperties(sort));
+        return operations.query(sqlGenerator.getFindAllAfter(sort, last == null, limit), parameters,
+                getEntityRowMapper(domainType));
+    }
+
+    /**
+     * Returns the row mapper compiled for the entity, or the one of Spring Data
+     * JDBC where the entity needs the converter to be read. A new mapper is
+     * needed per statement.
+     */
+    private <T> RowMapper<T> getEntityRowMapper(Class<T> domainType) {
+        RelationalPersistentEntity<T> persistentEntity = getRequiredPersistentEntity(domainType);
+        RowMapper<T> rowMapper = CompiledEntity.of(persistentEntity, sqlParametersFactory.getConverter())
+                .getRowMapper(sqlGeneratorSource.getDialect().getIdentifierProcessing());
+        return rowMapper != null ? rowMapper
+                : new EntityRowMapper<>(persistentEntity, sqlParametersFactory.getConverter());
+    }
+
+    private List<Map<String, Object>> executeInsertWithKeys(String sql, SqlParameterSource parameters,
+            RelationalPersistentEntity<?> persistentEntity) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        Dialect dialect = sqlGeneratorSource.getDialect();
+        if (dialect.getIdGeneration().driverRequiresKeyColumnNames()) {
+            String idColumn = persistentEntity.getIdColumn().getReference(dialect.getIdentifierProcessing());
+            operations.update(sql, parameters, keyHolder, new String[] { idColumn });
+        } else {
+            operations.update(sql, parameters, keyHolder);
+        }
+        return keyHolder.getKeyList();
+    }
+
+    /**
+     * Picks the id from the generated keys of one row. Some drivers return
+     * further generated columns, so the id column is looked up by name first.
+     */
+    private Object getId(Map<String, Object> keys, RelationalPersistentEntity<?> persistentEntity) {
+        String idColumn = persistentEntity.getIdColumn()
+                .getReference(sqlGeneratorSource.getDialect().getIdentifierProcessing());
+        for (Map.Entry<String, Object> key : keys.entrySet()) {
+            if (key.getKey().equalsIgnoreCase(idColumn)) {
+                return key.getValue();
+            }
+        }
+        return keys.isEmpty() ? null : keys.values().iterator().next();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> RelationalPersistentEntity<S> getRequiredPersistentEntity(Class<S> domainType) {
+        return (RelationalPersistentEntity<S>) context.getRequiredPersistentEntity(domainType);
+    }
+
+    private BatchSqlGenerator sql(Class<?> domainType) {
+        return sqlGeneratorSource.getSqlGenerator(domainType);
+    }
+}
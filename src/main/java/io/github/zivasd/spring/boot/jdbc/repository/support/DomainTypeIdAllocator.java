@@ -0,0 +1,39 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+import io.github.zivasd.spring.boot.jdbc.repository.IdAllocator;
+
+/**
+ * Delegates to a different {@link IdAllocator} per domain type. Types without
+ * an allocator keep their database generated ids.
+ */
+public class DomainTypeIdAllocator implements IdAllocator {
+
+    private final Map<Class<?>, IdAllocator> allocators;
+
+    /**
+     * @param allocators the allocator of each domain type, must not be
+     *                   {@literal null}.
+     */
+    public DomainTypeIdAllocator(Map<Class<?>, ? extends IdAllocator> allocators) {
+        Assert.notNull(allocators, "Allocators must not be null");
+        this.allocators = new LinkedHashMap<>(allocators);
+    }
+
+    @Override
+    public boolean supports(Class<?> domainType) {
+        IdAllocator allocator = allocators.get(domainType);
+        return allocator != null && allocator.supports(domainType);
+    }
+
+    @Override
+    public long[] allocate(Class<?> domainType, int count) {
+        IdAllocator allocator = allocators.get(domainType);
+        Assert.state(allocator != null, () -> "No IdAllocator for " + domainType.getName());
+        return allocator.allocate(domainType, count);
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import io.github.zivasd.spring.boot.jdbc.repository.ShardingStrategy;
+
+/**
+ * Spreads the shard keys evenly over the shards: integral keys by their value
+ * modulo the number of shards, other keys by their hash code. Used unless a
+ * repository set configures another {@link ShardingStrategy}.
+ * <p>
+ * Other keys must have a hash code that is the same on every JVM, like strings
+ * and UUIDs. Enums are hashed by their name.
+ */
+public class HashShardingStrategy implements ShardingStrategy {
+
+    @Override
+    public int getShard(Object key, int shardCount) {
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return (int) Math.floorMod(((Number) key).longValue(), (long) shardCount);
+        }
+        if (key instanceof Enum) {
+            return Math.floorMod(((Enum<?>) key).name().hashCode(), shardCount);
+        }
+        return Math.floorMod(key.hashCode(), shardCount);
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.util.Assert;
+
+/**
+ * Allocates ids with the hi/lo algorithm: every value of a database sequence
+ * (the hi value) reserves {@code blockSize} ids, {@code hi * blockSize} to
+ * {@code hi * blockSize + blockSize - 1}. The sequence increments by one.
+ */
+public class HiLoIdAllocator extends BlockIdAllocator {
+
+    private final DataFieldMaxValueIncrementer incrementer;
+
+    /**
+     * @param incrementer the incrementer of the hi sequence, must not be
+     *                    {@literal null}.
+     * @param blockSize   the number of ids per hi value, must be positive.
+     */
+    public HiLoIdAllocator(DataFieldMaxValueIncrementer incrementer, int blockSize) {
+        super(blockSize);
+        Assert.notNull(incrementer, "DataFieldMaxValueIncrementer must not be null");
+        this.incrementer = incrementer;
+    }
+
+    @Override
+    long nextBlockStart() {
+        return Math.multiplyExact(incrementer.nextLongValue(), getBlockSize());
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.BeanFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Publishes the chunks of the batch operations of one datasource unit to a
+ * {@link MeterRegistry}:
+ * <ul>
+ * <li>{@code multi.jdbc.batch.chunk}, a timer of the chunk latency,</li>
+ * <li>{@code multi.jdbc.batch.rows}, a counter of the rows written,</li>
+ * <li>{@code multi.jdbc.batch.chunk.rows}, a summary of the chunk sizes.</li>
+ * </ul>
+ * All are tagged with {@code unit}, {@code entity}, {@code operation} and
+ * {@code generated.keys}, the timer also with {@code outcome}.
+ */
+final class MicrometerBatchMetrics implements BatchMetrics {
+
+    static final String CHUNK_TIMER = "multi.jdbc.batch.chunk";
+    static final String ROWS_COUNTER = "multi.jdbc.batch.rows";
+    static final String CHUNK_ROWS_SUMMARY = "multi.jdbc.batch.chunk.rows";
+
+    private final MeterRegistry registry;
+    private final String unit;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    private MicrometerBatchMetrics(MeterRegistry registry, String unit) {
+        this.registry = registry;
+        this.unit = unit;
+    }
+
+    /**
+     * Creates the metrics of {@code unit} if the bean factory has a
+     * {@link MeterRegistry}, {@link BatchMetrics#NONE} otherwise.
+     */
+    static BatchMetrics create(BeanFactory beanFactory, String unit) {
+        MeterRegistry registry = beanFactory.getBeanProvider(MeterRegistry.class).getIfAvailable();
+        return registry == null ? NONE : new MicrometerBatchMetrics(registry, unit);
+    }
+
+    @Override
+    public <R> R record(Class<?> domainType, String operation, boolean generatedKeys, int rows,
+            Supplier<R> chunk) {
+        Meters chunkMeters = meters.computeIfAbsent(domainType.getName() + '/' + operation + '/' + generatedKeys,
+                key -> new Meters(domainType, operation, generatedKeys));
+        long start = registry.config().clock().monotonicTime();
+        try {
+            R result = chunk.get();
+            chunkMeters.success.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            chunkMeters.rows.increment(rows);
+            chunkMeters.chunkRows.record(rows);
+            return result;
+        } catch (RuntimeException | Error e) {
+            chunkMeters.failure.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private final class Meters {
+        private final Timer success;
+        private final Timer failure;
+        private final Counter rows;
+        private final DistributionSummary chunkRows;
+
+        private Meters(Class<?> domainType, String operation, boolean generatedKeys) {
+            Tags tags = Tags.of("unit", unit, "entity", domainType.getSimpleName(), "operation", operation,
+                    "generated.keys", String.valueOf(generatedKeys));
+            this.success = Timer.builder(CHUNK_TIMER).description("Latency of the chunks of batch operations")
+                    .tags(tags).tag("outcome", "success").register(registry);
+            this.failure = Timer.builder(CHUNK_TIMER).description("Latency of the chunks of batch operations")
+                    .tags(tags).tag("outcome", "failure").register(registry);
+            this.rows = Counter.builder(ROWS_COUNTER).description("Rows written by batch operations")
+                    .baseUnit("rows").tags(tags).register(registry);
+            this.chunkRows = DistributionSummary.builder(CHUNK_ROWS_SUMMARY)
+                    .description("Rows per chunk of batch operations").baseUnit("rows").tags(tags)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+import org.springframework.util.Assert;
+
+/**
+ * Prefetches ids from a database sequence that increments by
+ * {@code incrementSize}: every value {@code v} of the sequence reserves the ids
+ * {@code v} to {@code v + incrementSize - 1}. Unlike {@link HiLoIdAllocator}
+ * the ids equal the sequence values, so rows inserted by other clients calling
+ * the sequence directly do not collide.
+ */
+public class PooledSequenceIdAllocator extends BlockIdAllocator {
+
+    private final DataFieldMaxValueIncrementer incrementer;
+
+    /**
+     * @param incrementer   the incrementer of the sequence, must not be
+     *                      {@literal null}.
+     * @param incrementSize the increment of the sequence, must be positive.
+     */
+    public PooledSequenceIdAllocator(DataFieldMaxValueIncrementer incrementer, int incrementSize) {
+        super(incrementSize);
+        Assert.notNull(incrementer, "DataFieldMaxValueIncrementer must not be null");
+        this.incrementer = incrementer;
+    }
+
+    @Override
+    long nextBlockStart() {
+        return incrementer.nextLongValue();
+    }
+}
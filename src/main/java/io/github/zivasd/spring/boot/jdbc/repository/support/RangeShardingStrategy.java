@@ -0,0 +1,67 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+import io.github.zivasd.spring.boot.jdbc.repository.ShardingStrategy;
+
+/**
+ * Assigns consecutive ranges of shard keys to the shards, in the order of the
+ * shards. Each bound is the smallest key of the next shard: with the bounds
+ * {@code 1000, 2000} keys below {@literal 1000} are stored in shard
+ * {@literal 0}, keys from {@literal 1000} to {@literal 1999} in shard
+ * {@literal 1} and the others in shard {@literal 2}.
+ * <p>
+ * Numbers are compared by value whatever their type, other keys must be
+ * {@link Comparable} to the bounds.
+ */
+public class RangeShardingStrategy implements ShardingStrategy {
+
+    private final List<Comparable<?>> bounds;
+
+    /**
+     * @param bounds the smallest key of every shard but the first, in ascending
+     *               order, must not be empty.
+     */
+    public RangeShardingStrategy(Comparable<?>... bounds) {
+        Assert.notEmpty(bounds, "Bounds must not be empty");
+        Assert.noNullElements(bounds, "Bounds must not contain null elements");
+        for (int i = 1; i < bounds.length; ++i) {
+            Assert.isTrue(compare(bounds[i - 1], bounds[i]) < 0, "Bounds must be in ascending order");
+        }
+        this.bounds = Collections.unmodifiableList(Arrays.asList(bounds));
+    }
+
+    public List<Comparable<?>> getBounds() {
+        return bounds;
+    }
+
+    @Override
+    public int getShard(Object key, int shardCount) {
+        Assert.isTrue(shardCount == bounds.size() + 1,
+                () -> bounds.size() + " bounds can not split keys over " + shardCount + " shards");
+        int low = 0;
+        int high = bounds.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(key, bounds.get(middle)) < 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(Object key, Object bound) {
+        if (key instanceof Number && bound instanceof Number) {
+            return new BigDecimal(key.toString()).compareTo(new BigDecimal(bound.toString()));
+        }
+        return ((Comparable) key).compareTo(bound);
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * The datasource units holding the shards of a table split across identical
+ * databases, declared with {@code spring.datasources.<unit>.shard.group} and
+ * {@code spring.datasources.<unit>.shard.index}.
+ * <p>
+ * Registered as {@code <group>ShardGroup} and bound to the repositories of
+ * {@link io.github.zivasd.spring.boot.jdbc.config.EnableMultipleJdbcRepositories#shardGroup()}.
+ * The calls split across the shards of the group run on its threads, one per
+ * shard, shared by all the repositories bound to it.
+ */
+public class ShardGroup implements DisposableBean {
+
+    /**
+     * The suffix appended to the name of the group to name the bean.
+     */
+    public static final String BEAN_NAME_SUFFIX = "ShardGroup";
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final String name;
+    private final List<String> units;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * @param name  must not be {@literal null}.
+     * @param units the units of the shards, ordered by shard index, must not be
+     *              empty.
+     */
+    public ShardGroup(String name, List<String> units) {
+        Assert.hasText(name, "Name must not be empty");
+        Assert.notEmpty(units, "Units must not be empty");
+        this.name = name;
+        this.units = Collections.unmodifiableList(new ArrayList<>(units));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the units of the shards, the unit of shard {@code i} at index
+     * {@code i}.
+     */
+    public List<String> getUnits() {
+        return units;
+    }
+
+    public int size() {
+        return units.size();
+    }
+
+    /**
+     * Returns the executor of the parts of split calls, bounded to one thread
+     * per shard whatever the number of concurrent callers.
+     */
+    synchronized ExecutorService getExecutor() {
+        Assert.state(executor == null || !executor.isShutdown(), () -> "Shard group " + name + " is shut down");
+        if (executor == null) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("shard-" + name + "-");
+            threadFactory.setDaemon(true);
+            executor = new ThreadPoolExecutor(size(), size(), KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardGroup [name=" + name + ", units=" + units + "]";
+    }
+}
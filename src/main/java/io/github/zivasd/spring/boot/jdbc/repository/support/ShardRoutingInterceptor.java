@@ -0,0 +1,567 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import io.github.zivasd.spring.boot.jdbc.repository.BatchRepository;
+import io.github.zivasd.spring.boot.jdbc.repository.BatchResult;
+import io.github.zivasd.spring.boot.jdbc.repository.ShardKey;
+import io.github.zivasd.spring.boot.jdbc.repository.ShardingStrategy;
+
+/**
+ * The outermost advice of a repository bound to a {@link ShardGroup}, invoking
+ * every call on the repositories of the shards rather than on its own target.
+ * <ul>
+ * <li>A call taking an entity, or the id of a {@link CrudRepository} or
+ * {@link BatchRepository} method when the entities are sharded by id, is
+ * invoked on the shard of that entity. Any other argument, even of the type of
+ * the id, is no shard key.</li>
+ * <li>A call taking entities, or the ids of such a method when the entities
+ * are sharded by id, is invoked on every shard concerned with its part of
+ * them, on the threads of the group. Lists returned are merged back in the
+ * order of the input, the entities found by ids in the order of the first
+ * occurrence of their id. The chunks of a {@link BatchResult} are ordered by
+ * the position of their first entity in the whole input, reported as their
+ * offset. Their entities are not contiguous in
+ * the input though, only their failed entities tell which ones failed.</li>
+ * <li>A write pulling its entities or ids from an iterator, a stream or an
+ * iterable that is no collection, such as {@code batchSave(Iterator, int)},
+ * is split chunk by chunk as it reads them, the chunks having the size given
+ * with them. Each chunk is committed by its shards before the next chunk is
+ * read, unlike the single transaction of an unsharded repository.</li>
+ * <li>Any other call is invoked on every shard in turn. Collections and
+ * streams returned are concatenated, counts summed, and a single result is
+ * the one of the shard that found it.</li>
+ * </ul>
+ * The parts of a split call run on the threads of the group even when all the
+ * elements belong to one shard, so they never join a transaction of the
+ * caller. Each shard runs the call in a transaction of its own unit. A call
+ * spanning several shards is therefore not atomic: the parts committed stay committed
+ * when the part of another shard fails. Calls returning a {@link Slice}, and
+ * calls invoked on every shard that sort, page or limit their results, can not
+ * be merged and are rejected.
+ */
+final class ShardRoutingInterceptor implements MethodInterceptor {
+
+    /** the subject of a derived query, as parsed by Spring Data */
+    private static final Pattern QUERY_SUBJECT = Pattern
+            .compile("^(find|read|get|query|search|stream)(\\p{Lu}.*?)??By");
+    private static final Pattern LIMITING_QUERY = Pattern.compile("(First|Top)(\\d*)?");
+    /** the repositories whose methods declare the parameters taking ids */
+    private static final Class<?>[] ID_REPOSITORIES = { CrudRepository.class, BatchRepository.class };
+
+    private final ShardGroup group;
+    private final ShardingStrategy strategy;
+    private final List<?> repositories;
+    private final RelationalPersistentEntity<?> entity;
+    private final RelationalPersistentProperty shardKey;
+    private final Class<?> idType;
+    private final ConversionService conversionService;
+    /** the index of the parameter taking the id or the ids per method, -1 if none */
+    private final Map<Method, Integer> idParameters = new ConcurrentHashMap<>();
+
+    /**
+     * @param repositories the repositories of the shards, ordered as the units
+     *                     of {@code group}.
+     */
+    ShardRoutingInterceptor(ShardGroup group, ShardingStrategy strategy, List<?> repositories,
+            RelationalPersistentEntity<?> entity, Class<?> idType, ConversionService conversionService) {
+        Assert.isTrue(repositories.size() == group.size(), "There must be one repository per shard");
+        this.group = group;
+        this.strategy = strategy;
+        this.repositories = repositories;
+        this.entity = entity;
+        RelationalPersistentProperty property = entity.getPersistentProperty(ShardKey.class);
+        this.shardKey = property != null ? property : entity.getRequiredIdProperty();
+        this.idType = idType;
+        this.conversionService = conversionService;
+    }
+
+    @Override
+    @Nullable
+    public Object invoke(@NonNull MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        if (Slice.class.isAssignableFrom(method.getReturnType())) {
+            throw new InvalidDataAccessApiUsageException(
+                    method.getName() + " can not be merged across the shards of " + group.getName());
+        }
+
+        Class<?>[] types = method.getParameterTypes();
+        Object[] arguments = invocation.getArguments().clone();
+        int idParameter = shardKey.isIdProperty() ? getIdParameter(method) : -1;
+        for (int i = 0; i < arguments.length; ++i) {
+            if (isOneShot(types[i], arguments[i])) {
+                Iterator<?> elements = toIterator(arguments[i]);
+                if (isChunkedWrite(method, types, i)) {
+                    return invokeChunked(method, types, arguments, i, elements, i == idParameter);
+                }
+                // consumed once here, handed to every shard as a new iterator or stream by #adapt
+                arguments[i] = toList(elements);
+            }
+        }
+
+        for (int i = 0; i < arguments.length; ++i) {
+            boolean ids = i == idParameter;
+            if (entity.getType().isInstance(arguments[i]) || (ids && !(arguments[i] instanceof Iterable))) {
+                return invoke(getShard(arguments[i]), method, adapt(types, arguments));
+            }
+            if (arguments[i] instanceof Iterable
+                    && (ids || entity.getType().isInstance(first((Iterable<?>) arguments[i])))) {
+                return invokeSplit(method, types, arguments, i, ids);
+            }
+        }
+        return invokeAll(method, types, arguments);
+    }
+
+    /**
+     * Converts an id to the type of the id property, so that an {@code Integer}
+     * given for a {@code Long} id routes and matches as the {@code Long}.
+     */
+    @Nullable
+    private Object toId(@Nullable Object id) {
+        return id == null || idType.isInstance(id) ? id : conversionService.convert(id, idType);
+    }
+
+    private int getIdParameter(Method method) {
+        return idParameters.computeIfAbsent(method, ShardRoutingInterceptor::findIdParameter);
+    }
+
+    /**
+     * Finds the parameter declared as {@code ID}, or as an {@code Iterable} of
+     * {@code ID}, by the {@link CrudRepository} or {@link BatchRepository} method
+     * of the same name and arity.
+     */
+    private static int findIdParameter(Method method) {
+        for (Class<?> repository : ID_REPOSITORIES) {
+            TypeVariable<?> id = repository.getTypeParameters()[1];
+            for (Method declared : repository.getMethods()) {
+                if (!declared.getName().equals(method.getName())
+                        || declared.getParameterCount() != method.getParameterCount()) {
+                    continue;
+                }
+                Type[] types = declared.getGenericParameterTypes();
+                for (int i = 0; i < types.length; ++i) {
+                    if (isIdType(types[i], id)) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIdType(Type type, TypeVariable<?> id) {
+        if (type instanceof ParameterizedType) {
+            type = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (type instanceof WildcardType) {
+                type = ((WildcardType) type).getUpperBounds()[0];
+            }
+        }
+        return id.equals(type);
+    }
+
+    /**
+     * Returns the shard of an entity or of an id.
+     */
+    private int getShard(@Nullable Object value) {
+        Object key = entity.getType().isInstance(value) ? entity.getPropertyAccessor(value).getProperty(shardKey)
+                : toId(value);
+        if (key == null) {
+            throw new InvalidDataAccessApiUsageException("The shard key " + shardKey.getName() + " of "
+                    + entity.getType().getName() + " must be set to store or find it in " + group.getName());
+        }
+        int shard = strategy.getShard(key, group.size());
+        Assert.state(shard >= 0 && shard < group.size(),
+                () -> "Shard " + shard + " of key " + key + " is not a shard of " + group.getName());
+        return shard;
+    }
+
+    /**
+     * Splits the elements of the argument at {@code index}, entities or ids, by
+     * shard and invokes the parts on their shards in parallel.
+     */
+    private Object invokeSplit(Method method, Class<?>[] types, Object[] arguments, int index, boolean ids)
+            throws Throwable {
+        Map<Integer, Part> parts = new TreeMap<>();
+        int count = 0;
+        for (Object element : (Iterable<?>) arguments[index]) {
+            parts.computeIfAbsent(getShard(element), Part::new).add(element, count++);
+        }
+
+        // a single part runs on the threads of the group too, outside of any transaction of the caller
+        ExecutorService executor = group.getExecutor();
+        List<Future<Object>> futures = new ArrayList<>(parts.size());
+        List<Object> results = new ArrayList<>(parts.size());
+        try {
+            for (Part part : parts.values()) {
+                Object[] partArguments = arguments.clone();
+                partArguments[index] = part.elements;
+                futures.add(executor.submit(() -> invokeChecked(part.shard, method, adapt(types, partArguments))));
+            }
+            // the other parts are awaited even if one fails, so that no write is left running
+            Throwable failure = null;
+            for (Future<Object> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("Interrupted while writing to " + group.getName(), e);
+        }
+        return mergeSplit(method.getReturnType(), new ArrayList<>(parts.values()), results, count, ids);
+    }
+
+    /**
+     * Splits the elements of a write pulled from an iterator, a stream or an
+     * iterable that is no collection into chunks of the size given after them,
+     * and invokes every chunk as a split call. Only the current chunk is kept in
+     * memory; each chunk is committed by the shards before the next one is read.
+     */
+    private Object invokeChunked(Method method, Class<?>[] types, Object[] arguments, int index,
+            Iterator<?> elements, boolean ids) throws Throwable {
+        int chunkSize = (Integer) arguments[index + 1];
+        Assert.isTrue(chunkSize > 0, "chunk size must be positive.");
+        List<Object> results = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        long offset = 0;
+        while (elements.hasNext()) {
+            List<Object> chunk = new ArrayList<>();
+            while (chunk.size() < chunkSize && elements.hasNext()) {
+                chunk.add(elements.next());
+            }
+            Object[] chunkArguments = arguments.clone();
+            chunkArguments[index] = chunk;
+            results.add(ids || entity.getType().isInstance(first(chunk))
+                    ? invokeSplit(method, types, chunkArguments, index, ids)
+                    : invokeAll(method, types, chunkArguments));
+            offsets.add(offset);
+            offset += chunk.size();
+        }
+        return method.getReturnType() == BatchResult.class ? mergeChunks(results, offsets)
+                : merge(method.getReturnType(), results);
+    }
+
+    private Object invokeAll(Method method, Class<?>[] types, Object[] arguments) throws Throwable {
+        if (isOrdered(method, arguments)) {
+            throw new InvalidDataAccessApiUsageException(method.getName()
+                    + " sorts or limits its results, they can not be merged across the shards of " + group.getName());
+        }
+        List<Object> results = new ArrayList<>(repositories.size());
+        for (int shard = 0; shard < repositories.size(); ++shard) {
+            results.add(invoke(shard, method, adapt(types, arguments)));
+        }
+        return merge(method.getReturnType(), results);
+    }
+
+    /**
+     * Whether the results of a call depend on an order across all the rows,
+     * through a {@link Sort}, a {@link Pageable} or the {@code First} and
+     * {@code Top} keywords of a derived query.
+     */
+    private static boolean isOrdered(Method method, Object[] arguments) {
+        for (Object argument : arguments) {
+            if ((argument instanceof Sort && ((Sort) argument).isSorted())
+                    || (argument instanceof Pageable && ((Pageable) argument).isPaged())) {
+                return true;
+            }
+        }
+        Matcher subject = QUERY_SUBJECT.matcher(method.getName());
+        return subject.find() && subject.group(2) != null && LIMITING_QUERY.matcher(subject.group(2)).find();
+    }
+
+    private Object invoke(int shard, Method method, Object[] arguments) throws Throwable {
+        return AopUtils.invokeJoinpointUsingReflection(repositories.get(shard), method, arguments);
+    }
+
+    private Object invokeChecked(int shard, Method method, Object[] arguments) throws Exception {
+        try {
+            return invoke(shard, method, arguments);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    /**
+     * Merges the results of the parts of a split call, restoring the order of
+     * the input where the parts return one element per input element, and the
+     * order of the first occurrence of their id for the entities found by ids.
+     * A chunk of a part keeps its size, its offset becomes the position of its
+     * first entity in the input: the entities of the other shards in between
+     * are not part of it.
+     */
+    @SuppressWarnings("unchecked")
+    private Object mergeSplit(Class<?> type, List<Part> parts, List<Object> results, int count, boolean ids) {
+        if (type == BatchResult.class) {
+            List<BatchResult.Chunk<Object>> chunks = new ArrayList<>();
+            for (int i = 0; i < parts.size(); ++i) {
+                for (BatchResult.Chunk<Object> chunk : ((BatchResult<Object>) results.get(i)).getChunks()) {
+                    chunks.add(new BatchResult.Chunk<>(0, parts.get(i).positions.get((int) chunk.getOffset()),
+                            chunk.getSize(), chunk.getFailedEntities(), chunk.getFailure(), chunk.getElapsed()));
+                }
+            }
+            chunks.sort(Comparator.comparingLong(BatchResult.Chunk::getOffset));
+            List<BatchResult.Chunk<Object>> indexed = new ArrayList<>(chunks.size());
+            for (BatchResult.Chunk<Object> chunk : chunks) {
+                indexed.add(new BatchResult.Chunk<>(indexed.size(), chunk.getOffset(), chunk.getSize(),
+                        chunk.getFailedEntities(), chunk.getFailure(), chunk.getElapsed()));
+            }
+            return new BatchResult<>(indexed);
+        }
+        if (isListType(type) && ids) {
+            return inIdOrder(parts, results);
+        }
+        if (isListType(type) && isElementPerInput(parts, results)) {
+            Object[] merged = new Object[count];
+            for (int i = 0; i < parts.size(); ++i) {
+                List<?> result = (List<?>) results.get(i);
+                for (int j = 0; j < result.size(); ++j) {
+                    merged[parts.get(i).positions.get(j)] = result.get(j);
+                }
+            }
+            return new ArrayList<>(Arrays.asList(merged));
+        }
+        return merge(type, results);
+    }
+
+    /**
+     * Concatenates the entities found by the parts of a split call taking ids,
+     * ordered by the first occurrence of their id in the input. Ids without an
+     * entity leave no gap.
+     */
+    private List<Object> inIdOrder(List<Part> parts, List<Object> results) {
+        Map<Object, Integer> positions = new HashMap<>();
+        for (Part part : parts) {
+            for (int i = 0; i < part.elements.size(); ++i) {
+                positions.merge(toId(part.elements.get(i)), part.positions.get(i), Math::min);
+            }
+        }
+        List<Object> found = new ArrayList<>();
+        for (Object result : results) {
+            ((Iterable<?>) result).forEach(found::add);
+        }
+        found.sort(Comparator.comparingInt(row -> entity.getType().isInstance(row)
+                ? positions.getOrDefault(toId(entity.getIdentifierAccessor(row).getIdentifier()), Integer.MAX_VALUE)
+                : Integer.MAX_VALUE));
+        return found;
+    }
+
+    /**
+     * Merges the results of the chunks of a chunked call, shifting the offsets
+     * of their chunks by the position of the chunk in the input.
+     */
+    @SuppressWarnings("unchecked")
+    private static BatchResult<Object> mergeChunks(List<Object> results, List<Long> offsets) {
+        List<BatchResult.Chunk<Object>> merged = new ArrayList<>();
+        for (int i = 0; i < results.size(); ++i) {
+            for (BatchResult.Chunk<Object> chunk : ((BatchResult<Object>) results.get(i)).getChunks()) {
+                merged.add(new BatchResult.Chunk<>(merged.size(), offsets.get(i) + chunk.getOffset(),
+                        chunk.getSize(), chunk.getFailedEntities(), chunk.getFailure(), chunk.getElapsed()));
+            }
+        }
+        return new BatchResult<>(merged);
+    }
+
+    private static boolean isElementPerInput(List<Part> parts, List<Object> results) {
+        for (int i = 0; i < parts.size(); ++i) {
+            Object result = results.get(i);
+            if (!(result instanceof List) || ((List<?>) result).size() != parts.get(i).elements.size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static Object merge(Class<?> type, List<Object> results) {
+        if (type == void.class) {
+            return null;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return results.contains(Boolean.TRUE);
+        }
+        if (type == long.class || type == Long.class || type == int.class || type == Integer.class) {
+            long sum = 0;
+            for (Object result : results) {
+                sum += ((Number) result).longValue();
+            }
+            return type == long.class || type == Long.class ? (Object) sum : (Object) Math.toIntExact(sum);
+        }
+        if (Stream.class.isAssignableFrom(type)) {
+            List<Stream<?>> streams = (List<Stream<?>>) (List<?>) results;
+            return streams.stream().flatMap(stream -> stream).onClose(() -> streams.forEach(Stream::close));
+        }
+        if (isListType(type)) {
+            List<Object> merged = new ArrayList<>();
+            for (Object result : results) {
+                ((Iterable<?>) result).forEach(merged::add);
+            }
+            return merged;
+        }
+        if (Set.class.isAssignableFrom(type) && type.isAssignableFrom(LinkedHashSet.class)) {
+            Set<Object> merged = new LinkedHashSet<>();
+            for (Object result : results) {
+                merged.addAll((Collection<?>) result);
+            }
+            return merged;
+        }
+        if (type == Optional.class) {
+            List<Object> found = results.stream().map(result -> (Optional<?>) result).filter(Optional::isPresent)
+                    .map(Optional::get).collect(Collectors.toList());
+            return Optional.ofNullable(single(found));
+        }
+        return single(results.stream().filter(result -> result != null).collect(Collectors.toList()));
+    }
+
+    @Nullable
+    private static Object single(List<Object> found) {
+        if (found.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, found.size());
+        }
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    private static boolean isListType(Class<?> type) {
+        return Iterable.class.isAssignableFrom(type) && type.isAssignableFrom(List.class);
+    }
+
+    @Nullable
+    private static Object first(Iterable<?> elements) {
+        for (Object element : elements) {
+            if (element != null) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether an argument can only be read once: an iterator, a stream, or an
+     * iterable that is no collection given for an {@code Iterable} parameter.
+     */
+    private static boolean isOneShot(Class<?> type, @Nullable Object argument) {
+        return argument instanceof Iterator || argument instanceof Stream
+                || (type == Iterable.class && argument != null && !(argument instanceof Collection));
+    }
+
+    private static Iterator<?> toIterator(Object elements) {
+        if (elements instanceof Iterator) {
+            return (Iterator<?>) elements;
+        }
+        return elements instanceof Stream ? ((Stream<?>) elements).iterator() : ((Iterable<?>) elements).iterator();
+    }
+
+    /**
+     * Whether the argument at {@code index} is written in chunks of the size
+     * following it, as by {@code batchSave(Iterator, int)}, so that it can be
+     * split chunk by chunk rather than read at once.
+     */
+    private static boolean isChunkedWrite(Method method, Class<?>[] types, int index) {
+        Class<?> type = method.getReturnType();
+        return index + 1 < types.length && types[index + 1] == int.class
+                && (type == void.class || type == long.class || type == BatchResult.class);
+    }
+
+    private static List<Object> toList(Iterator<?> elements) {
+        List<Object> list = new ArrayList<>();
+        elements.forEachRemaining(list::add);
+        return list;
+    }
+
+    /**
+     * Converts the lists standing for iterators, streams and sets back to the
+     * parameter types of the method.
+     */
+    private static Object[] adapt(Class<?>[] types, Object[] arguments) {
+        Object[] adapted = arguments.clone();
+        for (int i = 0; i < adapted.length; ++i) {
+            if (!(adapted[i] instanceof List) || types[i].isInstance(adapted[i])) {
+                continue;
+            }
+            List<?> list = (List<?>) adapted[i];
+            if (types[i] == Iterator.class) {
+                adapted[i] = list.iterator();
+            } else if (types[i] == Stream.class) {
+                adapted[i] = list.stream();
+            } else if (types[i].isAssignableFrom(LinkedHashSet.class)) {
+                adapted[i] = new LinkedHashSet<>(list);
+            }
+        }
+        return adapted;
+    }
+
+    /**
+     * The elements of a split call going to one shard, with their positions in
+     * the input.
+     */
+    private static final class Part {
+
+        private final int shard;
+        private final List<Object> elements = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+
+        private Part(int shard) {
+            this.shard = shard;
+        }
+
+        private void add(Object element, int position) {
+            elements.add(element);
+            positions.add(position);
+        }
+    }
+}
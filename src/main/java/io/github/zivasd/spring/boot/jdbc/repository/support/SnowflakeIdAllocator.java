@@ -0,0 +1,67 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import org.springframework.util.Assert;
+
+import io.github.zivasd.spring.boot.jdbc.repository.IdAllocator;
+
+/**
+ * Allocates snowflake style ids without any database access. An id consists of
+ * 41 bits of milliseconds since {@link #EPOCH}, 10 bits of worker id and 12
+ * bits of sequence, so every worker may allocate 4096 ids per millisecond.
+ * <p>
+ * Ids only grow: if the clock moves backwards, or the sequence of the current
+ * millisecond is exhausted, the allocator continues on the last used
+ * millisecond plus one.
+ */
+public class SnowflakeIdAllocator implements IdAllocator {
+
+    /**
+     * 2020-01-01T00:00:00Z.
+     */
+    public static final long EPOCH = 1577836800000L;
+
+    public static final int MAX_WORKER_ID = (1 << 10) - 1;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int WORKER_ID_BITS = 10;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerId;
+    private long lastTimestamp = -1;
+    private long sequence;
+
+    /**
+     * @param workerId the id of this allocator, unique among all clients writing
+     *                 to the same tables, between {@literal 0} and
+     *                 {@link #MAX_WORKER_ID}.
+     */
+    public SnowflakeIdAllocator(int workerId) {
+        Assert.isTrue(workerId >= 0 && workerId <= MAX_WORKER_ID,
+                () -> "Worker id must be between 0 and " + MAX_WORKER_ID);
+        this.workerId = workerId;
+    }
+
+    @Override
+    public synchronized long[] allocate(Class<?> domainType, int count) {
+        Assert.isTrue(count > 0, "Count must be positive");
+        long[] ids = new long[count];
+        for (int i = 0; i < count; ++i) {
+            ids[i] = nextId();
+        }
+        return ids;
+    }
+
+    private long nextId() {
+        long timestamp = System.currentTimeMillis() - EPOCH;
+        if (timestamp > lastTimestamp) {
+            lastTimestamp = timestamp;
+            sequence = 0;
+        } else if (sequence == MAX_SEQUENCE) {
+            ++lastTimestamp;
+            sequence = 0;
+        } else {
+            ++sequence;
+        }
+        return (lastTimestamp << (WORKER_ID_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+}
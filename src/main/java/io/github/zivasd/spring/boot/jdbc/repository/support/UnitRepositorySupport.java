@@ -0,0 +1,124 @@
+package io.github.zivasd.spring.boot.jdbc.repository.support;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.data.jdbc.core.JdbcAggregateTemplate;
+import org.springframework.data.jdbc.core.convert.BatchJdbcOperations;
+import org.springframework.data.jdbc.core.convert.DataAccessStrategy;
+import org.springframework.data.jdbc.core.convert.DefaultDataAccessStrategy;
+import org.springframework.data.jdbc.core.convert.InsertStrategyFactory;
+import org.springframework.data.jdbc.core.convert.JdbcConverter;
+import org.springframework.data.jdbc.core.convert.SqlGeneratorSource;
+import org.springframework.data.jdbc.core.convert.SqlParametersFactory;
+import org.springframework.data.mapping.callback.EntityCallbacks;
+import org.springframework.data.relational.core.dialect.Dialect;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+/**
+ * The data access objects shared by all repositories bound to the same
+ * {@link NamedParameterJdbcOperations}, so that the SQL caches of a datasource
+ * unit exist once rather than once per repository.
+ * <p>
+ * Registered by the repository configuration as
+ * {@code <jdbcOperationsRef>RepositorySupport} for every distinct
+ * {@code jdbcOperationsRef} without a {@code dataAccessStrategyRef}.
+ */
+public class UnitRepositorySupport implements BeanFactoryAware, ApplicationEventPublisherAware, InitializingBean {
+
+    /**
+     * The suffix appended to the {@code jdbcOperationsRef} to name the bean.
+     */
+    public static final String BEAN_NAME_SUFFIX = "RepositorySupport";
+
+    private final NamedParameterJdbcOperations operations;
+    private RelationalMappingContext mappingContext;
+    private JdbcConverter converter;
+    private Dialect dialect;
+    private BeanFactory beanFactory;
+    private ApplicationEventPublisher publisher;
+
+    private DataAccessStrategy dataAccessStrategy;
+    private BatchDataAccessStrategy batchDataAccessStrategy;
+    private JdbcAggregateTemplate aggregateTemplate;
+
+    public UnitRepositorySupport(NamedParameterJdbcOperations operations) {
+        Assert.notNull(operations, "NamedParameterJdbcOperations must not be null");
+        this.operations = operations;
+    }
+
+    @Autowired
+    public void setMappingContext(RelationalMappingContext mappingContext) {
+        this.mappingContext = mappingContext;
+    }
+
+    @Autowired
+    public void setConverter(JdbcConverter converter) {
+        this.converter = converter;
+    }
+
+    @Autowired
+    public void setDialect(Dialect dialect) {
+        this.dialect = dialect;
+    }
+
+    @Override
+    public void setBeanFactory(@NonNull BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(@NonNull ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.state(mappingContext != null, "MappingContext is required and must not be null!");
+        Assert.state(converter != null, "JdbcConverter is required and must not be null!");
+        Assert.state(dialect != null, "Dialect is required and must not be null!");
+
+        SqlGeneratorSource sqlGeneratorSource = new SqlGeneratorSource(mappingContext, converter, dialect);
+        SqlParametersFactory sqlParametersFactory = new SqlParametersFactory(mappingContext, converter, dialect);
+        InsertStrategyFactory insertStrategyFactory = new InsertStrategyFactory(operations,
+                new BatchJdbcOperations(operations.getJdbcOperations()), dialect);
+        this.dataAccessStrategy = new DefaultDataAccessStrategy(sqlGeneratorSource, mappingContext, converter,
+                operations, sqlParametersFactory, insertStrategyFactory);
+
+        this.batchDataAccessStrategy = new DefaultBatchDataAccessStrategy(
+                new BatchSqlGeneratorSource(mappingContext, dialect), mappingContext, operations,
+                new BatchSqlParametersFactory(mappingContext, converter, dialect));
+
+        this.aggregateTemplate = new JdbcAggregateTemplate(publisher, mappingContext, converter, dataAccessStrategy);
+        if (beanFactory != null) {
+            aggregateTemplate.setEntityCallbacks(EntityCallbacks.create(beanFactory));
+        }
+    }
+
+    public NamedParameterJdbcOperations getJdbcOperations() {
+        return operations;
+    }
+
+    public DataAccessStrategy getDataAccessStrategy() {
+        return dataAccessStrategy;
+    }
+
+    public BatchDataAccessStrategy getBatchDataAccessStrategy() {
+        return batchDataAccessStrategy;
+    }
+
+    /**
+     * The aggregate template of the repositories, using
+     * {@link #getDataAccessStrategy()}.
+     */
+    public JdbcAggregateTemplate getAggregateTemplate() {
+        return aggregateTemplate;
+    }
+}
@@ -1,15 +1,38 @@
 package multiple.jdbc.sample;
 
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.support.incrementer.H2SequenceMaxValueIncrementer;
 
 import io.github.zivasd.spring.boot.jdbc.config.EnableMultipleJdbcRepositories;
+import io.github.zivasd.spring.boot.jdbc.repository.IdAllocator;
+import io.github.zivasd.spring.boot.jdbc.repository.InsertMode;
 import io.github.zivasd.spring.boot.jdbc.repository.support.BatchJdbcRepositoryFactoryBean;
+import io.github.zivasd.spring.boot.jdbc.repository.support.HiLoIdAllocator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @SpringBootApplication
 @EnableMultipleJdbcRepositories(repositoryFactoryBeanClass = BatchJdbcRepositoryFactoryBean.class, basePackages = "multiple.jdbc.sample.repositories.primary", jdbcOperationsRef = "primaryNamedParameterJdbcTemplate", transactionManagerRef = "primaryTransactionManager")
 @EnableMultipleJdbcRepositories(repositoryFactoryBeanClass = BatchJdbcRepositoryFactoryBean.class, basePackages = "multiple.jdbc.sample.repositories.secondary", jdbcOperationsRef = "secondaryNamedParameterJdbcTemplate", transactionManagerRef = "secondaryTransactionManager")
+@EnableMultipleJdbcRepositories(repositoryFactoryBeanClass = BatchJdbcRepositoryFactoryBean.class, basePackages = "multiple.jdbc.sample.repositories.multivalues", jdbcOperationsRef = "primaryNamedParameterJdbcTemplate", transactionManagerRef = "primaryTransactionManager", insertMode = InsertMode.MULTI_VALUES, maxRowsPerInsert = 4)
+@EnableMultipleJdbcRepositories(repositoryFactoryBeanClass = BatchJdbcRepositoryFactoryBean.class, basePackages = "multiple.jdbc.sample.repositories.allocated", jdbcOperationsRef = "primaryNamedParameterJdbcTemplate", transactionManagerRef = "primaryTransactionManager", idAllocatorRef = "personIdAllocator")
 public class Application {
+
+    @Bean
+    public IdAllocator personIdAllocator(@Qualifier("primaryDataSource") DataSource dataSource) {
+        return new HiLoIdAllocator(new H2SequenceMaxValueIncrementer(dataSource, "person_hi"), 10);
+    }
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
     }
@@ -0,0 +1,47 @@
+package multiple.jdbc.sample.repositories.entities;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("T_INVOICE")
+public class Invoice {
+    @Id
+    private Long id;
+
+    private Long customerId;
+
+    @Version
+    private Long version;
+
+    public Invoice() {
+        /**
+         * 
+         */
+    }
+
+    public Invoice(Long id, Long customerId) {
+        this.id = id;
+        this.customerId = customerId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
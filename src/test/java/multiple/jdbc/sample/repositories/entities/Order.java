@@ -0,0 +1,61 @@
+package multiple.jdbc.sample.repositories.entities;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import io.github.zivasd.spring.boot.jdbc.repository.ShardKey;
+
+@Table("T_ORDER")
+public class Order {
+    @Id
+    private Long id;
+
+    @ShardKey
+    private Long customerId;
+
+    private String item;
+
+    @Version
+    private Long version;
+
+    public Order() {
+        /**
+         * 
+         */
+    }
+
+    public Order(Long id, Long customerId, String item) {
+        this.id = id;
+        this.customerId = customerId;
+        this.item = item;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Long customerId) {
+        this.customerId = customerId;
+    }
+
+    public String getItem() {
+        return item;
+    }
+
+    public void setItem(String item) {
+        this.item = item;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
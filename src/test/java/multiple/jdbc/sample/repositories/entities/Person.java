@@ -50,6 +50,10 @@ public class Person {
         this.name = name;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public Long getCompanyId() {
         return this.company.getId();
     }
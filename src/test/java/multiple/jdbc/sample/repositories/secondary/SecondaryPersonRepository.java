@@ -1,5 +1,7 @@
 package multiple.jdbc.sample.repositories.secondary;
 
+import java.util.stream.Stream;
+
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +11,5 @@ import multiple.jdbc.sample.repositories.entities.Person;
 @Repository
 public interface SecondaryPersonRepository extends CrudRepository<Person, Long>, BatchRepository<Person, Long> {
 
+    Stream<Person> findByNameStartingWith(String name);
 }
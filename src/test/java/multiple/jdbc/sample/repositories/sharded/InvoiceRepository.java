@@ -0,0 +1,15 @@
+package multiple.jdbc.sample.repositories.sharded;
+
+import java.util.List;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import io.github.zivasd.spring.boot.jdbc.repository.BatchRepository;
+import multiple.jdbc.sample.repositories.entities.Invoice;
+
+@Repository
+public interface InvoiceRepository extends CrudRepository<Invoice, Long>, BatchRepository<Invoice, Long> {
+
+    List<Invoice> findByCustomerId(Long customerId);
+}
@@ -0,0 +1,20 @@
+package multiple.jdbc.sample.repositories.sharded;
+
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import io.github.zivasd.spring.boot.jdbc.repository.BatchRepository;
+import multiple.jdbc.sample.repositories.entities.Order;
+
+@Repository
+public interface OrderRepository extends CrudRepository<Order, Long>, BatchRepository<Order, Long> {
+
+    List<Order> findByItem(String item);
+
+    List<Order> findByItem(String item, Sort sort);
+
+    List<Order> findTop2ByItemOrderByIdDesc(String item);
+}
@@ -0,0 +1,138 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import io.github.zivasd.spring.boot.jdbc.repository.BatchOptimisticLockingFailureException;
+import multiple.jdbc.sample.repositories.entities.Company;
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.primary.CompanyRepository;
+import multiple.jdbc.sample.repositories.primary.PersonRepository;
+
+@SpringBootTest
+class BatchDeleteTest {
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    @Qualifier("primaryNamedParameterJdbcTemplate")
+    private NamedParameterJdbcOperations primaryJdbcOperations;
+
+    @BeforeEach
+    void init() {
+        primaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_person");
+        primaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_company");
+
+        primaryJdbcOperations.getJdbcOperations().execute(
+                "create table t_person (ID bigint not null auto_increment primary key, NAME varchar(256), COMPANY_ID bigint, VERSION bigint)");
+        primaryJdbcOperations.getJdbcOperations().execute(
+                "create table t_company (ID bigint not null auto_increment primary key, NAME varchar(256))");
+    }
+
+    @Test
+    void test_deleteAllById() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 1; i < 50; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        personRepository.batchSave(persons);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 45; ++i) {
+            ids.add(persons.get(i).getId());
+        }
+        ids.add(1000L);
+        personRepository.batchDeleteAllById(ids, 20);
+
+        assertEquals(4, personRepository.count());
+        assertTrue(personRepository.findById(persons.get(45).getId()).isPresent());
+    }
+
+    @Test
+    void test_deleteAllByIdOverLargestBucket() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 0; i < 650; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        personRepository.batchSave(persons);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 640; ++i) {
+            ids.add(persons.get(i).getId());
+        }
+        personRepository.batchDeleteAllById(ids, 600);
+
+        assertEquals(10, personRepository.count());
+    }
+
+    @Test
+    void test_deleteVersioned() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 1; i < 5; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        personRepository.batchSave(persons);
+
+        personRepository.batchDelete(persons.subList(0, 2));
+        assertEquals(2, personRepository.count());
+
+        Person concurrent = personRepository.findById(persons.get(3).getId()).get();
+        personRepository.save(concurrent);
+        BatchOptimisticLockingFailureException exception = assertThrows(
+                BatchOptimisticLockingFailureException.class,
+                () -> personRepository.batchDelete(persons.subList(2, 4)));
+        assertEquals(1, exception.getStaleEntities().size());
+        assertSame(persons.get(3), exception.getStaleEntities().get(0));
+        assertEquals(2, personRepository.count());
+    }
+
+    @Test
+    void test_deleteVersionedOverLargestBucket() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 0; i < 600; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        personRepository.batchSave(persons);
+
+        // the stale entity is in the second batch
+        personRepository.save(personRepository.findById(persons.get(550).getId()).get());
+        BatchOptimisticLockingFailureException exception = assertThrows(
+                BatchOptimisticLockingFailureException.class, () -> personRepository.batchDelete(persons));
+        assertEquals(1, exception.getStaleEntities().size());
+        assertSame(persons.get(550), exception.getStaleEntities().get(0));
+        assertEquals(600, personRepository.count());
+
+        personRepository.batchDelete(persons.subList(0, 550));
+        assertEquals(50, personRepository.count());
+    }
+
+    @Test
+    void test_deleteNoVersion() {
+        List<Company> companies = new ArrayList<>();
+        for (long i = 1; i < 10; ++i) {
+            companies.add(new Company("ziva" + i));
+        }
+        companyRepository.batchSave(companies);
+
+        companyRepository.batchDelete(companies.subList(0, 5));
+        assertEquals(4, companyRepository.count());
+        companyRepository.batchDelete(Collections.emptyList());
+        assertEquals(4, companyRepository.count());
+    }
+}
@@ -0,0 +1,105 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import io.github.zivasd.spring.boot.jdbc.cfg.StatementProfiler;
+import io.github.zivasd.spring.boot.jdbc.cfg.StatementStatistics;
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.secondary.SecondaryPersonRepository;
+
+@SpringBootTest
+class BatchFindTest {
+    @Autowired
+    private SecondaryPersonRepository secondaryPersonRepository;
+
+    @Autowired
+    @Qualifier("secondaryNamedParameterJdbcTemplate")
+    private NamedParameterJdbcOperations secondaryJdbcOperations;
+
+    @Autowired
+    @Qualifier("secondaryStatementProfiler")
+    private StatementProfiler profiler;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    void init() {
+        secondaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_person");
+        secondaryJdbcOperations.getJdbcOperations().execute(
+                "create table t_person (ID bigint not null auto_increment primary key, NAME varchar(256), COMPANY_ID bigint, VERSION bigint)");
+        List<Person> persons = new ArrayList<>();
+        for (long i = 0; i < 700; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        ids = secondaryPersonRepository.batchSave(persons, 100).stream().map(Person::getId)
+                .collect(Collectors.toList());
+        Collections.shuffle(ids);
+    }
+
+    @Test
+    void test_batchFindAllById() {
+        List<Long> requested = new ArrayList<>(ids.subList(0, 650));
+        requested.add(-1L);
+        requested.add(requested.get(0));
+
+        List<Person> persons = secondaryPersonRepository.batchFindAllById(requested, 200);
+        assertEquals(ids.subList(0, 650), persons.stream().map(Person::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void test_batchFindAllByIdOverLargestBucket() {
+        List<Long> requested = new ArrayList<>(ids.subList(0, 650));
+        requested.add(-1L);
+        profiler.reset();
+
+        List<Person> persons = secondaryPersonRepository.batchFindAllById(requested, 600);
+        assertEquals(ids.subList(0, 650), persons.stream().map(Person::getId).collect(Collectors.toList()));
+        // the chunk of 600 ids is split at 512 rather than padded to the limit of the database
+        assertEquals(3, inListStatements());
+    }
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    void test_batchFindAllByIntegerIds() {
+        List<Integer> requested = new ArrayList<>();
+        for (Long id : ids.subList(0, 10)) {
+            requested.add(id.intValue());
+        }
+        requested.add(requested.get(0));
+
+        // ids of another type than the id property are matched after conversion
+        List<Person> persons = secondaryPersonRepository.batchFindAllById((List) requested, 8);
+        assertEquals(ids.subList(0, 10), persons.stream().map(Person::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void test_batchFindAllByIdParallel() {
+        List<Person> persons = secondaryPersonRepository.batchFindAllByIdParallel(ids, 30);
+        assertEquals(ids, persons.stream().map(Person::getId).collect(Collectors.toList()));
+        persons = secondaryPersonRepository.batchFindAllByIdParallel(Arrays.asList(-1L, ids.get(5)), 1);
+        assertEquals(Collections.singletonList(ids.get(5)),
+                persons.stream().map(Person::getId).collect(Collectors.toList()));
+    }
+
+    static long inListStatements(StatementProfiler profiler) {
+        return profiler.getStatistics().stream().filter(statistics -> statistics.getSql().contains(" IN (?)"))
+                .mapToLong(StatementStatistics::getCount).sum();
+    }
+
+    private long inListStatements() {
+        return inListStatements(profiler);
+    }
+}
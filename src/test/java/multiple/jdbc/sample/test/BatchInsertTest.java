@@ -1,22 +1,44 @@
 package multiple.jdbc.sample.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jdbc.core.convert.JdbcConverter;
+import org.springframework.data.relational.core.mapping.RelationalMappingContext;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.DefaultTransactionStatus;
 
+import io.github.zivasd.spring.boot.jdbc.repository.BatchResult;
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchJdbcRepository;
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchSettings;
+import io.github.zivasd.spring.boot.jdbc.repository.support.UnitRepositorySupport;
+import multiple.jdbc.sample.repositories.allocated.AllocatedPersonRepository;
 import multiple.jdbc.sample.repositories.entities.Company;
 import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.multivalues.MultiValuesPersonRepository;
 import multiple.jdbc.sample.repositories.primary.CompanyRepository;
 import multiple.jdbc.sample.repositories.primary.PersonRepository;
 
@@ -28,10 +50,30 @@ class BatchInsertTest {
     @Autowired
     private CompanyRepository companyRepository;
 
+    @Autowired
+    private MultiValuesPersonRepository multiValuesPersonRepository;
+
+    @Autowired
+    private AllocatedPersonRepository allocatedPersonRepository;
+
     @Autowired
     @Qualifier("primaryNamedParameterJdbcTemplate")
     private NamedParameterJdbcOperations primaryJdbcOperations;
 
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("primaryNamedParameterJdbcTemplateRepositorySupport")
+    private UnitRepositorySupport primarySupport;
+
+    @Autowired
+    private RelationalMappingContext mappingContext;
+
+    @Autowired
+    private JdbcConverter converter;
+
     @BeforeEach
     void init() {
         primaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_person");
@@ -137,4 +179,186 @@ class BatchInsertTest {
         companyRepository.batchSave(companies, 5);
         assertEquals(9, companyRepository.count());
     }
+
+    @Test
+    void test_streamSave() {
+        AtomicLong sequence = new AtomicLong();
+        Stream<Person> persons = Stream.generate(() -> new Person("ziva" + sequence.incrementAndGet())).limit(23);
+        assertEquals(23, personRepository.batchSave(persons, 5));
+        assertEquals(23, personRepository.count());
+
+        List<Person> more = new ArrayList<>();
+        for (long i = 1; i < 10; ++i) {
+            more.add(new Person("more" + i));
+        }
+        assertEquals(9, personRepository.batchSave(more.iterator(), 4));
+        assertEquals(9, personRepository.batchSave((Iterable<Person>) more, 4));
+        assertEquals(32, personRepository.count());
+        assertEquals(1L, personRepository.findById(more.get(8).getId()).get().getVersion());
+    }
+
+    @Test
+    void test_streamInvalidBatchSize() {
+        List<Person> persons = new ArrayList<>();
+        persons.add(new Person("ziva"));
+        assertThrows(IllegalArgumentException.class, () -> personRepository.batchSave(persons.iterator(), 0));
+        assertThrows(IllegalArgumentException.class, () -> personRepository.batchSave(persons.stream(), -1));
+    }
+
+    @Test
+    void test_multiValuesGeneratedId() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 1; i < 11; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        multiValuesPersonRepository.batchSave(persons, 7);
+        assertEquals(10, multiValuesPersonRepository.count());
+
+        for (int i = 0; i < persons.size(); ++i) {
+            Person person = persons.get(i);
+            assertEquals(i + 1L, person.getId());
+            Person fetched = multiValuesPersonRepository.findById(person.getId()).get();
+            assertEquals("ziva" + (i + 1), fetched.getName());
+            assertEquals(0L, fetched.getVersion());
+        }
+    }
+
+    @Test
+    void test_multiValuesProviderId() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 1; i < 6; ++i) {
+            persons.add(new Person(i * 10, "ziva" + i));
+        }
+        multiValuesPersonRepository.batchSave(persons);
+        assertEquals(5, multiValuesPersonRepository.count());
+        assertEquals("ziva5", multiValuesPersonRepository.findById(50L).get().getName());
+    }
+
+    @Test
+    void test_parallelSave() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 0; i < 100; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        StringBuilder tooLong = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            tooLong.append('x');
+        }
+        persons.get(55).setName(tooLong.toString());
+
+        BatchResult<Person> result = personRepository.batchSaveParallel(persons, 10);
+
+        assertEquals(10, result.getChunks().size());
+        assertEquals(90, result.getSucceeded());
+        assertEquals(10, result.getFailed());
+        BatchResult.Chunk<Person> failed = result.getChunks().get(5);
+        assertFalse(failed.isSuccessful());
+        assertEquals(50, failed.getOffset());
+        assertNotNull(failed.getFailure());
+        assertTrue(failed.getFailedEntities().contains(persons.get(55)));
+        assertEquals(90, personRepository.count());
+    }
+
+    @Test
+    void test_parallelSaveFailedChunkAgain() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 0; i < 30; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        StringBuilder tooLong = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            tooLong.append('x');
+        }
+        persons.get(15).setName(tooLong.toString());
+
+        BatchResult<Person> result = personRepository.batchSaveParallel(persons, 10);
+
+        assertEquals(20, result.getSucceeded());
+        for (Person person : result.getChunks().get(1).getFailedEntities()) {
+            assertNull(person.getId());
+            assertNull(person.getVersion());
+        }
+        assertNotNull(persons.get(5).getId());
+
+        // the rolled back chunk is inserted again rather than updated
+        persons.get(15).setName("ziva15");
+        assertEquals(10, personRepository.batchSaveParallel(result.getFailedEntities(), 10).getSucceeded());
+        assertEquals(30, personRepository.count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void test_chunkFailingAtCommitIsRestored() {
+        DataSourceTransactionManager failingCommit = new DataSourceTransactionManager(primaryDataSource) {
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+                throw new TransactionSystemException("commit failed");
+            }
+        };
+        failingCommit.setRollbackOnCommitFailure(true);
+        BatchJdbcRepository<Person, Long> repository = new BatchJdbcRepository<>(
+                primarySupport.getDataAccessStrategy(), primarySupport.getBatchDataAccessStrategy(),
+                primarySupport.getAggregateTemplate(),
+                (RelationalPersistentEntity<Person>) mappingContext.getRequiredPersistentEntity(Person.class),
+                converter, new BatchSettings(), failingCommit);
+        List<Person> persons = Arrays.asList(new Person("ziva1"), new Person("ziva2"));
+
+        BatchResult<Person> result = repository.batchSaveChunked(persons, 2);
+
+        assertEquals(2, result.getFailed());
+        for (Person person : persons) {
+            assertNull(person.getId());
+            assertNull(person.getVersion());
+        }
+        assertEquals(0, personRepository.count());
+    }
+
+    @Test
+    void test_chunkedSave() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 0; i < 100; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        StringBuilder tooLong = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            tooLong.append('x');
+        }
+        persons.get(55).setName(tooLong.toString());
+        persons.get(58).setName(tooLong.toString());
+
+        BatchResult<Person> result = personRepository.batchSaveChunked(persons, 10);
+
+        assertEquals(10, result.getChunks().size());
+        assertEquals(98, result.getSucceeded());
+        assertEquals(2, result.getFailed());
+        BatchResult.Chunk<Person> failed = result.getChunks().get(5);
+        assertEquals(8, failed.getSucceeded());
+        assertNotNull(failed.getFailure());
+        assertEquals(Arrays.asList(persons.get(55), persons.get(58)), failed.getFailedEntities());
+        assertNull(persons.get(55).getId());
+        assertNull(persons.get(55).getVersion());
+        assertNotNull(persons.get(56).getId());
+        assertEquals(98, personRepository.count());
+    }
+
+    @Test
+    void test_allocatedId() {
+        primaryJdbcOperations.getJdbcOperations().execute("create sequence if not exists person_hi start with 1");
+
+        List<Person> persons = new ArrayList<>();
+        for (long i = 0; i < 25; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        allocatedPersonRepository.batchSave(persons, 10);
+
+        assertEquals(25, personRepository.count());
+        Set<Long> ids = new HashSet<>();
+        for (Person person : persons) {
+            assertNotNull(person.getId());
+            assertTrue(person.getId() >= 10);
+            ids.add(person.getId());
+            assertEquals(person.getName(), personRepository.findById(person.getId()).get().getName());
+        }
+        assertEquals(25, ids.size());
+    }
 }
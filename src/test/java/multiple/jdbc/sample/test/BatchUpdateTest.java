@@ -0,0 +1,207 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import io.github.zivasd.spring.boot.jdbc.repository.BatchOptimisticLockingFailureException;
+import multiple.jdbc.sample.repositories.entities.Company;
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.primary.CompanyRepository;
+import multiple.jdbc.sample.repositories.primary.PersonRepository;
+
+@SpringBootTest
+class BatchUpdateTest {
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private CompanyRepository companyRepository;
+
+    @Autowired
+    @Qualifier("primaryNamedParameterJdbcTemplate")
+    private NamedParameterJdbcOperations primaryJdbcOperations;
+
+    @BeforeEach
+    void init() {
+        primaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_person");
+        primaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_company");
+
+        primaryJdbcOperations.getJdbcOperations().execute(
+                "create table t_person (ID bigint not null auto_increment primary key, NAME varchar(256), COMPANY_ID bigint, VERSION bigint)");
+        primaryJdbcOperations.getJdbcOperations().execute(
+                "create table t_company (ID bigint not null auto_increment primary key, NAME varchar(256))");
+    }
+
+    @Test
+    void test_update() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 1; i < 10; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        personRepository.batchSave(persons, 4);
+
+        for (Person person : persons) {
+            person.setName(person.getName() + "-updated");
+        }
+        personRepository.batchSave(persons, 4);
+
+        assertEquals(9, personRepository.count());
+        for (Person person : persons) {
+            assertEquals(1L, person.getVersion());
+            Person fetched = personRepository.findById(person.getId()).get();
+            assertEquals(person.getName(), fetched.getName());
+            assertEquals(1L, fetched.getVersion());
+        }
+    }
+
+    @Test
+    void test_staleVersion() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 1; i < 5; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        personRepository.batchSave(persons);
+
+        Person concurrent = personRepository.findById(persons.get(1).getId()).get();
+        concurrent.setName("concurrent");
+        personRepository.save(concurrent);
+
+        for (Person person : persons) {
+            person.setName(person.getName() + "-updated");
+        }
+        BatchOptimisticLockingFailureException exception = assertThrows(
+                BatchOptimisticLockingFailureException.class, () -> personRepository.batchSave(persons, 2));
+
+        assertEquals(1, exception.getStaleEntities().size());
+        assertSame(persons.get(1), exception.getStaleEntities().get(0));
+        assertEquals(0L, persons.get(1).getVersion());
+        assertEquals("ziva1", personRepository.findById(persons.get(0).getId()).get().getName());
+        assertEquals("concurrent", personRepository.findById(persons.get(1).getId()).get().getName());
+    }
+
+    @Test
+    void test_updateNoVersion() {
+        List<Company> companies = new ArrayList<>();
+        for (long i = 1; i < 10; ++i) {
+            companies.add(new Company("ziva" + i));
+        }
+        companyRepository.batchSave(companies, 5);
+
+        for (Company company : companies) {
+            company.setName(company.getName() + "-updated");
+        }
+        companyRepository.batchSave(companies, 5);
+        assertEquals("ziva9-updated", companyRepository.findById(companies.get(8).getId()).get().getName());
+    }
+
+    @Test
+    void test_updateMissing() {
+        List<Person> persons = new ArrayList<>();
+        persons.add(new Person("ziva1"));
+        personRepository.batchSave(persons);
+        primaryJdbcOperations.getJdbcOperations().execute("delete from t_person");
+
+        assertThrows(BatchOptimisticLockingFailureException.class, () -> personRepository.batchSave(persons));
+    }
+
+    @Test
+    void test_upsert() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 1; i < 5; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        personRepository.batchSave(persons);
+
+        List<Person> upserts = new ArrayList<>();
+        for (Person person : persons) {
+            upserts.add(new Person(person.getId(), person.getName() + "-upserted"));
+        }
+        upserts.add(new Person(100L, "ziva100"));
+        upserts.add(new Person(101L, "ziva101"));
+        personRepository.batchUpsert(upserts, 4);
+
+        assertEquals(6, personRepository.count());
+        Person updated = personRepository.findById(persons.get(0).getId()).get();
+        assertEquals("ziva1-upserted", updated.getName());
+        assertEquals(1L, updated.getVersion());
+        Person inserted = personRepository.findById(100L).get();
+        assertEquals("ziva100", inserted.getName());
+        assertEquals(0L, inserted.getVersion());
+    }
+
+    @Test
+    void test_saveAfterUpsert() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 1; i < 3; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        personRepository.batchSave(persons);
+
+        List<Person> upserts = new ArrayList<>();
+        upserts.add(new Person(persons.get(0).getId(), "ziva1-upserted"));
+        upserts.add(new Person(100L, "ziva100"));
+        personRepository.batchUpsert(upserts, 0);
+        assertEquals(1L, upserts.get(0).getVersion());
+        assertEquals(0L, upserts.get(1).getVersion());
+
+        for (Person person : upserts) {
+            person.setName(person.getName() + "-saved");
+        }
+        personRepository.batchSave(upserts);
+        assertEquals("ziva1-upserted-saved", personRepository.findById(persons.get(0).getId()).get().getName());
+        assertEquals(2L, personRepository.findById(persons.get(0).getId()).get().getVersion());
+        assertEquals(1L, personRepository.findById(100L).get().getVersion());
+    }
+
+    @Test
+    void test_upsertWithoutId() {
+        List<Person> persons = new ArrayList<>();
+        persons.add(new Person("ziva1"));
+        assertThrows(IllegalArgumentException.class, () -> personRepository.batchUpsert(persons, 0));
+    }
+
+    @Test
+    void test_cascade() {
+        List<Company> companies = new ArrayList<>();
+        for (long i = 1; i < 6; ++i) {
+            Company company = new Company("company" + i);
+            for (long j = 1; j <= i; ++j) {
+                company.addPerson(new Person("ziva" + i + "-" + j));
+            }
+            companies.add(company);
+        }
+        companyRepository.batchSave(companies, 2);
+
+        assertEquals(15, personRepository.count());
+        for (Company company : companies) {
+            Company fetched = companyRepository.findById(company.getId()).get();
+            assertEquals(company.getPersons().size(), fetched.getPersons().size());
+            for (Person person : company.getPersons()) {
+                assertNotNull(person.getId());
+            }
+        }
+
+        for (Company company : companies) {
+            company.setName(company.getName() + "-updated");
+            company.addPerson(new Person("new"));
+        }
+        companyRepository.batchSave(companies, 2);
+
+        assertEquals(20, personRepository.count());
+        Company fetched = companyRepository.findById(companies.get(4).getId()).get();
+        assertEquals("company5-updated", fetched.getName());
+        assertEquals(6, fetched.getPersons().size());
+    }
+}
@@ -0,0 +1,138 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchWriter;
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchWriterProperties;
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.primary.PersonRepository;
+
+@SpringBootTest
+class BatchWriterTest {
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    @Qualifier("primaryBatchWriter")
+    private BatchWriter primaryBatchWriter;
+
+    @Autowired
+    private BeanFactory beanFactory;
+
+    @Autowired
+    @Qualifier("primaryNamedParameterJdbcTemplate")
+    private NamedParameterJdbcOperations primaryJdbcOperations;
+
+    @BeforeEach
+    void init() {
+        primaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_person");
+        primaryJdbcOperations.getJdbcOperations().execute(
+                "create table t_person (ID bigint not null auto_increment primary key, NAME varchar(256), COMPANY_ID bigint, VERSION bigint)");
+    }
+
+    @Test
+    void test_submit() throws Exception {
+        List<CompletableFuture<Person>> futures = new ArrayList<>();
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            int producer = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 30; ++i) {
+                    CompletableFuture<Person> future = primaryBatchWriter.submit(new Person("ziva" + producer + i));
+                    synchronized (futures) {
+                        futures.add(future);
+                    }
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        for (CompletableFuture<Person> future : futures) {
+            assertNotNull(future.get().getId());
+        }
+        assertEquals(120, personRepository.count());
+    }
+
+    @Test
+    void test_submitFailure() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            name.append('z');
+        }
+        CompletableFuture<Person> future = primaryBatchWriter.submit(new Person(name.toString()));
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> future.get(10, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof RuntimeException);
+        assertThrows(IllegalArgumentException.class, () -> primaryBatchWriter.submit("unmanaged"));
+    }
+
+    @Test
+    void test_failureOfOneEntityOnly() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            name.append('z');
+        }
+        List<CompletableFuture<Person>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            futures.add(primaryBatchWriter.submit(new Person("ziva" + i)));
+        }
+        CompletableFuture<Person> failed = primaryBatchWriter.submit(new Person(name.toString()));
+        for (int i = 5; i < 10; ++i) {
+            futures.add(primaryBatchWriter.submit(new Person("ziva" + i)));
+        }
+
+        assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        for (CompletableFuture<Person> future : futures) {
+            assertNotNull(future.get(10, TimeUnit.SECONDS).getId());
+        }
+        assertEquals(10, personRepository.count());
+    }
+
+    @Test
+    void test_pendingFailOnShutdownTimeout() throws Exception {
+        BatchWriterProperties properties = new BatchWriterProperties();
+        properties.setFlushInterval(Duration.ofSeconds(30));
+        properties.setShutdownTimeout(Duration.ofMillis(50));
+        BatchWriter writer = new BatchWriter("primary", properties);
+        writer.setBeanFactory(beanFactory);
+        List<CompletableFuture<Person>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            futures.add(writer.submit(new Person("ziva" + i)));
+        }
+        // the batch waits for the flush interval when the writer is shut down
+        while (writer.getPendingCount() > 0) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        writer.destroy();
+
+        for (CompletableFuture<Person> future : futures) {
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> future.get(1, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(0, personRepository.count());
+    }
+}
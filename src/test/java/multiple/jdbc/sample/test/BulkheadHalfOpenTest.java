@@ -0,0 +1,114 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.github.zivasd.spring.boot.jdbc.cfg.UnitBulkhead;
+
+// one thread at a time, two trials close the circuit
+@SpringBootTest(properties = { "spring.datasources.secondary.bulkhead.enabled=true",
+        "spring.datasources.secondary.bulkhead.max-concurrent-acquisitions=1",
+        "spring.datasources.secondary.bulkhead.slow-acquisition-threshold=500ms",
+        "spring.datasources.secondary.bulkhead.window-size=2",
+        "spring.datasources.secondary.bulkhead.minimum-calls=2",
+        "spring.datasources.secondary.bulkhead.open-duration=300ms",
+        "spring.datasources.secondary.bulkhead.half-open-calls=2" })
+class BulkheadHalfOpenTest {
+    @Autowired
+    @Qualifier("secondaryBulkhead")
+    private UnitBulkhead bulkhead;
+
+    @Autowired
+    @Qualifier("secondaryDataSource")
+    private HikariDataSource secondaryDataSource;
+
+    @Autowired
+    @Qualifier("secondaryJdbcTemplate")
+    private JdbcTemplate secondaryJdbcTemplate;
+
+    private final List<Connection> held = new ArrayList<>();
+
+    @BeforeEach
+    void init() throws SQLException {
+        bulkhead.reset();
+        // the pool is exhausted, the acquisitions through the bulkhead wait
+        for (int i = 0; i < secondaryDataSource.getMaximumPoolSize(); ++i) {
+            held.add(secondaryDataSource.getConnection());
+        }
+    }
+
+    @AfterEach
+    void release() throws SQLException {
+        for (Connection connection : held) {
+            connection.close();
+        }
+        held.clear();
+        bulkhead.reset();
+    }
+
+    @Test
+    void test_fullBulkheadWhileHalfOpen() throws Exception {
+        for (int i = 0; i < 2; ++i) {
+            // the connection is given after the slow acquisition threshold
+            CompletableFuture<Void> released = releaseAfter(600);
+            assertEquals(1, select(secondaryJdbcTemplate));
+            released.get();
+            held.add(secondaryDataSource.getConnection());
+        }
+        assertEquals(UnitBulkhead.State.OPEN, bulkhead.getState());
+
+        Thread.sleep(400);
+        // the first trial waits for a connection, holding the only permit
+        CompletableFuture<Integer> trial = CompletableFuture.supplyAsync(() -> select(secondaryJdbcTemplate));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.getAvailablePermits() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(UnitBulkhead.State.HALF_OPEN, bulkhead.getState());
+        // the second trial is rejected by the full bulkhead, its slot is given back
+        assertThrows(CannotGetJdbcConnectionException.class, () -> select(secondaryJdbcTemplate));
+
+        held.remove(0).close();
+        assertEquals(1, trial.get(5, TimeUnit.SECONDS));
+        assertEquals(UnitBulkhead.State.HALF_OPEN, bulkhead.getState());
+
+        assertEquals(1, select(secondaryJdbcTemplate));
+        assertEquals(UnitBulkhead.State.CLOSED, bulkhead.getState());
+    }
+
+    private CompletableFuture<Void> releaseAfter(long millis) {
+        Connection connection = held.remove(0);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(millis);
+                connection.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static int select(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select 1", Integer.class);
+    }
+}
@@ -0,0 +1,73 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.github.zivasd.spring.boot.jdbc.cfg.UnitBulkhead;
+
+// every acquisition is slow, the circuit opens after two of them
+@SpringBootTest(properties = { "spring.datasources.secondary.bulkhead.enabled=true",
+        "spring.datasources.secondary.bulkhead.slow-acquisition-threshold=0ms",
+        "spring.datasources.secondary.bulkhead.window-size=2",
+        "spring.datasources.secondary.bulkhead.minimum-calls=2",
+        "spring.datasources.secondary.bulkhead.open-duration=500ms",
+        "spring.datasources.secondary.bulkhead.half-open-calls=1" })
+class BulkheadTest {
+    @Autowired
+    @Qualifier("secondaryBulkhead")
+    private UnitBulkhead bulkhead;
+
+    @Autowired
+    @Qualifier("secondaryJdbcTemplate")
+    private JdbcTemplate secondaryJdbcTemplate;
+
+    @Autowired
+    @Qualifier("primaryJdbcTemplate")
+    private JdbcTemplate primaryJdbcTemplate;
+
+    @BeforeEach
+    void init() {
+        bulkhead.reset();
+    }
+
+    @Test
+    void test_circuitOpens() throws InterruptedException {
+        assertEquals(1, select(secondaryJdbcTemplate));
+        assertEquals(UnitBulkhead.State.CLOSED, bulkhead.getState());
+        assertEquals(1, select(secondaryJdbcTemplate));
+        assertEquals(UnitBulkhead.State.OPEN, bulkhead.getState());
+
+        assertThrows(CannotGetJdbcConnectionException.class, () -> select(secondaryJdbcTemplate));
+        // the other units are not affected
+        assertEquals(1, select(primaryJdbcTemplate));
+
+        Thread.sleep(600);
+        // the trial acquisition succeeds, but slowly, so the circuit opens again
+        assertEquals(1, select(secondaryJdbcTemplate));
+        assertEquals(UnitBulkhead.State.OPEN, bulkhead.getState());
+        assertThrows(CannotGetJdbcConnectionException.class, () -> select(secondaryJdbcTemplate));
+    }
+
+    @Test
+    void test_reset() {
+        select(secondaryJdbcTemplate);
+        select(secondaryJdbcTemplate);
+        assertEquals(UnitBulkhead.State.OPEN, bulkhead.getState());
+        bulkhead.reset();
+        assertEquals(UnitBulkhead.State.CLOSED, bulkhead.getState());
+        assertEquals(1, select(secondaryJdbcTemplate));
+        assertEquals(10, bulkhead.getAvailablePermits());
+    }
+
+    private static int select(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select 1", Integer.class);
+    }
+}
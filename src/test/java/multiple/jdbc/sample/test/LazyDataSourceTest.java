@@ -0,0 +1,41 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcOperations;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.github.zivasd.spring.boot.jdbc.cfg.LazyInitDataSource;
+
+@SpringBootTest
+class LazyDataSourceTest {
+
+    @Autowired
+    @Qualifier("archiveDataSource")
+    private DataSource dataSource;
+
+    @Autowired
+    @Qualifier("archiveJdbcTemplate")
+    private JdbcOperations operations;
+
+    @Test
+    void test_poolCreatedOnFirstConnection() throws Exception {
+        LazyInitDataSource lazy = (LazyInitDataSource) dataSource;
+        assertFalse(lazy.isInitialized());
+        assertFalse(lazy.isWrapperFor(HikariDataSource.class));
+
+        assertEquals(1, operations.queryForObject("select 1", Integer.class));
+        assertTrue(lazy.isInitialized());
+        assertTrue(lazy.getTargetDataSource() instanceof HikariDataSource);
+        assertTrue(lazy.isWrapperFor(HikariDataSource.class));
+    }
+}
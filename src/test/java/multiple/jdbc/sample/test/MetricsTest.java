@@ -0,0 +1,134 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.secondary.SecondaryPersonRepository;
+
+@SpringBootTest
+class MetricsTest {
+    @Autowired
+    private SecondaryPersonRepository secondaryPersonRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("secondaryNamedParameterJdbcTemplate")
+    private NamedParameterJdbcOperations secondaryJdbcOperations;
+
+    @Autowired
+    @Qualifier("primaryJdbcTemplate")
+    private JdbcTemplate primaryJdbcTemplate;
+
+    @Autowired
+    @Qualifier("secondaryDataSource")
+    private DataSource secondaryDataSource;
+
+    @Autowired
+    @Qualifier("secondaryTransactionTemplate")
+    private TransactionTemplate secondaryTransactionTemplate;
+
+    @BeforeEach
+    void init() {
+        secondaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_person");
+        secondaryJdbcOperations.getJdbcOperations().execute(
+                "create table t_person (ID bigint not null auto_increment primary key, NAME varchar(256), COMPANY_ID bigint, VERSION bigint)");
+    }
+
+    @Test
+    void test_batchMetrics() {
+        List<Person> persons = new ArrayList<>();
+        for (long i = 0; i < 25; ++i) {
+            persons.add(new Person("ziva" + i));
+        }
+        double inserted = rows("insert");
+        double updated = rows("update");
+        secondaryPersonRepository.batchSave(persons, 10);
+        secondaryPersonRepository.batchSave(persons.subList(0, 5), 10);
+
+        assertEquals(25, rows("insert") - inserted);
+        assertEquals(5, rows("update") - updated);
+        assertTrue(meterRegistry.get("multi.jdbc.batch.chunk").tag("unit", "secondary").tag("entity", "Person")
+                .tag("operation", "insert").tag("generated.keys", "true").tag("outcome", "success").timer()
+                .count() >= 3);
+        assertTrue(meterRegistry.get("multi.jdbc.batch.chunk.rows").tag("unit", "secondary")
+                .tag("operation", "insert").summary().max() >= 10);
+    }
+
+    @Test
+    void test_templateMetrics() {
+        long queries = queries();
+        secondaryJdbcOperations.queryForObject("select count(*) from t_person", Collections.emptyMap(),
+                Long.class);
+        assertEquals(queries + 1, queries());
+    }
+
+    @Test
+    void test_templateMetricsOfNestedUnits() {
+        long queries = queries();
+        // a query of the secondary unit while reading the rows of the primary one
+        primaryJdbcTemplate.query("select 1", (RowCallbackHandler) rs -> secondaryJdbcOperations
+                .queryForObject("select count(*) from t_person", Collections.emptyMap(), Long.class));
+        assertEquals(queries + 1, queries());
+    }
+
+    @Test
+    void test_poolMetrics() {
+        long acquired = poolTimer("acquire").count();
+        long used = poolTimer("usage").count();
+        secondaryTransactionTemplate.executeWithoutResult(status -> {
+            secondaryJdbcOperations.queryForObject("select count(*) from t_person", Collections.emptyMap(),
+                    Long.class);
+            // the transaction is bound to the datasource bean, not to its metered view
+            assertTrue(TransactionSynchronizationManager.hasResource(secondaryDataSource));
+            assertEquals(1, poolGauge("active"));
+        });
+
+        assertEquals(acquired + 1, poolTimer("acquire").count());
+        assertEquals(used + 1, poolTimer("usage").count());
+        assertEquals(0, poolGauge("active"));
+        assertEquals(0, poolGauge("pending"));
+        assertEquals(10, poolGauge("max"));
+        assertTrue(poolGauge("idle") >= 1);
+    }
+
+    private Timer poolTimer(String name) {
+        return meterRegistry.get("multi.jdbc.pool." + name).tag("unit", "secondary").tag("pool", "hikari").timer();
+    }
+
+    private double poolGauge(String name) {
+        return meterRegistry.get("multi.jdbc.pool." + name).tag("unit", "secondary").tag("pool", "hikari").gauge()
+                .value();
+    }
+
+    private long queries() {
+        return meterRegistry.find("multi.jdbc.template").tag("unit", "secondary").tag("operation", "query")
+                .tag("outcome", "success").timers().stream().mapToLong(t -> t.count()).sum();
+    }
+
+    private double rows(String operation) {
+        return meterRegistry.find("multi.jdbc.batch.rows").tag("unit", "secondary").tag("entity", "Person")
+                .tag("operation", operation).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+}
@@ -0,0 +1,146 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.github.zivasd.spring.boot.jdbc.cfg.MultiUnitJdbcProperties;
+import io.github.zivasd.spring.boot.jdbc.cfg.MultiUnitJdbcTemplate;
+import io.github.zivasd.spring.boot.jdbc.cfg.MultiUnitQuery;
+import io.github.zivasd.spring.boot.jdbc.cfg.MultiUnitResult;
+import io.github.zivasd.spring.boot.jdbc.cfg.PartialResultPolicy;
+
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+class MultiUnitJdbcTemplateTest {
+
+    @Autowired
+    private MultiUnitJdbcTemplate multiUnitJdbcTemplate;
+
+    @Autowired
+    @Qualifier("primaryJdbcTemplate")
+    private JdbcOperations primary;
+
+    @Autowired
+    @Qualifier("secondaryJdbcTemplate")
+    private JdbcOperations secondary;
+
+    @Autowired
+    private Map<String, NamedParameterJdbcOperations> namedOperations;
+
+    @Autowired
+    private Map<String, PlatformTransactionManager> transactionManagers;
+
+    @BeforeAll
+    void init() {
+        primary.execute("drop table if exists t_region");
+        primary.execute("create table t_region (name varchar(64))");
+        primary.execute("insert into t_region (name) values ('berlin'), ('dublin'), ('frankfurt')");
+        primary.execute("create alias if not exists sleep_ms for \"java.lang.Thread.sleep\"");
+        secondary.execute("drop table if exists t_region");
+        secondary.execute("create table t_region (name varchar(64))");
+        secondary.execute("insert into t_region (name) values ('amsterdam'), ('copenhagen'), ('edinburgh')");
+        secondary.execute("create alias if not exists sleep_ms for \"java.lang.Thread.sleep\"");
+    }
+
+    @Test
+    void test_queryMergesUnits() {
+        assertTrue(multiUnitJdbcTemplate.getUnits().containsAll(Arrays.asList("primary", "secondary")));
+
+        MultiUnitResult<String> result = multiUnitJdbcTemplate.query(query("select name from t_region order by name")
+                .units("primary", "secondary"));
+        assertTrue(result.isComplete());
+        assertEquals(Arrays.asList("berlin", "dublin", "frankfurt", "amsterdam", "copenhagen", "edinburgh"),
+                result.getRows());
+        assertEquals(3, result.getRowCounts().get("secondary"));
+    }
+
+    @Test
+    void test_orderAndLimit() {
+        MultiUnitResult<String> result = multiUnitJdbcTemplate.query(query("select name from t_region order by name")
+                .units("primary", "secondary").orderBy(Comparator.naturalOrder()).limit(2));
+        assertEquals(Arrays.asList("amsterdam", "berlin"), result.getRows());
+        // each unit reads no more than the limit
+        assertEquals(2, result.getRowCounts().get("primary"));
+    }
+
+    @Test
+    void test_parameters() {
+        List<String> rows = multiUnitJdbcTemplate.query(query("select name from t_region where name like :prefix")
+                .units("primary", "secondary").parameters(Collections.singletonMap("prefix", "d%"))).getRows();
+        assertEquals(Collections.singletonList("dublin"), rows);
+    }
+
+    @Test
+    void test_partialResults() {
+        secondary.execute("create table if not exists t_secondary_only (name varchar(64))");
+        MultiUnitQuery<String> query = query("select name from t_secondary_only").units("primary", "secondary");
+        assertThrows(DataAccessException.class, () -> multiUnitJdbcTemplate.query(query));
+
+        MultiUnitResult<String> result = multiUnitJdbcTemplate
+                .query(query.partialResults(PartialResultPolicy.RETURN_PARTIAL));
+        assertFalse(result.isComplete());
+        assertTrue(result.getFailures().containsKey("primary"));
+        assertEquals(0, result.getRowCounts().get("secondary"));
+    }
+
+    @Test
+    void test_unitTimeout() {
+        MultiUnitResult<String> result = multiUnitJdbcTemplate.query(
+                query("select name from t_region where name = 'amsterdam' and sleep_ms(300) is null")
+                        .units("primary", "secondary").timeout("secondary", Duration.ofMillis(50))
+                        .partialResults(PartialResultPolicy.RETURN_PARTIAL));
+        assertTrue(result.getFailures().get("secondary") instanceof QueryTimeoutException);
+        assertEquals(0, result.getRowCounts().get("primary"));
+    }
+
+    @Test
+    void test_timeoutExcludesQueueWait() {
+        Map<String, NamedParameterJdbcOperations> units = new HashMap<>();
+        units.put("primary", namedOperations.get("primaryNamedParameterJdbcTemplate"));
+        units.put("secondary", namedOperations.get("secondaryNamedParameterJdbcTemplate"));
+        Map<String, PlatformTransactionManager> unitTransactionManagers = new HashMap<>();
+        unitTransactionManagers.put("primary", transactionManagers.get("primaryTransactionManager"));
+        unitTransactionManagers.put("secondary", transactionManagers.get("secondaryTransactionManager"));
+        MultiUnitJdbcProperties properties = new MultiUnitJdbcProperties();
+        properties.setMaxThreads(1);
+        MultiUnitJdbcTemplate template = new MultiUnitJdbcTemplate(units, unitTransactionManagers, properties);
+        try {
+            // each unit sleeps for its only row, the second unit waits 300 ms for the only thread
+            MultiUnitResult<String> result = template.query(
+                    query("select name from t_region where name in ('amsterdam', 'berlin') and sleep_ms(300) is null")
+                            .units("primary", "secondary").timeout(Duration.ofMillis(500)));
+            assertTrue(result.isComplete());
+            assertEquals(Arrays.asList("berlin", "amsterdam"), result.getRows());
+        } finally {
+            template.destroy();
+        }
+    }
+
+    private static MultiUnitQuery<String> query(String sql) {
+        return MultiUnitQuery.of(sql, new SingleColumnRowMapper<>(String.class));
+    }
+}
@@ -2,13 +2,18 @@ package multiple.jdbc.sample.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 
+import io.github.zivasd.spring.boot.jdbc.repository.support.UnitRepositorySupport;
 import multiple.jdbc.sample.repositories.entities.Person;
 import multiple.jdbc.sample.repositories.primary.PersonRepository;
 import multiple.jdbc.sample.repositories.secondary.SecondaryPersonRepository;
@@ -21,6 +26,9 @@ class MultipleRepositoryTest {
     @Autowired
     private SecondaryPersonRepository secondaryPersonRepository;
 
+    @Autowired
+    private ApplicationContext applicationContext;
+
     @Autowired
     @Qualifier("primaryNamedParameterJdbcTemplate")
     private NamedParameterJdbcOperations primaryJdbcOperations;
@@ -57,4 +65,12 @@ class MultipleRepositoryTest {
 
     }
 
+    @Test
+    void testSharedRepositorySupport() {
+        // four repository configurations on two units
+        assertEquals(
+                new HashSet<>(Arrays.asList("primaryNamedParameterJdbcTemplateRepositorySupport",
+                        "secondaryNamedParameterJdbcTemplateRepositorySupport")),
+                applicationContext.getBeansOfType(UnitRepositorySupport.class).keySet());
+    }
 }
@@ -0,0 +1,97 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.zivasd.spring.boot.jdbc.cfg.ReplicaRoutingDataSource;
+
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+class ReplicaRoutingTest {
+
+    @Autowired
+    @Qualifier("reportingJdbcTemplate")
+    private JdbcOperations operations;
+
+    @Autowired
+    @Qualifier("reportingTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("reportingDataSource")
+    private DataSource dataSource;
+
+    @BeforeAll
+    void init() throws SQLException {
+        operations.execute("drop table if exists t_report");
+        operations.execute("create table t_report (name varchar(64))");
+        operations.execute("insert into t_report (name) values('primary')");
+
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:reportingreplica;DB_CLOSE_DELAY=-1",
+                "sa", ""); Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists t_report");
+            statement.execute("create table t_report (name varchar(64))");
+            statement.execute("insert into t_report (name) values('replica')");
+        }
+    }
+
+    @Test
+    void test_readOnlyTransactionsUseReplica() throws SQLException {
+        for (int i = 0; i < 4; ++i) {
+            assertEquals("replica", readOnly().execute(status -> read()));
+        }
+        // the unreachable replica is skipped
+        assertEquals(1, dataSource.unwrap(ReplicaRoutingDataSource.class).getAvailableReplicaCount());
+    }
+
+    @Test
+    void test_writesUsePrimary() {
+        assertEquals("primary", new TransactionTemplate(transactionManager).execute(status -> read()));
+        assertEquals("primary", read());
+    }
+
+    @Test
+    void test_readsWithinWriteTransactionUsePrimary() {
+        TransactionTemplate readOnly = readOnly();
+        readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        String name = new TransactionTemplate(transactionManager).execute(status -> {
+            operations.update("update t_report set name = 'primary'");
+            return readOnly.execute(inner -> read());
+        });
+        assertEquals("primary", name);
+        assertEquals("replica", readOnly().execute(status -> read()));
+    }
+
+    @Test
+    void test_replicasAreExposed() throws SQLException {
+        assertEquals(2, dataSource.unwrap(ReplicaRoutingDataSource.class).getReplicas().size());
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private String read() {
+        return operations.queryForObject("select name from t_report", String.class);
+    }
+}
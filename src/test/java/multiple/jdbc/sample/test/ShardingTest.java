@@ -0,0 +1,260 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.zivasd.spring.boot.jdbc.config.EnableMultipleJdbcRepositories;
+import io.github.zivasd.spring.boot.jdbc.repository.BatchResult;
+import io.github.zivasd.spring.boot.jdbc.repository.support.BatchJdbcRepositoryFactoryBean;
+import io.github.zivasd.spring.boot.jdbc.repository.support.HashShardingStrategy;
+import io.github.zivasd.spring.boot.jdbc.repository.support.RangeShardingStrategy;
+import io.github.zivasd.spring.boot.jdbc.repository.support.ShardGroup;
+import multiple.jdbc.sample.repositories.entities.Invoice;
+import multiple.jdbc.sample.repositories.entities.Order;
+import multiple.jdbc.sample.repositories.sharded.InvoiceRepository;
+import multiple.jdbc.sample.repositories.sharded.OrderRepository;
+
+@SpringBootTest
+@TestInstance(Lifecycle.PER_CLASS)
+class ShardingTest {
+
+    /**
+     * Only the contexts whose datasources are built from spring.datasources
+     * have the shard group.
+     */
+    @TestConfiguration
+    @EnableMultipleJdbcRepositories(repositoryFactoryBeanClass = BatchJdbcRepositoryFactoryBean.class, basePackages = "multiple.jdbc.sample.repositories.sharded", shardGroup = "orders")
+    static class ShardedRepositories {
+    }
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    @Qualifier("orders0JdbcTemplate")
+    private JdbcOperations shard0;
+
+    @Autowired
+    @Qualifier("orders1JdbcTemplate")
+    private JdbcOperations shard1;
+
+    @Autowired
+    @Qualifier("orders0TransactionManager")
+    private PlatformTransactionManager shard0TransactionManager;
+
+    @Autowired
+    @Qualifier("ordersShardGroup")
+    private ShardGroup shardGroup;
+
+    @BeforeAll
+    void init() {
+        for (JdbcOperations shard : new JdbcOperations[] { shard0, shard1 }) {
+            shard.execute("drop table if exists t_order");
+            shard.execute(
+                    "create table t_order (ID bigint not null primary key, CUSTOMER_ID bigint, ITEM varchar(64), VERSION bigint)");
+            shard.execute("drop table if exists t_invoice");
+            shard.execute("create table t_invoice (ID bigint not null primary key, CUSTOMER_ID bigint, VERSION bigint)");
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        orderRepository.deleteAll();
+        invoiceRepository.deleteAll();
+    }
+
+    @Test
+    void test_shardGroup() {
+        assertEquals("orders", shardGroup.getName());
+        assertEquals(2, shardGroup.size());
+        assertEquals("orders0", shardGroup.getUnits().get(0));
+    }
+
+    @Test
+    void test_saveAndFindById() {
+        orderRepository.save(new Order(1L, 2L, "book"));
+        orderRepository.save(new Order(2L, 3L, "pen"));
+
+        assertEquals(1, count(shard0));
+        assertEquals(1, count(shard1));
+        // the orders are sharded by customer, finding one by id asks every shard
+        assertEquals("book", orderRepository.findById(1L).get().getItem());
+        assertEquals("pen", orderRepository.findById(2L).get().getItem());
+        assertFalse(orderRepository.findById(3L).isPresent());
+        assertTrue(orderRepository.existsById(2L));
+        assertEquals(2, orderRepository.count());
+    }
+
+    @Test
+    void test_onlyIdParametersRouteById() {
+        // the invoices are sharded by id, 1 on the second shard and 2 on the first
+        invoiceRepository.save(new Invoice(1L, 2L));
+        invoiceRepository.save(new Invoice(2L, 2L));
+
+        assertEquals(1, shard0.queryForObject("select count(*) from t_invoice", Integer.class));
+        assertTrue(invoiceRepository.existsById(1L));
+        assertEquals(2L, invoiceRepository.findById(2L).get().getCustomerId());
+        // a customer id of the type of the id is no shard key
+        assertEquals(2, invoiceRepository.findByCustomerId(2L).size());
+        List<Invoice> found = new ArrayList<>();
+        invoiceRepository.findAllById(Arrays.asList(1L, 2L)).forEach(found::add);
+        assertEquals(2, found.size());
+        invoiceRepository.deleteById(1L);
+        assertEquals(1, invoiceRepository.count());
+    }
+
+    @Test
+    void test_foundByIdsInIdOrder() {
+        for (long id = 1; id <= 4; ++id) {
+            invoiceRepository.save(new Invoice(id, 1L));
+        }
+        // 9 has no row, 2 and 4 are on the first shard, the others on the second
+        List<Invoice> found = invoiceRepository.batchFindAllById(Arrays.asList(4L, 9L, 1L, 2L, 3L, 4L), 8);
+        assertEquals(Arrays.asList(4L, 1L, 2L, 3L),
+                found.stream().map(Invoice::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void test_batchSaveSplitsByShard() {
+        List<Order> orders = new ArrayList<>();
+        for (long i = 0; i < 10; ++i) {
+            orders.add(new Order(i, i, "item" + i));
+        }
+        List<Order> saved = orderRepository.batchSave(orders, 3);
+
+        assertEquals(10, saved.size());
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(i, saved.get(i).getId());
+        }
+        assertEquals(5, count(shard0));
+        assertEquals(5, count(shard1));
+        assertEquals(0, shard0.queryForObject("select count(*) from t_order where mod(customer_id, 2) = 1",
+                Integer.class));
+        assertEquals(1, orderRepository.findByItem("item4").size());
+        List<Order> found = new ArrayList<>();
+        orderRepository.findAllById(Arrays.asList(0L, 4L, 7L)).forEach(found::add);
+        assertEquals(3, found.size());
+    }
+
+    @Test
+    void test_streamingSaveIsSplitChunkByChunk() {
+        // the fifth order can not be read, the first chunk is written already
+        Iterator<Order> orders = LongStream.range(0, 5)
+                .mapToObj(i -> i < 4 ? new Order(i, i, "item" + i) : null).iterator();
+        Iterator<Order> failing = new Iterator<Order>() {
+            @Override
+            public boolean hasNext() {
+                return orders.hasNext();
+            }
+
+            @Override
+            public Order next() {
+                Order order = orders.next();
+                if (order == null) {
+                    throw new IllegalStateException("unreadable");
+                }
+                return order;
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> orderRepository.batchSave(failing, 3));
+        assertEquals(3, orderRepository.count());
+
+        orderRepository.deleteAll();
+        assertEquals(4, orderRepository.batchSave(LongStream.range(0, 4).mapToObj(i -> new Order(i, i, "item")), 3));
+
+        // the offsets of the chunks are positions in the whole input
+        Iterator<Order> more = LongStream.range(4, 9).mapToObj(i -> new Order(i, i, "item")).iterator();
+        Iterable<Order> oneShot = () -> more;
+        BatchResult<Order> result = orderRepository.batchSaveChunked(oneShot, 3);
+        assertEquals(5, result.getSucceeded());
+        assertEquals(Arrays.asList(0L, 1L, 3L, 4L),
+                result.getChunks().stream().map(BatchResult.Chunk::getOffset).collect(Collectors.toList()));
+        assertEquals(9, orderRepository.count());
+    }
+
+    @Test
+    void test_splitCallsRunOutsideTheCallerTransaction() {
+        TransactionTemplate transaction = new TransactionTemplate(shard0TransactionManager);
+        transaction.executeWithoutResult(status -> {
+            orderRepository.batchSave(Arrays.asList(new Order(0L, 0L, "book"), new Order(2L, 2L, "pen")), 2);
+            status.setRollbackOnly();
+        });
+        // all on the first shard, committed like the parts of a call spanning both shards
+        assertEquals(2, count(shard0));
+    }
+
+    @Test
+    void test_batchSaveParallelReportsInputPositions() {
+        List<Order> orders = new ArrayList<>();
+        for (long i = 0; i < 6; ++i) {
+            orders.add(new Order(i, i, "item" + i));
+        }
+        assertEquals(6, orderRepository.batchSaveParallel(orders, 2).getSucceeded());
+        assertEquals(6, orderRepository.count());
+    }
+
+    @Test
+    void test_pagesAreRejected() {
+        assertThrows(InvalidDataAccessApiUsageException.class, () -> orderRepository.findNextSlice(null, 10));
+    }
+
+    @Test
+    void test_orderedResultsAreRejected() {
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> orderRepository.findByItem("book", Sort.by("id")));
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> orderRepository.findTop2ByItemOrderByIdDesc("book"));
+        assertEquals(0, orderRepository.findByItem("book", Sort.unsorted()).size());
+    }
+
+    @Test
+    void test_missingShardKeyIsRejected() {
+        Order order = new Order(1L, null, "book");
+        assertThrows(InvalidDataAccessApiUsageException.class, () -> orderRepository.save(order));
+    }
+
+    @Test
+    void test_strategies() {
+        HashShardingStrategy hash = new HashShardingStrategy();
+        assertEquals(3, hash.getShard(11L, 8));
+        assertEquals(5, hash.getShard(-3, 8));
+
+        RangeShardingStrategy range = new RangeShardingStrategy(1000, 2000);
+        assertEquals(0, range.getShard(-5L, 3));
+        assertEquals(1, range.getShard(1000L, 3));
+        assertEquals(1, range.getShard(1999.5, 3));
+        assertEquals(2, range.getShard(2000, 3));
+        assertThrows(IllegalArgumentException.class, () -> range.getShard(1L, 2));
+    }
+
+    private static int count(JdbcOperations shard) {
+        return shard.queryForObject("select count(*) from t_order", Integer.class);
+    }
+}
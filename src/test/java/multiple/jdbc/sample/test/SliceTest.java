@@ -0,0 +1,93 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.secondary.SecondaryPersonRepository;
+
+@SpringBootTest
+class SliceTest {
+    @Autowired
+    private SecondaryPersonRepository secondaryPersonRepository;
+
+    @Autowired
+    @Qualifier("secondaryNamedParameterJdbcTemplate")
+    private NamedParameterJdbcOperations secondaryJdbcOperations;
+
+    @BeforeEach
+    void init() {
+        secondaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_person");
+        secondaryJdbcOperations.getJdbcOperations().execute(
+                "create table t_person (ID bigint not null auto_increment primary key, NAME varchar(256), COMPANY_ID bigint, VERSION bigint)");
+        List<Person> persons = new ArrayList<>();
+        for (long i = 0; i < 95; ++i) {
+            // few distinct names, so the id has to break the ties
+            persons.add(new Person("ziva" + (i % 7)));
+        }
+        secondaryPersonRepository.batchSave(persons, 50);
+    }
+
+    @Test
+    void test_slicesById() {
+        List<Long> ids = new ArrayList<>();
+        Slice<Person> slice = secondaryPersonRepository.findNextSlice(null, 10);
+        int slices = 1;
+        while (true) {
+            slice.forEach(p -> ids.add(p.getId()));
+            if (!slice.hasNext()) {
+                break;
+            }
+            slice = secondaryPersonRepository.findNextSlice(slice.getContent().get(slice.getNumberOfElements() - 1),
+                    10);
+            ++slices;
+        }
+        assertEquals(10, slices);
+        assertEquals(95, ids.size());
+        assertEquals(ids.stream().sorted().collect(Collectors.toList()), ids);
+    }
+
+    @Test
+    void test_slicesBySortKey() {
+        Sort sort = Sort.by(Sort.Direction.DESC, "name");
+        List<Person> persons = new ArrayList<>();
+        Person last = null;
+        Slice<Person> slice;
+        do {
+            slice = secondaryPersonRepository.findNextSlice(last, 8, sort);
+            persons.addAll(slice.getContent());
+            last = slice.hasContent() ? slice.getContent().get(slice.getNumberOfElements() - 1) : null;
+        } while (slice.hasNext());
+
+        assertEquals(95, persons.size());
+        assertEquals(95, persons.stream().map(Person::getId).distinct().count());
+        for (int i = 1; i < persons.size(); ++i) {
+            Person previous = persons.get(i - 1);
+            Person current = persons.get(i);
+            int byName = current.getName().compareTo(previous.getName());
+            assertTrue(byName < 0 || (byName == 0 && current.getId() > previous.getId()));
+        }
+        assertFalse(secondaryPersonRepository.findNextSlice(last, 8, sort).hasContent());
+    }
+
+    @Test
+    void test_invalidSortKey() {
+        Sort sort = Sort.by("unknown");
+        assertThrows(IllegalArgumentException.class, () -> secondaryPersonRepository.findNextSlice(null, 8, sort));
+    }
+}
@@ -0,0 +1,92 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.zivasd.spring.boot.jdbc.cfg.StatementProfiler;
+import io.github.zivasd.spring.boot.jdbc.cfg.StatementStatistics;
+
+@SpringBootTest
+class StatementProfilerTest {
+    @Autowired
+    @Qualifier("secondaryStatementProfiler")
+    private StatementProfiler profiler;
+
+    @Autowired
+    @Qualifier("secondaryNamedParameterJdbcTemplate")
+    private NamedParameterJdbcOperations secondaryJdbcOperations;
+
+    @Autowired
+    @Qualifier("secondaryTransactionTemplate")
+    private TransactionTemplate secondaryTransactionTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @BeforeEach
+    void init() {
+        secondaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_profiled");
+        secondaryJdbcOperations.getJdbcOperations()
+                .execute("create table t_profiled (ID bigint not null primary key, NAME varchar(256))");
+        profiler.reset();
+    }
+
+    @Test
+    void test_normalize() {
+        assertEquals("select * from t_1 where name = ? and id in (?) and amount > ?", StatementProfiler
+                .normalize("select *\n  from t_1 where name = 'o''neil' and id in (1, 2,3) and amount > 2.5"));
+    }
+
+    @Test
+    void test_profileStatements() {
+        for (int i = 0; i < 5; ++i) {
+            secondaryJdbcOperations.getJdbcOperations()
+                    .update("insert into t_profiled (ID, NAME) values (" + i + ", 'name" + i + "')");
+        }
+        secondaryTransactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 3; ++i) {
+                secondaryJdbcOperations.queryForObject("select NAME from t_profiled where ID = :id",
+                        Collections.singletonMap("id", i), String.class);
+            }
+        });
+        secondaryJdbcOperations.getJdbcOperations().batchUpdate("update t_profiled set NAME = ? where ID = ?",
+                Collections.nCopies(4, new Object[] { "renamed", 1L }));
+
+        List<StatementStatistics> top = profiler.getTopByCount();
+        assertEquals(3, top.size());
+        assertEquals("insert into t_profiled (ID, NAME) values (?, ?)", top.get(0).getSql());
+        assertEquals(5, top.get(0).getCount());
+        assertEquals("select NAME from t_profiled where ID = ?", top.get(1).getSql());
+        assertEquals(3, top.get(1).getCount());
+        // a batch is one execution
+        assertEquals("update t_profiled set NAME = ? where ID = ?", top.get(2).getSql());
+        assertEquals(1, top.get(2).getCount());
+
+        List<StatementStatistics> byTime = profiler.getTopByTotalTime();
+        assertEquals(top.stream().map(StatementStatistics::getSql).sorted().collect(Collectors.toList()),
+                byTime.stream().map(StatementStatistics::getSql).sorted().collect(Collectors.toList()));
+        for (StatementStatistics statistics : byTime) {
+            assertTrue(statistics.getTotalTime().compareTo(statistics.getMaxTime()) >= 0);
+        }
+    }
+
+    @Test
+    void test_onlyEnabledUnits() {
+        assertTrue(applicationContext.containsBean("secondaryStatementProfiler"));
+        assertFalse(applicationContext.containsBean("primaryStatementProfiler"));
+    }
+}
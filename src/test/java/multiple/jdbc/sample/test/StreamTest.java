@@ -0,0 +1,133 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.zivasd.spring.boot.jdbc.cfg.StatementProfiler;
+import multiple.jdbc.sample.repositories.entities.Person;
+import multiple.jdbc.sample.repositories.secondary.SecondaryPersonRepository;
+
+@SpringBootTest
+class StreamTest {
+    @Autowired
+    private SecondaryPersonRepository secondaryPersonRepository;
+
+    @Autowired
+    @Qualifier("secondaryNamedParameterJdbcTemplate")
+    private NamedParameterJdbcOperations secondaryJdbcOperations;
+
+    @Autowired
+    @Qualifier("secondaryTransactionTemplate")
+    private TransactionTemplate secondaryTransactionTemplate;
+
+    @Autowired
+    @Qualifier("secondaryStatementProfiler")
+    private StatementProfiler profiler;
+
+    private List<Person> persons;
+
+    @BeforeEach
+    void init() {
+        secondaryJdbcOperations.getJdbcOperations().execute("drop table if exists t_person");
+        secondaryJdbcOperations.getJdbcOperations().execute(
+                "create table t_person (ID bigint not null auto_increment primary key, NAME varchar(256), COMPANY_ID bigint, VERSION bigint)");
+        persons = new ArrayList<>();
+        for (long i = 0; i < 120; ++i) {
+            Person person = new Person((i % 2 == 0 ? "even" : "odd") + i);
+            person.setCompanyId(i % 3);
+            persons.add(person);
+        }
+        persons = secondaryPersonRepository.batchSave(persons, 50);
+    }
+
+    @Test
+    void test_streamAll() {
+        try (Stream<Person> stream = secondaryPersonRepository.streamAll()) {
+            assertEquals(120, stream.count());
+        }
+        try (Stream<Person> stream = secondaryPersonRepository.streamAll(7)) {
+            assertEquals(persons.stream().map(Person::getName).sorted().collect(Collectors.toList()),
+                    stream.map(Person::getName).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void test_streamMapsLikeFindAll() {
+        List<String> expected = new ArrayList<>();
+        secondaryPersonRepository.findAll().forEach(p -> expected.add(describe(p)));
+        try (Stream<Person> stream = secondaryPersonRepository.streamAll()) {
+            assertEquals(expected.stream().sorted().collect(Collectors.toList()),
+                    stream.map(StreamTest::describe).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void test_streamAllById() {
+        List<Long> ids = Arrays.asList(persons.get(3).getId(), persons.get(50).getId(), persons.get(119).getId(),
+                -1L);
+        try (Stream<Person> stream = secondaryPersonRepository.streamAllById(ids, 2)) {
+            assertEquals(Arrays.asList("even50", "odd119", "odd3"),
+                    stream.map(Person::getName).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void test_streamAllByIdOverLargestBucket() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = -480; id < 0; ++id) {
+            ids.add(id);
+        }
+        persons.forEach(person -> ids.add(person.getId()));
+        profiler.reset();
+        try (Stream<Person> stream = secondaryPersonRepository.streamAllById(ids, 50)) {
+            assertEquals(120, stream.count());
+        }
+        // the 600 ids are split at 512 rather than padded to the limit of the database
+        assertEquals(2, BatchFindTest.inListStatements(profiler));
+    }
+
+    @Test
+    void test_streamReleasesConnection() {
+        // more streams than connections in the pool
+        for (int i = 0; i < 15; ++i) {
+            try (Stream<Person> stream = secondaryPersonRepository.streamAll()) {
+                assertEquals("even0", stream.findFirst().map(Person::getName).orElse(null));
+            }
+        }
+    }
+
+    @Test
+    void test_streamInTransaction() {
+        Long count = secondaryTransactionTemplate.execute(status -> {
+            secondaryPersonRepository.save(new Person("uncommitted"));
+            try (Stream<Person> stream = secondaryPersonRepository.streamAll()) {
+                return stream.count();
+            }
+        });
+        assertEquals(121L, count);
+    }
+
+    @Test
+    void test_derivedStreamQuery() {
+        try (Stream<Person> stream = secondaryPersonRepository.findByNameStartingWith("odd")) {
+            assertEquals(60, stream.count());
+        }
+    }
+
+    private static String describe(Person person) {
+        return person.getId() + "/" + person.getName() + "/" + person.getVersion() + "/" + person.getCompanyId();
+    }
+}
@@ -0,0 +1,56 @@
+package multiple.jdbc.sample.test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestContextManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+@SpringBootTest
+class WarmUpTest {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("secondaryDataSource")
+    private DataSource secondaryDataSource;
+
+    @Test
+    void test_poolsStartedAtStartup() {
+        assertNotNull(((HikariDataSource) primaryDataSource).getHikariPoolMXBean());
+        assertNotNull(((HikariDataSource) secondaryDataSource).getHikariPoolMXBean());
+    }
+
+    @Test
+    void test_failuresReportedTogether() {
+        TestContext testContext = new TestContextManager(BrokenUnits.class).getTestContext();
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                testContext::getApplicationContext);
+        Throwable cause = exception;
+        while (!(cause instanceof BeanInitializationException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        assertTrue(cause.getMessage().contains("secondary: "), cause::toString);
+        assertTrue(cause.getMessage().contains("archive: "), cause::toString);
+    }
+
+    // the first unit declared is the primary one
+    @SpringBootTest(properties = { "spring.datasources.primary.url=jdbc:h2:mem:testdb;",
+            "spring.datasources.secondary.url=jdbc:h2:tcp://localhost:1/secondary",
+            "spring.datasources.archive.url=jdbc:h2:tcp://localhost:1/archive",
+            "spring.datasources.archive.lazy=false", "spring.datasources.archive.warm-up.enabled=true" })
+    static class BrokenUnits {
+    }
+}